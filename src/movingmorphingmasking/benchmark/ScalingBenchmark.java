@@ -0,0 +1,206 @@
+package movingmorphingmasking.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import movingmorphingmasking.data.topology.PolygonDeformable;
+import movingmorphingmasking.data.topology.PolygonTransformator;
+import movingmorphingmasking.data.topology.maskingpseudoregionfactory.PseudoRegionHolder;
+import movingmorphingmasking.data.util.generator.SyntheticLayout;
+import movingmorphingmasking.data.util.generator.TesselationGenerator;
+
+/**
+ * Scaling harness for the pseudo region pipeline. It builds a
+ * <code>PseudoRegionHolder</code> and transformates its tesselation into
+ * <code>PolygonDeformable</code>s for synthetic layouts of growing sizes
+ * (powers of ten) and prints time, allocation and retained heap per size.
+ * <p>
+ * The column <code>exp</code> is the exponent of the growth of the total time
+ * between two sizes, about 1 for linear and 2 for quadratic phases. Sizes are
+ * skipped as soon as one size took longer than the time limit.
+ * <p>
+ * With a parallelism greater than 0 the holders are built in parallel on a
+ * <code>ForkJoinPool</code> of this parallelism. The allocation is then only
+ * the one of the calling thread.
+ * <p>
+ * Usage:
+ * <code>ScalingBenchmark [jitteredGrid|relaxedVoronoi|collinearTJunctions]
+ * [maxCells] [timeLimitSeconds] [seed] [parallelism]</code>
+ *
+ * @author julia schueler
+ */
+public class ScalingBenchmark {
+
+    private static final double MB = 1024.0 * 1024.0;
+
+    /**
+     * Runs the harness.
+     *
+     * @param args layout kind, maximal count of cells, time limit in seconds,
+     * seed and parallelism.
+     */
+    public static void main(String[] args) {
+        TesselationGenerator.LayoutKind kind = args.length > 0
+                ? TesselationGenerator.LayoutKind.valueOf(args[0]) : TesselationGenerator.LayoutKind.jitteredGrid;
+        int maxCells = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+        long timeLimitNanos = (args.length > 2 ? Long.parseLong(args[2]) : 600) * 1000000000L;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 42;
+        int parallelism = args.length > 4 ? Integer.parseInt(args[4]) : 0;
+        ForkJoinPool pool = parallelism > 0 ? new ForkJoinPool(parallelism) : null;
+
+        System.out.println(String.format(Locale.ROOT, "%10s %10s %11s %11s %11s %10s %10s %6s",
+                "cells", "vertices", "holder ms", "transf. ms", "total ms", "alloc MB", "heap MB", "exp"));
+        double previousCells = 0;
+        double previousTime = 0;
+        for (int cells = 100; cells <= maxCells; cells *= 10) {
+            SyntheticLayout layout = new TesselationGenerator(seed).createLayout(kind, cells);
+            Measurement measurement = measure(layout, pool);
+            double exponent = previousCells == 0 ? Double.NaN
+                    : Math.log(measurement.totalNanos() / previousTime) / Math.log(layout.getCellCount() / previousCells);
+            System.out.println(String.format(Locale.ROOT, "%10d %10d %11.1f %11.1f %11.1f %10.1f %10.1f %6.2f",
+                    layout.getCellCount(), layout.getVertexCount(),
+                    measurement.holderNanos / 1e6, measurement.transformNanos / 1e6, measurement.totalNanos() / 1e6,
+                    measurement.allocatedBytes / MB, measurement.retainedBytes / MB, exponent));
+            if (measurement.totalNanos() > timeLimitNanos) {
+                System.out.println("time limit exceeded, larger sizes are skipped");
+                break;
+            }
+            previousCells = layout.getCellCount();
+            previousTime = measurement.totalNanos();
+        }
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Builds the holder and the deformable polygons of a specific layout and
+     * measures it.
+     *
+     * @param layout specific layout.
+     * @return measurement of the build.
+     */
+    public static Measurement measure(SyntheticLayout layout) {
+        return measure(layout, null);
+    }
+
+    /**
+     * Builds the holder, in parallel on a specific pool, and the deformable
+     * polygons of a specific layout and measures it.
+     *
+     * @param layout specific layout.
+     * @param pool pool of the holder construction or <code>null</code> for
+     * the sequential construction.
+     * @return measurement of the build.
+     */
+    public static Measurement measure(SyntheticLayout layout, ForkJoinPool pool) {
+        Measurement measurement = new Measurement();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long heapBefore = memory.getHeapMemoryUsage().getUsed();
+        long allocatedBefore = getAllocatedBytes();
+
+        long start = System.nanoTime();
+        PseudoRegionHolder holder = pool == null
+                ? new PseudoRegionHolder(layout.getBasePolygon(), layout.getPseudoRegionTesselation(),
+                        layout.getTesselation())
+                : new PseudoRegionHolder(layout.getBasePolygon(), layout.getPseudoRegionTesselation(),
+                        layout.getTesselation(), pool);
+        long built = System.nanoTime();
+        List<PolygonDeformable> polygons = PolygonTransformator.transformatePolygonDeformables(holder);
+        long transformed = System.nanoTime();
+
+        measurement.allocatedBytes = getAllocatedBytes() - allocatedBefore;
+        System.gc();
+        measurement.retainedBytes = memory.getHeapMemoryUsage().getUsed() - heapBefore;
+        measurement.holderNanos = built - start;
+        measurement.transformNanos = transformed - built;
+        measurement.polygonCount = polygons.size();
+        measurement.sideCount = holder.getPseudoRegionSides().size();
+        return measurement;
+    }
+
+    private static long getAllocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    /**
+     * Measurement of a single build.
+     */
+    public static class Measurement {
+
+        private long holderNanos;
+        private long transformNanos;
+        private long allocatedBytes;
+        private long retainedBytes;
+        private int polygonCount;
+        private int sideCount;
+
+        /**
+         * Returns the time of the <code>PseudoRegionHolder</code> construction.
+         *
+         * @return time in nanoseconds.
+         */
+        public long getHolderNanos() {
+            return holderNanos;
+        }
+
+        /**
+         * Returns the time of the transformation into
+         * <code>PolygonDeformable</code>s.
+         *
+         * @return time in nanoseconds.
+         */
+        public long getTransformNanos() {
+            return transformNanos;
+        }
+
+        /**
+         * Returns the bytes allocated by the build, or a negative value if the
+         * JVM does not count allocations.
+         *
+         * @return allocated bytes.
+         */
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        /**
+         * Returns the heap retained by the holder and the polygons.
+         *
+         * @return retained bytes.
+         */
+        public long getRetainedBytes() {
+            return retainedBytes;
+        }
+
+        /**
+         * Returns the count of created polygons.
+         *
+         * @return count of polygons.
+         */
+        public int getPolygonCount() {
+            return polygonCount;
+        }
+
+        /**
+         * Returns the count of detected pseudo region sides.
+         *
+         * @return count of sides.
+         */
+        public int getSideCount() {
+            return sideCount;
+        }
+
+        private double totalNanos() {
+            return holderNanos + transformNanos;
+        }
+    }
+}
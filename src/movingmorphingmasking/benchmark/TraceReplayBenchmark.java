@@ -0,0 +1,92 @@
+package movingmorphingmasking.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Locale;
+import movingmorphingmasking.data.topology.mesh.MeshGeometry;
+import movingmorphingmasking.data.topology.mesh.TraceReplayer;
+
+/**
+ * Replay harness for traces of a <code>TraceRecorder</code>. It replays a
+ * recorded session on a fresh <code>MeshGeometry</code> per iteration,
+ * computes the areas of all polygons at every recorded frame boundary and
+ * prints the record rate and the frame times per iteration.
+ * <p>
+ * At full speed the records are applied as fast as possible, which measures
+ * the throughput of the recorded workload. At wall-clock speed every record
+ * waits for its recorded time, which reproduces the timing of the session,
+ * e.g. to profile it under the original load.
+ * <p>
+ * Usage:
+ * <code>TraceReplayBenchmark trace [fullSpeed|wallClock] [warmups]
+ * [iterations]</code>
+ *
+ * @author julia schueler
+ */
+public class TraceReplayBenchmark {
+
+    /**
+     * Runs the harness.
+     *
+     * @param args trace file, speed, count of warmup iterations and count of
+     * measured iterations.
+     * @throws IOException if the trace cannot be read.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("usage: TraceReplayBenchmark trace [fullSpeed|wallClock] [warmups] [iterations]");
+            return;
+        }
+        TraceReplayer replayer = TraceReplayer.open(Paths.get(args[0]));
+        boolean wallClock = args.length > 1 && args[1].equals("wallClock");
+        int warmups = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        int iterations = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+
+        System.out.println(String.format(Locale.ROOT, "%d corners, %d polygons, %d records, %d frames, %.1f ms recorded",
+                replayer.getTopology().getCornerCount(), replayer.getTopology().getPolygonCount(),
+                replayer.getRecordCount(), replayer.getFrameCount(), replayer.getDurationNanos() / 1e6));
+        System.out.println(String.format(Locale.ROOT, "%10s %11s %13s %13s %13s",
+                "iteration", "total ms", "records/s", "mean frame ms", "max frame ms"));
+        for (int i = -warmups; i < iterations; i++) {
+            FrameTimer timer = new FrameTimer(replayer.getTopology().getPolygonCount());
+            MeshGeometry geometry = replayer.createGeometry();
+            long start = System.nanoTime();
+            timer.last = start;
+            long records = replayer.replay(geometry, wallClock, timer);
+            long nanos = System.nanoTime() - start;
+            if (i >= 0) {
+                System.out.println(String.format(Locale.ROOT, "%10d %11.1f %13.0f %13.3f %13.3f",
+                        i, nanos / 1e6, records / (nanos / 1e9),
+                        timer.frames == 0 ? 0 : timer.totalNanos / 1e6 / timer.frames, timer.maxNanos / 1e6));
+            }
+        }
+    }
+
+    /**
+     * Frame listener that computes the areas of all polygons and takes the
+     * time between two frame boundaries.
+     */
+    private static class FrameTimer implements TraceReplayer.FrameListener {
+
+        private final double[] areas;
+        private long last;
+        private int frames;
+        private long totalNanos;
+        private long maxNanos;
+
+        private FrameTimer(int polygonCount) {
+            this.areas = new double[polygonCount];
+        }
+
+        @Override
+        public void frameEnded(int frame, MeshGeometry geometry) {
+            geometry.computeAreas(areas);
+            long now = System.nanoTime();
+            long nanos = now - last;
+            last = now;
+            frames++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package movingmorphingmasking.cli;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import movingmorphingmasking.data.io.FrameExporter;
+import movingmorphingmasking.data.io.LayoutFile;
+import movingmorphingmasking.data.topology.PolygonDeformable;
+import movingmorphingmasking.data.topology.PolygonTransformator;
+import movingmorphingmasking.data.topology.maskingpseudoregionfactory.PseudoRegionHolder;
+import movingmorphingmasking.data.topology.maskingpseudoregionfactory.PseudoRegionJob;
+
+/**
+ * Command-line batch processor that turns layout files (
+ * {@link LayoutFile}) into deformable meshes.
+ * <p>
+ * Every input file is read, its <code>PseudoRegionHolder</code> is built,
+ * its tesselation is transformated into <code>PolygonDeformable</code>s and
+ * the mesh is written by a <code>FrameExporter</code> (topology and one frame
+ * of the initial locations) into <code>&lt;output&gt;/&lt;name&gt;.mesh</code>.
+ * Inputs of the same name from different directories would overwrite each
+ * other's output, they are reported as failed and not processed. The files
+ * are processed in parallel by a fixed count of workers. At the end the
+ * processor prints the summed time of every phase, files and vertices per
+ * second of wall time and an upper bound of the peak heap, the sum of the
+ * peaks of all heap pools.
+ * <p>
+ * Usage:
+ * <code>BatchProcessor [-workers n] [-precision p] [-output dir]
+ * file|directory ...</code>, a directory stands for all its
+ * <code>.layout</code> files.
+ *
+ * @author julia schueler
+ */
+public class BatchProcessor {
+
+    public static final String OUTPUT_SUFFIX = ".mesh";
+    private final int workers;
+    private final double precision;
+    private final Path output;
+    private final AtomicLong readNanos;
+    private final AtomicLong holderNanos;
+    private final AtomicLong transformNanos;
+    private final AtomicLong writeNanos;
+    private final AtomicLong vertices;
+    private final AtomicInteger processed;
+    private final AtomicInteger failed;
+
+    /**
+     * Constructor for a processor with a specific configuration.
+     *
+     * @param workers count of parallel workers.
+     * @param precision quantisation precision of the output.
+     * @param output directory of the output files.
+     */
+    public BatchProcessor(int workers, double precision, Path output) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("workers must be positive: " + workers);
+        }
+        this.workers = workers;
+        this.precision = precision;
+        this.output = output;
+        this.readNanos = new AtomicLong();
+        this.holderNanos = new AtomicLong();
+        this.transformNanos = new AtomicLong();
+        this.writeNanos = new AtomicLong();
+        this.vertices = new AtomicLong();
+        this.processed = new AtomicInteger();
+        this.failed = new AtomicInteger();
+    }
+
+    /**
+     * Runs the processor.
+     *
+     * @param args options and input files or directories.
+     * @throws IOException if the inputs cannot be listed.
+     * @throws InterruptedException if interrupted while waiting for the
+     * workers.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int workers = Runtime.getRuntime().availableProcessors();
+        double precision = 0.01;
+        Path output = Paths.get(".");
+        List<Path> inputs = new ArrayList<Path>();
+        for (int i = 0; i < args.length; i++) {
+            if ("-workers".equals(args[i]) && i + 1 < args.length) {
+                workers = parseInt(args[i], args[++i]);
+            } else if ("-precision".equals(args[i]) && i + 1 < args.length) {
+                precision = parseDouble(args[i], args[++i]);
+            } else if ("-output".equals(args[i]) && i + 1 < args.length) {
+                output = Paths.get(args[++i]);
+            } else if (args[i].startsWith("-")) {
+                System.err.println("unknown option " + args[i]);
+                printUsage();
+                System.exit(2);
+            } else {
+                inputs.addAll(listInputs(Paths.get(args[i])));
+            }
+        }
+        if (inputs.isEmpty() || workers < 1) {
+            printUsage();
+            System.exit(2);
+        }
+        Files.createDirectories(output);
+        BatchProcessor processor = new BatchProcessor(workers, precision, output);
+        processor.process(inputs);
+        System.exit(processor.failed.get() == 0 ? 0 : 1);
+    }
+
+    /**
+     * Processes specific input files and prints the report.
+     *
+     * @param inputs layout files.
+     * @throws InterruptedException if interrupted while waiting for the
+     * workers.
+     */
+    public void process(List<Path> inputs) throws InterruptedException {
+        readNanos.set(0);
+        holderNanos.set(0);
+        transformNanos.set(0);
+        writeNanos.set(0);
+        vertices.set(0);
+        processed.set(0);
+        failed.set(0);
+        Map<String, List<Path>> inputsByName = new HashMap<String, List<Path>>();
+        for (Path input : inputs) {
+            String name = LayoutFile.getName(input);
+            List<Path> named = inputsByName.get(name);
+            if (named == null) {
+                named = new ArrayList<Path>(1);
+                inputsByName.put(name, named);
+            }
+            named.add(input);
+        }
+        List<MemoryPoolMXBean> heapPools = new ArrayList<MemoryPoolMXBean>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                heapPools.add(pool);
+            }
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>(inputs.size());
+            for (final Path input : inputs) {
+                List<Path> named = inputsByName.get(LayoutFile.getName(input));
+                if (named.size() > 1) {
+                    failed.incrementAndGet();
+                    System.err.println("failed: " + input + ": output " + LayoutFile.getName(input) + OUTPUT_SUFFIX
+                            + " clashes with " + (named.get(0) == input ? named.get(1) : named.get(0)));
+                    continue;
+                }
+                futures.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        processFile(input);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    failed.incrementAndGet();
+                    System.err.println("failed: " + e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        long wallNanos = System.nanoTime() - start;
+
+        // the pools do not peak at the same time, so the sum is an upper bound
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            peakHeap += pool.getPeakUsage().getUsed();
+        }
+        double seconds = wallNanos / 1e9;
+        System.out.println(String.format(Locale.ROOT, "files      %10d processed, %d failed, %d workers",
+                processed.get(), failed.get(), workers));
+        System.out.println(String.format(Locale.ROOT, "read       %10.1f ms", readNanos.get() / 1e6));
+        System.out.println(String.format(Locale.ROOT, "holder     %10.1f ms", holderNanos.get() / 1e6));
+        System.out.println(String.format(Locale.ROOT, "transform  %10.1f ms", transformNanos.get() / 1e6));
+        System.out.println(String.format(Locale.ROOT, "write      %10.1f ms", writeNanos.get() / 1e6));
+        System.out.println(String.format(Locale.ROOT, "wall       %10.1f ms", wallNanos / 1e6));
+        System.out.println(String.format(Locale.ROOT, "throughput %10.1f files/s, %.0f vertices/s",
+                processed.get() / seconds, vertices.get() / seconds));
+        System.out.println(String.format(Locale.ROOT, "peak heap  %10.1f MB at most (sum of the pool peaks)",
+                peakHeap / (1024.0 * 1024.0)));
+    }
+
+    /**
+     * Returns the count of failed files of the last run.
+     *
+     * @return count of failed files.
+     */
+    public int getFailedCount() {
+        return failed.get();
+    }
+
+    private void processFile(Path input) {
+        try {
+            long t0 = System.nanoTime();
+            PseudoRegionJob job = LayoutFile.read(input);
+            long t1 = System.nanoTime();
+            PseudoRegionHolder holder = new PseudoRegionHolder(job.getBasePolygon(),
+                    job.getPseudoRegionTesselation(), job.getTesselation());
+            long t2 = System.nanoTime();
+            List<PolygonDeformable> polygons = PolygonTransformator.transformatePolygonDeformables(holder);
+            long t3 = System.nanoTime();
+            FileChannel channel = FileChannel.open(output.resolve(job.getId() + OUTPUT_SUFFIX),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            try {
+                FrameExporter exporter = new FrameExporter(channel, precision);
+                exporter.writeTopology(polygons);
+                exporter.writeFrame();
+                exporter.finish();
+            } finally {
+                channel.close();
+            }
+            long t4 = System.nanoTime();
+
+            readNanos.addAndGet(t1 - t0);
+            holderNanos.addAndGet(t2 - t1);
+            transformNanos.addAndGet(t3 - t2);
+            writeNanos.addAndGet(t4 - t3);
+            long count = 0;
+            for (PolygonDeformable polygon : polygons) {
+                count += polygon.getCorners().length;
+            }
+            vertices.addAndGet(count);
+            processed.incrementAndGet();
+        } catch (IOException e) {
+            failed.incrementAndGet();
+            System.err.println("failed: " + input + ": " + e.getMessage());
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+            System.err.println("failed: " + input + ": " + e);
+        }
+    }
+
+    private static List<Path> listInputs(Path path) throws IOException {
+        List<Path> inputs = new ArrayList<Path>();
+        if (Files.isDirectory(path)) {
+            DirectoryStream<Path> stream = Files.newDirectoryStream(path, "*" + LayoutFile.SUFFIX);
+            try {
+                for (Path file : stream) {
+                    inputs.add(file);
+                }
+            } finally {
+                stream.close();
+            }
+            Collections.sort(inputs);
+        } else {
+            inputs.add(path);
+        }
+        return inputs;
+    }
+
+    private static int parseInt(String option, String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            System.err.println("invalid value of " + option + ": " + value);
+            printUsage();
+            System.exit(2);
+            return 0;
+        }
+    }
+
+    private static double parseDouble(String option, String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            System.err.println("invalid value of " + option + ": " + value);
+            printUsage();
+            System.exit(2);
+            return 0;
+        }
+    }
+
+    private static void printUsage() {
+        System.err.println("usage: BatchProcessor [-workers n] [-precision p] [-output dir] file|directory ...");
+    }
+}
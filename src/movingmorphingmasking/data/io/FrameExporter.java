@@ -0,0 +1,273 @@
+package movingmorphingmasking.data.io;
+
+import java.awt.geom.Line2D;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+import java.util.IdentityHashMap;
+import java.util.List;
+import movingmorphingmasking.data.topology.CornerPoint2D;
+import movingmorphingmasking.data.topology.PolygonDeformable;
+
+/**
+ * Streaming exporter for the frames of a morph animation of a tesselation of
+ * <code>PolygonDeformable</code>s.
+ * <p>
+ * The topology is written once, afterwards every frame only contains the
+ * changes of the
+ * <code>CornerPoint2D.Movable</code> and
+ * <code>CornerPoint2D.LineSlider</code> corners. All coordinates are quantised
+ * to a fixed precision and the differences to the previous frame are written
+ * as zigzag varints. A line slider is written as one scalar, its quantised
+ * distance to the start point of its line.
+ * <p>
+ * Stream layout (all varints are unsigned LEB128, signed values are zigzag
+ * encoded):
+ * <pre>
+ * header   : int MAGIC, byte VERSION, double precision
+ * topology : varint cornerCount,
+ *            per corner byte kind and
+ *              immovable   : qx, qy
+ *              movable     : -
+ *              line slider : qx1, qy1, qx2, qy2
+ *            varint polygonCount,
+ *            per polygon varint ringLength, ringLength * varint corner,
+ *              double targetArea
+ * frame    : byte TAG_FRAME, varint frameNumber,
+ *            per movable dqx, dqy, per line slider dqs (in corner order)
+ * end      : byte TAG_END
+ * </pre>
+ * The previous values of the first frame are zero.
+ *
+ * @author julia schueler
+ */
+public class FrameExporter {
+
+    public static final int MAGIC = 0x4d4d4d46;
+    public static final byte VERSION = 1;
+    public static final byte TAG_END = 0;
+    public static final byte TAG_FRAME = 1;
+    public static final byte KIND_IMMOVABLE = 0;
+    public static final byte KIND_MOVABLE = 1;
+    public static final byte KIND_LINESLIDER = 2;
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_RECORD_SIZE = 16;
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final double precision;
+    private final double inversePrecision;
+    private CornerPoint2D[] corners;
+    private byte[] kinds;
+    private long[] previous;
+    private int frameNumber;
+
+    /**
+     * Constructor for an exporter into a specific channel.
+     *
+     * @param channel channel to write to.
+     * @param precision distance of two neighboring quantisation steps.
+     */
+    public FrameExporter(WritableByteChannel channel, double precision) {
+        this(channel, precision, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructor for an exporter into a specific channel with a specific
+     * size of the reused direct buffer.
+     *
+     * @param channel channel to write to.
+     * @param precision distance of two neighboring quantisation steps.
+     * @param bufferSize size of the direct buffer in bytes.
+     */
+    public FrameExporter(WritableByteChannel channel, double precision, int bufferSize) {
+        if (precision <= 0) {
+            throw new IllegalArgumentException("precision must be positive: " + precision);
+        }
+        this.channel = channel;
+        this.precision = precision;
+        this.inversePrecision = 1 / precision;
+        this.buffer = ByteBuffer.allocateDirect(Math.max(bufferSize, MAX_RECORD_SIZE * 4));
+        this.buffer.order(ByteOrder.BIG_ENDIAN);
+        this.frameNumber = 0;
+    }
+
+    /**
+     * Returns the distance of two neighboring quantisation steps.
+     *
+     * @return precision.
+     */
+    public double getPrecision() {
+        return precision;
+    }
+
+    /**
+     * Writes the header and the topology of a tesselation. The corners are
+     * numbered in the order of their first appearance in the rings.
+     *
+     * @param polygons tesselation of <code>PolygonDeformable</code>.
+     * @throws IOException if the channel could not be written.
+     */
+    public void writeTopology(List<PolygonDeformable> polygons) throws IOException {
+        IdentityHashMap<CornerPoint2D, Integer> indices = indexCorners(polygons);
+
+        ensureRemaining(13);
+        buffer.putInt(MAGIC);
+        buffer.put(VERSION);
+        buffer.putDouble(precision);
+
+        writeVarint(corners.length);
+        int channels = 0;
+        for (int i = 0; i < corners.length; i++) {
+            CornerPoint2D corner = corners[i];
+            ensureRemaining(1);
+            buffer.put(kinds[i]);
+            switch (kinds[i]) {
+                case KIND_IMMOVABLE:
+                    writeZigzag(quantise(corner.getX()));
+                    writeZigzag(quantise(corner.getY()));
+                    break;
+                case KIND_MOVABLE:
+                    channels += 2;
+                    break;
+                case KIND_LINESLIDER:
+                    Line2D.Double line = ((CornerPoint2D.LineSlider) corner).getLine();
+                    writeZigzag(quantise(line.x1));
+                    writeZigzag(quantise(line.y1));
+                    writeZigzag(quantise(line.x2));
+                    writeZigzag(quantise(line.y2));
+                    channels += 1;
+                    break;
+            }
+        }
+
+        writeVarint(polygons.size());
+        for (PolygonDeformable polygon : polygons) {
+            CornerPoint2D[] ring = polygon.getCorners();
+            writeVarint(ring.length);
+            for (CornerPoint2D corner : ring) {
+                writeVarint(indices.get(corner));
+            }
+            ensureRemaining(8);
+            buffer.putDouble(polygon.getTagetArea());
+        }
+        previous = new long[channels];
+        frameNumber = 0;
+    }
+
+    /**
+     * Writes the current locations of all movable corners and line sliders of
+     * the tesselation given by {@link FrameExporter#writeTopology} as a frame.
+     *
+     * @throws IOException if the channel could not be written.
+     */
+    public void writeFrame() throws IOException {
+        if (corners == null) {
+            throw new IllegalStateException("topology has to be written before the first frame");
+        }
+        ensureRemaining(1);
+        buffer.put(TAG_FRAME);
+        writeVarint(frameNumber++);
+        int index = 0;
+        for (int i = 0; i < corners.length; i++) {
+            CornerPoint2D corner = corners[i];
+            switch (kinds[i]) {
+                case KIND_MOVABLE:
+                    index = writeDelta(index, quantise(corner.getX()));
+                    index = writeDelta(index, quantise(corner.getY()));
+                    break;
+                case KIND_LINESLIDER:
+                    CornerPoint2D.LineSlider lineSlider = (CornerPoint2D.LineSlider) corner;
+                    double s = lineSlider.getLineParameter() * lineSlider.getLineLength();
+                    index = writeDelta(index, quantise(s));
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Writes the end tag and flushes all buffered bytes into the channel. The
+     * channel itself is not closed.
+     *
+     * @throws IOException if the channel could not be written.
+     */
+    public void finish() throws IOException {
+        ensureRemaining(1);
+        buffer.put(TAG_END);
+        flush();
+    }
+
+    /**
+     * Flushes all buffered bytes into the channel.
+     *
+     * @throws IOException if the channel could not be written.
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private IdentityHashMap<CornerPoint2D, Integer> indexCorners(List<PolygonDeformable> polygons) {
+        IdentityHashMap<CornerPoint2D, Integer> indices = new IdentityHashMap<CornerPoint2D, Integer>();
+        for (PolygonDeformable polygon : polygons) {
+            for (CornerPoint2D corner : polygon.getCorners()) {
+                if (!indices.containsKey(corner)) {
+                    indices.put(corner, indices.size());
+                }
+            }
+        }
+        corners = new CornerPoint2D[indices.size()];
+        kinds = new byte[indices.size()];
+        for (CornerPoint2D corner : indices.keySet()) {
+            int index = indices.get(corner);
+            corners[index] = corner;
+            kinds[index] = kindOf(corner);
+        }
+        return indices;
+    }
+
+    private static byte kindOf(CornerPoint2D corner) {
+        switch (corner.getKind()) {
+            case movable:
+                return KIND_MOVABLE;
+            case lineSlider:
+                return KIND_LINESLIDER;
+            default:
+                return KIND_IMMOVABLE;
+        }
+    }
+
+    private long quantise(double value) {
+        return Math.round(value * inversePrecision);
+    }
+
+    private int writeDelta(int index, long value) throws IOException {
+        writeZigzag(value - previous[index]);
+        previous[index] = value;
+        return index + 1;
+    }
+
+    private void writeZigzag(long value) throws IOException {
+        writeVarint((value << 1) ^ (value >> 63));
+    }
+
+    private void writeVarint(long value) throws IOException {
+        ensureRemaining(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private void ensureRemaining(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+}
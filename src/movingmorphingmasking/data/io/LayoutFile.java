@@ -0,0 +1,145 @@
+package movingmorphingmasking.data.io;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import kn.uni.voronoitreemap.j2d.PolygonSimple;
+import movingmorphingmasking.data.topology.maskingpseudoregionfactory.PseudoRegionJob;
+
+/**
+ * Reads and writes layouts of a pseudo region tesselation as text files.
+ * <p>
+ * Every line holds one polygon, a keyword followed by the coordinates
+ * <code>x1 y1 x2 y2 ...</code> separated by white space. Empty lines and
+ * lines starting with <code>#</code> are ignored:
+ * <pre>
+ * base   x1 y1 ...   the base polygon, exactly once
+ * pseudo x1 y1 ...   a polygon of the pseudo region tesselation
+ * cell   x1 y1 ...   a polygon of the tesselation
+ * </pre>
+ *
+ * @author julia schueler
+ */
+public class LayoutFile {
+
+    public static final String SUFFIX = ".layout";
+    public static final String BASE = "base";
+    public static final String PSEUDO = "pseudo";
+    public static final String CELL = "cell";
+
+    /**
+     * Reads the layout of a specific file as a job named like the file.
+     *
+     * @param file layout file.
+     * @return job of the layout.
+     * @throws IOException if the file cannot be read or is malformed.
+     */
+    public static PseudoRegionJob read(Path file) throws IOException {
+        PolygonSimple basePolygon = null;
+        List<PolygonSimple> pseudoRegions = new ArrayList<PolygonSimple>();
+        List<PolygonSimple> tesselation = new ArrayList<PolygonSimple>();
+        BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        try {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] tokens = line.split("\\s+");
+                PolygonSimple polygon = parsePolygon(tokens, file, lineNumber);
+                if (BASE.equals(tokens[0])) {
+                    if (basePolygon != null) {
+                        throw new IOException(file + ":" + lineNumber + ": second base polygon");
+                    }
+                    basePolygon = polygon;
+                } else if (PSEUDO.equals(tokens[0])) {
+                    pseudoRegions.add(polygon);
+                } else if (CELL.equals(tokens[0])) {
+                    tesselation.add(polygon);
+                } else {
+                    throw new IOException(file + ":" + lineNumber + ": unknown keyword " + tokens[0]);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        if (basePolygon == null) {
+            throw new IOException(file + ": no base polygon");
+        }
+        return new PseudoRegionJob(getName(file), basePolygon, pseudoRegions, tesselation);
+    }
+
+    /**
+     * Writes a specific layout into a file.
+     *
+     * @param file layout file.
+     * @param basePolygon base polygon.
+     * @param pseudoRegionTesselation pseudo region tesselation.
+     * @param tesselation tesselation.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void write(Path file, PolygonSimple basePolygon, List<PolygonSimple> pseudoRegionTesselation,
+            List<PolygonSimple> tesselation) throws IOException {
+        BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        try {
+            writePolygon(writer, BASE, basePolygon);
+            for (PolygonSimple polygon : pseudoRegionTesselation) {
+                writePolygon(writer, PSEUDO, polygon);
+            }
+            for (PolygonSimple polygon : tesselation) {
+                writePolygon(writer, CELL, polygon);
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Returns the name of a layout file without the suffix.
+     *
+     * @param file layout file.
+     * @return name of the layout.
+     */
+    public static String getName(Path file) {
+        String name = file.getFileName().toString();
+        return name.endsWith(SUFFIX) ? name.substring(0, name.length() - SUFFIX.length()) : name;
+    }
+
+    private static PolygonSimple parsePolygon(String[] tokens, Path file, int lineNumber) throws IOException {
+        if (tokens.length % 2 == 0 || tokens.length < 7) {
+            throw new IOException(file + ":" + lineNumber + ": expected at least 3 coordinate pairs");
+        }
+        int n = (tokens.length - 1) / 2;
+        double[] xPoints = new double[n];
+        double[] yPoints = new double[n];
+        try {
+            for (int i = 0; i < n; i++) {
+                xPoints[i] = Double.parseDouble(tokens[1 + 2 * i]);
+                yPoints[i] = Double.parseDouble(tokens[2 + 2 * i]);
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException(file + ":" + lineNumber + ": " + e.getMessage(), e);
+        }
+        return new PolygonSimple(xPoints, yPoints);
+    }
+
+    private static void writePolygon(BufferedWriter writer, String keyword, PolygonSimple polygon)
+            throws IOException {
+        double[] xPoints = polygon.getXPoints();
+        double[] yPoints = polygon.getYPoints();
+        StringBuilder line = new StringBuilder(keyword);
+        for (int i = 0; i < xPoints.length; i++) {
+            line.append(' ').append(xPoints[i]).append(' ').append(yPoints[i]);
+        }
+        writer.write(line.toString());
+        writer.newLine();
+    }
+}
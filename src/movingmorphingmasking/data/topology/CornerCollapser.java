@@ -0,0 +1,278 @@
+package movingmorphingmasking.data.topology;
+
+import java.awt.geom.Line2D;
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Simplifies the topology of a tesselation of
+ * <code>PolygonDeformable</code>s by collapsing redundant corners.
+ * <p>
+ * A corner is redundant, if it adds no degrees of freedom to its polygon: it
+ * is not a
+ * <code>CornerPoint2D.Movable</code>, it belongs to exactly one polygon, it
+ * has exactly two incident corners and it stays on one straight line with both
+ * of its neighbors whatever location the neighbors get (
+ * <code>CornerPoint2D.Immovable</code>s on this line or
+ * <code>CornerPoint2D.LineSlider</code>s of this line). Removing such a corner
+ * does not change the shape of its polygon, and since no other polygon
+ * contains it the tesselation stays watertight.
+ * <p>
+ * The collapser remembers the original rings and the position of every
+ * collapsed corner between its remaining neighbors, so that the original
+ * vertices can be restored.
+ *
+ * @author julia schueler
+ */
+public class CornerCollapser {
+
+    private static final double EPSILON = 1e-9;
+    private final IdentityHashMap<PolygonDeformable, CornerPoint2D[]> originalRings;
+    private final IdentityHashMap<CornerPoint2D, CollapsedCorner> collapsedCorners;
+
+    /**
+     * The
+     * <code>CollapsedCorner</code> class holds the remaining neighbors of a
+     * collapsed corner and its relative position between them.
+     */
+    public static class CollapsedCorner {
+
+        private final CornerPoint2D corner;
+        private final CornerPoint2D start;
+        private final CornerPoint2D end;
+        private final double parameter;
+
+        private CollapsedCorner(CornerPoint2D corner, CornerPoint2D start, CornerPoint2D end) {
+            this.corner = corner;
+            this.start = start;
+            this.end = end;
+            double length = start.distance(end);
+            this.parameter = length == 0 ? 0 : start.distance(corner) / length;
+        }
+
+        /**
+         * Returns the collapsed corner.
+         *
+         * @return collapsed corner.
+         */
+        public CornerPoint2D getCorner() {
+            return corner;
+        }
+
+        /**
+         * Returns the remaining corner before the collapsed corner.
+         *
+         * @return start corner.
+         */
+        public CornerPoint2D getStart() {
+            return start;
+        }
+
+        /**
+         * Returns the remaining corner after the collapsed corner.
+         *
+         * @return end corner.
+         */
+        public CornerPoint2D getEnd() {
+            return end;
+        }
+
+        /**
+         * Returns the relative position of the collapsed corner between start
+         * and end corner at the time of the collapse.
+         *
+         * @return parameter in [0, 1].
+         */
+        public double getParameter() {
+            return parameter;
+        }
+
+        /**
+         * Returns the location of the collapsed corner relative to the current
+         * locations of start and end corner.
+         *
+         * @return location of the collapsed corner.
+         */
+        public Point2D getLocation() {
+            double x = start.getX() + parameter * (end.getX() - start.getX());
+            double y = start.getY() + parameter * (end.getY() - start.getY());
+            return new Point2D.Double(x, y);
+        }
+    }
+
+    /**
+     * Constructor for a collapser without any collapsed corners.
+     */
+    public CornerCollapser() {
+        this.originalRings = new IdentityHashMap<PolygonDeformable, CornerPoint2D[]>();
+        this.collapsedCorners = new IdentityHashMap<CornerPoint2D, CollapsedCorner>();
+    }
+
+    /**
+     * Collapses all redundant corners of a tesselation. Each ring keeps at
+     * least three corners.
+     *
+     * @param polygons tesselation of <code>PolygonDeformable</code>.
+     * @return count of collapsed corners.
+     */
+    public int collapse(List<PolygonDeformable> polygons) {
+        int count = 0;
+        for (PolygonDeformable polygon : polygons) {
+            count += collapse(polygon);
+        }
+        return count;
+    }
+
+    /**
+     * Collapses all redundant corners of a specific polygon. The ring keeps at
+     * least three corners.
+     *
+     * @param polygon specific polygon.
+     * @return count of collapsed corners.
+     */
+    public int collapse(PolygonDeformable polygon) {
+        CornerPoint2D[] corners = polygon.getCorners();
+        int n = corners.length;
+        boolean[] redundant = new boolean[n];
+        int keptCount = n;
+        for (int i = 0; i < n; i++) {
+            redundant[i] = isRedundant(corners[(i + n - 1) % n], corners[i], corners[(i + 1) % n]);
+            if (redundant[i]) {
+                keptCount--;
+            }
+        }
+        if (keptCount == n || keptCount < 3) {
+            return 0;
+        }
+
+        CornerPoint2D[] keptCorners = new CornerPoint2D[keptCount];
+        int k = 0;
+        for (int i = 0; i < n; i++) {
+            if (!redundant[i]) {
+                keptCorners[k++] = corners[i];
+            } else {
+                CornerPoint2D start = corners[previousKept(redundant, i)];
+                CornerPoint2D end = corners[nextKept(redundant, i)];
+                collapsedCorners.put(corners[i], new CollapsedCorner(corners[i], start, end));
+            }
+        }
+        if (!originalRings.containsKey(polygon)) {
+            originalRings.put(polygon, corners);
+        }
+        polygon.replaceCorners(keptCorners);
+        return n - keptCount;
+    }
+
+    /**
+     * Returns the original ring of a specific polygon before any collapse.
+     *
+     * @param polygon specific polygon.
+     * @return original corners of the polygon.
+     */
+    public CornerPoint2D[] getOriginalCorners(PolygonDeformable polygon) {
+        CornerPoint2D[] corners = originalRings.get(polygon);
+        return corners == null ? polygon.getCorners() : corners;
+    }
+
+    /**
+     * Returns the collapse details of a specific corner, or <code>null</code>
+     * if the corner was not collapsed.
+     *
+     * @param corner specific corner.
+     * @return collapsed corner or <code>null</code>.
+     */
+    public CollapsedCorner getCollapsedCorner(CornerPoint2D corner) {
+        return collapsedCorners.get(corner);
+    }
+
+    /**
+     * Returns all collapsed corners.
+     *
+     * @return collapsed corners.
+     */
+    public List<CollapsedCorner> getCollapsedCorners() {
+        return new ArrayList<CollapsedCorner>(collapsedCorners.values());
+    }
+
+    /**
+     * Returns the location of an original vertex. A collapsed corner is
+     * located relative to its remaining neighbors, every other corner at its
+     * own location.
+     *
+     * @param corner original corner.
+     * @return location of the original vertex.
+     */
+    public Point2D getOriginalLocation(CornerPoint2D corner) {
+        CollapsedCorner collapsedCorner = collapsedCorners.get(corner);
+        if (collapsedCorner == null) {
+            return new Point2D.Double(corner.getX(), corner.getY());
+        }
+        return collapsedCorner.getLocation();
+    }
+
+    private static int previousKept(boolean[] redundant, int i) {
+        int n = redundant.length;
+        int j = (i + n - 1) % n;
+        while (redundant[j]) {
+            j = (j + n - 1) % n;
+        }
+        return j;
+    }
+
+    private static int nextKept(boolean[] redundant, int i) {
+        int n = redundant.length;
+        int j = (i + 1) % n;
+        while (redundant[j]) {
+            j = (j + 1) % n;
+        }
+        return j;
+    }
+
+    private static boolean isRedundant(CornerPoint2D previous, CornerPoint2D corner, CornerPoint2D next) {
+        if (corner instanceof CornerPoint2D.Movable) {
+            return false;
+        }
+        if (corner.getAssociatedPolygons().size() != 1 || corner.getIncidentCorners().size() != 2) {
+            return false;
+        }
+        Line2D line = getSupportLine(corner);
+        if (line == null) {
+            line = getSupportLine(previous);
+        }
+        if (line == null) {
+            line = getSupportLine(next);
+        }
+        if (line == null) {
+            line = new Line2D.Double(previous, next);
+        }
+        return isPinnedToLine(corner, line) && isPinnedToLine(previous, line) && isPinnedToLine(next, line);
+    }
+
+    private static Line2D getSupportLine(CornerPoint2D corner) {
+        if (corner instanceof CornerPoint2D.LineSlider) {
+            return ((CornerPoint2D.LineSlider) corner).getLine();
+        }
+        return null;
+    }
+
+    private static boolean isPinnedToLine(CornerPoint2D corner, Line2D line) {
+        if (corner instanceof CornerPoint2D.Immovable) {
+            return isOnLine(line, corner.getX(), corner.getY());
+        } else if (corner instanceof CornerPoint2D.LineSlider) {
+            Line2D sliderLine = ((CornerPoint2D.LineSlider) corner).getLine();
+            return isOnLine(line, sliderLine.getX1(), sliderLine.getY1())
+                    && isOnLine(line, sliderLine.getX2(), sliderLine.getY2());
+        }
+        return false;
+    }
+
+    private static boolean isOnLine(Line2D line, double x, double y) {
+        double lengthSq = line.getP1().distanceSq(line.getP2());
+        if (lengthSq == 0) {
+            return false;
+        }
+        return line.ptLineDistSq(x, y) <= EPSILON * EPSILON * lengthSq;
+    }
+}
@@ -0,0 +1,214 @@
+package movingmorphingmasking.data.topology;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Distance-2 colouring of the movable corners of a tesselation of
+ * <code>PolygonDeformable</code>s.
+ * <p>
+ * Two movables get different colours if they are incident or share an
+ * associated polygon, that is if the update of one of them may read the
+ * location of the other one. All movables of one colour class can therefore
+ * be updated in parallel without locks, and the classes one after the other
+ * give a Gauss-Seidel like sweep. The colouring is greedy in the order of the
+ * <code>CornerIndex</code>.
+ * <p>
+ * After an edit of the topology, e.g. by a <code>CornerCollapser</code>, the
+ * colouring is repaired incrementally with the corners whose incident corners
+ * or associated polygons changed.
+ *
+ * @author julia schueler
+ */
+public class CornerColouring {
+
+    private final Map<CornerPoint2D, Integer> colours;
+    private int[] forbidden;
+    private int stamp;
+    private CornerPoint2D.Movable[][] classes;
+
+    /**
+     * Constructor for the colouring of a specific tesselation.
+     *
+     * @param polygons tesselation of <code>PolygonDeformable</code>.
+     */
+    public CornerColouring(List<PolygonDeformable> polygons) {
+        this(new CornerIndex(polygons));
+    }
+
+    /**
+     * Constructor for the colouring of the movables of a specific index.
+     *
+     * @param index index of a tesselation.
+     */
+    public CornerColouring(CornerIndex index) {
+        CornerPoint2D.Movable[] movables = index.getMovables();
+        this.colours = new IdentityHashMap<CornerPoint2D, Integer>(2 * movables.length);
+        this.forbidden = new int[16];
+        for (CornerPoint2D.Movable movable : movables) {
+            colours.put(movable, smallestFreeColour(movable));
+        }
+    }
+
+    /**
+     * Returns the count of colours.
+     *
+     * @return count of colour classes.
+     */
+    public int getColourCount() {
+        return getClasses().length;
+    }
+
+    /**
+     * Returns the movables of a specific colour. The returned array must not
+     * be changed.
+     *
+     * @param colour specific colour.
+     * @return colour class.
+     */
+    public CornerPoint2D.Movable[] getColourClass(int colour) {
+        return getClasses()[colour];
+    }
+
+    /**
+     * Returns the colour of a specific corner.
+     *
+     * @param corner specific corner.
+     * @return colour or -1 if the corner is no coloured movable.
+     */
+    public int getColour(CornerPoint2D corner) {
+        Integer colour = colours.get(corner);
+        return colour == null ? -1 : colour;
+    }
+
+    /**
+     * Repairs the colouring after an edit of the topology. Every changed
+     * movable that is not part of the tesselation anymore is removed, every
+     * new one is coloured and every one with the colour of a neighbor gets a
+     * new colour.
+     *
+     * @param changed corners whose incident corners or associated polygons
+     * changed.
+     * @return count of changed colours.
+     */
+    public int repair(Collection<? extends CornerPoint2D> changed) {
+        int recoloured = 0;
+        for (CornerPoint2D corner : changed) {
+            if (corner.getKind() != CornerPoint2D.Kind.movable) {
+                continue;
+            }
+            Integer colour = colours.get(corner);
+            if (corner.getAssociatedPolygons().isEmpty()) {
+                if (colours.remove(corner) != null) {
+                    recoloured++;
+                }
+            } else if (colour == null || hasNeighborOfColour(corner, colour)) {
+                colours.put(corner, smallestFreeColour(corner));
+                recoloured++;
+            }
+        }
+        if (recoloured > 0) {
+            classes = null;
+        }
+        return recoloured;
+    }
+
+    /**
+     * Returns if no two neighbored movables have the same colour.
+     *
+     * @return <tt>true</tt> if the colouring is valid.
+     */
+    public boolean isValid() {
+        for (Map.Entry<CornerPoint2D, Integer> entry : colours.entrySet()) {
+            if (hasNeighborOfColour(entry.getKey(), entry.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private CornerPoint2D.Movable[][] getClasses() {
+        if (classes == null) {
+            List<List<CornerPoint2D.Movable>> lists = new ArrayList<List<CornerPoint2D.Movable>>();
+            for (Map.Entry<CornerPoint2D, Integer> entry : colours.entrySet()) {
+                int colour = entry.getValue();
+                while (lists.size() <= colour) {
+                    lists.add(new ArrayList<CornerPoint2D.Movable>());
+                }
+                lists.get(colour).add((CornerPoint2D.Movable) entry.getKey());
+            }
+            int count = lists.size();
+            while (count > 0 && lists.get(count - 1).isEmpty()) {
+                count--;
+            }
+            classes = new CornerPoint2D.Movable[count][];
+            for (int c = 0; c < count; c++) {
+                List<CornerPoint2D.Movable> list = lists.get(c);
+                classes[c] = list.toArray(new CornerPoint2D.Movable[list.size()]);
+            }
+        }
+        return classes;
+    }
+
+    private int smallestFreeColour(CornerPoint2D corner) {
+        stamp++;
+        if (stamp == Integer.MAX_VALUE) {
+            Arrays.fill(forbidden, 0);
+            stamp = 1;
+        }
+        for (PolygonDeformable polygon : corner.getAssociatedPolygons()) {
+            for (CornerPoint2D neighbor : polygon.getCorners()) {
+                forbid(corner, neighbor);
+            }
+        }
+        for (CornerPoint2D neighbor : corner.getIncidentCorners()) {
+            forbid(corner, neighbor);
+        }
+        int colour = 0;
+        while (colour < forbidden.length && forbidden[colour] == stamp) {
+            colour++;
+        }
+        return colour;
+    }
+
+    private void forbid(CornerPoint2D corner, CornerPoint2D neighbor) {
+        if (neighbor == corner) {
+            return;
+        }
+        Integer colour = colours.get(neighbor);
+        if (colour != null) {
+            if (colour >= forbidden.length) {
+                forbidden = Arrays.copyOf(forbidden, Math.max(2 * forbidden.length, colour + 1));
+            }
+            forbidden[colour] = stamp;
+        }
+    }
+
+    private boolean hasNeighborOfColour(CornerPoint2D corner, int colour) {
+        for (PolygonDeformable polygon : corner.getAssociatedPolygons()) {
+            for (CornerPoint2D neighbor : polygon.getCorners()) {
+                if (hasColour(corner, neighbor, colour)) {
+                    return true;
+                }
+            }
+        }
+        for (CornerPoint2D neighbor : corner.getIncidentCorners()) {
+            if (hasColour(corner, neighbor, colour)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasColour(CornerPoint2D corner, CornerPoint2D neighbor, int colour) {
+        if (neighbor == corner) {
+            return false;
+        }
+        Integer neighborColour = colours.get(neighbor);
+        return neighborColour != null && neighborColour == colour;
+    }
+}
@@ -0,0 +1,194 @@
+package movingmorphingmasking.data.topology;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Index of all corners of a tesselation of <code>PolygonDeformable</code>s,
+ * partitioned by their kind.
+ * <p>
+ * The corners are numbered in contiguous ranges: first the movables, then the
+ * line sliders and at last the immovables, each range in the order of the
+ * first appearance of its corners in the rings. Besides the partitioned array
+ * the index holds one array per kind, so a per-frame update can iterate only
+ * over the corners that can move, and every call site in such a loop sees a
+ * single receiver class.
+ *
+ * @author julia schueler
+ */
+public class CornerIndex {
+
+    private final CornerPoint2D[] corners;
+    private final CornerPoint2D.Movable[] movables;
+    private final CornerPoint2D.LineSlider[] lineSliders;
+    private final CornerPoint2D.Immovable[] immovables;
+    private final IdentityHashMap<CornerPoint2D, Integer> indices;
+
+    /**
+     * Constructor for the index of a specific tesselation.
+     *
+     * @param polygons tesselation of <code>PolygonDeformable</code>.
+     */
+    public CornerIndex(List<PolygonDeformable> polygons) {
+        IdentityHashMap<CornerPoint2D, Boolean> seen = new IdentityHashMap<CornerPoint2D, Boolean>();
+        List<CornerPoint2D.Movable> movableList = new ArrayList<CornerPoint2D.Movable>();
+        List<CornerPoint2D.LineSlider> lineSliderList = new ArrayList<CornerPoint2D.LineSlider>();
+        List<CornerPoint2D.Immovable> immovableList = new ArrayList<CornerPoint2D.Immovable>();
+        for (PolygonDeformable polygon : polygons) {
+            for (CornerPoint2D corner : polygon.getCorners()) {
+                if (seen.put(corner, Boolean.TRUE) != null) {
+                    continue;
+                }
+                switch (corner.getKind()) {
+                    case movable:
+                        movableList.add((CornerPoint2D.Movable) corner);
+                        break;
+                    case lineSlider:
+                        lineSliderList.add((CornerPoint2D.LineSlider) corner);
+                        break;
+                    default:
+                        immovableList.add((CornerPoint2D.Immovable) corner);
+                        break;
+                }
+            }
+        }
+        movables = movableList.toArray(new CornerPoint2D.Movable[movableList.size()]);
+        lineSliders = lineSliderList.toArray(new CornerPoint2D.LineSlider[lineSliderList.size()]);
+        immovables = immovableList.toArray(new CornerPoint2D.Immovable[immovableList.size()]);
+
+        corners = new CornerPoint2D[movables.length + lineSliders.length + immovables.length];
+        System.arraycopy(movables, 0, corners, 0, movables.length);
+        System.arraycopy(lineSliders, 0, corners, movables.length, lineSliders.length);
+        System.arraycopy(immovables, 0, corners, movables.length + lineSliders.length, immovables.length);
+        indices = new IdentityHashMap<CornerPoint2D, Integer>(2 * corners.length);
+        for (int i = 0; i < corners.length; i++) {
+            indices.put(corners[i], i);
+        }
+    }
+
+    /**
+     * Returns all corners in the partitioned numbering. The returned array
+     * must not be changed.
+     *
+     * @return corners of the tesselation.
+     */
+    public CornerPoint2D[] getCorners() {
+        return corners;
+    }
+
+    /**
+     * Returns the movables, the corners [0, getLineSliderStart()). The
+     * returned array must not be changed.
+     *
+     * @return movables of the tesselation.
+     */
+    public CornerPoint2D.Movable[] getMovables() {
+        return movables;
+    }
+
+    /**
+     * Returns the line sliders, the corners
+     * [getLineSliderStart(), getImmovableStart()). The returned array must not
+     * be changed.
+     *
+     * @return line sliders of the tesselation.
+     */
+    public CornerPoint2D.LineSlider[] getLineSliders() {
+        return lineSliders;
+    }
+
+    /**
+     * Returns the immovables, the corners
+     * [getImmovableStart(), getCornerCount()). The returned array must not be
+     * changed.
+     *
+     * @return immovables of the tesselation.
+     */
+    public CornerPoint2D.Immovable[] getImmovables() {
+        return immovables;
+    }
+
+    /**
+     * Returns the count of corners.
+     *
+     * @return count of corners.
+     */
+    public int getCornerCount() {
+        return corners.length;
+    }
+
+    /**
+     * Returns the index of the first line slider, that is also the count of
+     * movables.
+     *
+     * @return index of the first line slider.
+     */
+    public int getLineSliderStart() {
+        return movables.length;
+    }
+
+    /**
+     * Returns the index of the first immovable, that is also the count of
+     * corners that can move.
+     *
+     * @return index of the first immovable.
+     */
+    public int getImmovableStart() {
+        return movables.length + lineSliders.length;
+    }
+
+    /**
+     * Returns the corner of a specific index.
+     *
+     * @param index index of the corner.
+     * @return corner.
+     */
+    public CornerPoint2D getCorner(int index) {
+        return corners[index];
+    }
+
+    /**
+     * Returns the index of a specific corner, or -1 if the corner is not part
+     * of the tesselation.
+     *
+     * @param corner specific corner.
+     * @return index of the corner.
+     */
+    public int indexOf(CornerPoint2D corner) {
+        Integer index = indices.get(corner);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Sets the locations of all corners that can move to the closest possible
+     * locations of the specified coordinates. The immovables are skipped.
+     *
+     * @param x desired X coordinates, indexed by the corner index.
+     * @param y desired Y coordinates, indexed by the corner index.
+     */
+    public void setLocations(double[] x, double[] y) {
+        CornerPoint2D.Movable[] movables = this.movables;
+        for (int i = 0; i < movables.length; i++) {
+            movables[i].setLocation(x[i], y[i]);
+        }
+        CornerPoint2D.LineSlider[] lineSliders = this.lineSliders;
+        int offset = movables.length;
+        for (int i = 0; i < lineSliders.length; i++) {
+            lineSliders[i].setLocation(x[offset + i], y[offset + i]);
+        }
+    }
+
+    /**
+     * Copies the current locations of all corners.
+     *
+     * @param x array for the X coordinates, indexed by the corner index.
+     * @param y array for the Y coordinates, indexed by the corner index.
+     */
+    public void getLocations(double[] x, double[] y) {
+        for (int i = 0; i < corners.length; i++) {
+            x[i] = corners[i].getX();
+            y[i] = corners[i].getY();
+        }
+    }
+}
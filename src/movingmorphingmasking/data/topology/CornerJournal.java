@@ -0,0 +1,127 @@
+package movingmorphingmasking.data.topology;
+
+import java.util.Arrays;
+
+/**
+ * Checkpoints and rollback of the locations of
+ * <code>CornerPoint2D</code>s.
+ * <p>
+ * All location changes have to be made through
+ * {@link #setLocation(CornerPoint2D, double, double)}. While a checkpoint is
+ * open, every change is recorded with the old location in a compact undo
+ * journal. Taking a checkpoint costs O(1) and a rollback is proportional to
+ * the count of changes since the checkpoint. A rollback restores the old
+ * coordinates exactly, without the projection of a line slider.
+ *
+ * @author julia schueler
+ */
+public class CornerJournal {
+
+    private CornerPoint2D[] corners;
+    private double[] oldX;
+    private double[] oldY;
+    private int size;
+    private int[] checkpoints;
+    private int checkpointCount;
+
+    /**
+     * Constructor for an empty journal.
+     */
+    public CornerJournal() {
+        this.corners = new CornerPoint2D[64];
+        this.oldX = new double[64];
+        this.oldY = new double[64];
+        this.checkpoints = new int[8];
+    }
+
+    /**
+     * Sets the location of a specific corner to the closest possible location
+     * of the specified coordinates and records the old location if a
+     * checkpoint is open.
+     *
+     * @param corner specific corner.
+     * @param x the desired X coordinate of the corner.
+     * @param y the desired Y coordinate of the corner.
+     */
+    public void setLocation(CornerPoint2D corner, double x, double y) {
+        if (checkpointCount > 0 && corner.getKind() != CornerPoint2D.Kind.immovable) {
+            if (size == corners.length) {
+                corners = Arrays.copyOf(corners, 2 * size);
+                oldX = Arrays.copyOf(oldX, 2 * size);
+                oldY = Arrays.copyOf(oldY, 2 * size);
+            }
+            corners[size] = corner;
+            oldX[size] = corner.x;
+            oldY[size] = corner.y;
+            size++;
+        }
+        corner.setLocation(x, y);
+    }
+
+    /**
+     * Opens a checkpoint. Until it is released, all location changes are
+     * recorded. Checkpoints are nested: a checkpoint taken while another one
+     * is open is closed with the outer one.
+     *
+     * @return checkpoint for {@link #rollback(int)} and {@link #release(int)}.
+     */
+    public int checkpoint() {
+        if (checkpointCount == checkpoints.length) {
+            checkpoints = Arrays.copyOf(checkpoints, 2 * checkpointCount);
+        }
+        checkpoints[checkpointCount] = size;
+        return checkpointCount++;
+    }
+
+    /**
+     * Restores the locations of a specific open checkpoint. The checkpoint
+     * stays open, all checkpoints taken after it are closed.
+     *
+     * @param checkpoint open checkpoint.
+     * @return count of restored changes.
+     */
+    public int rollback(int checkpoint) {
+        checkCheckpoint(checkpoint);
+        int position = checkpoints[checkpoint];
+        int restored = size - position;
+        for (int i = size - 1; i >= position; i--) {
+            corners[i].x = oldX[i];
+            corners[i].y = oldY[i];
+            corners[i] = null;
+        }
+        size = position;
+        checkpointCount = checkpoint + 1;
+        return restored;
+    }
+
+    /**
+     * Releases a specific open checkpoint and all checkpoints taken after it
+     * and keeps all changes since it. The journal is cleared when the last
+     * open checkpoint is released.
+     *
+     * @param checkpoint open checkpoint.
+     */
+    public void release(int checkpoint) {
+        checkCheckpoint(checkpoint);
+        checkpointCount = checkpoint;
+        if (checkpointCount == 0) {
+            Arrays.fill(corners, 0, size, null);
+            size = 0;
+        }
+    }
+
+    /**
+     * Returns the count of recorded changes.
+     *
+     * @return size of the undo journal.
+     */
+    public int size() {
+        return size;
+    }
+
+    private void checkCheckpoint(int checkpoint) {
+        if (checkpoint < 0 || checkpoint >= checkpointCount) {
+            throw new IllegalStateException("no open checkpoint: " + checkpoint);
+        }
+    }
+}
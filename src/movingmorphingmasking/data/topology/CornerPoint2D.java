@@ -22,6 +22,15 @@ public abstract class CornerPoint2D extends Point2D {
     public static final String IS_IMMOVABLE = "immovable";
     public static final String IS_LINESLIDER = "line slider";
 
+    /**
+     * The kinds of
+     * <code>CornerPoint2D</code>s, one for every subclass.
+     */
+    public static enum Kind {
+
+        immovable, movable, lineSlider
+    };
+
     /**
      * The
      * <code>Immovable</code> class defines a
@@ -59,6 +68,11 @@ public abstract class CornerPoint2D extends Point2D {
         public String getInstance() {
             return IS_IMMOVABLE;
         }
+
+        @Override
+        public Kind getKind() {
+            return Kind.immovable;
+        }
     }
 
     /**
@@ -100,6 +114,11 @@ public abstract class CornerPoint2D extends Point2D {
         public String getInstance() {
             return IS_MOVABLE;
         }
+
+        @Override
+        public Kind getKind() {
+            return Kind.movable;
+        }
     }
 
     /**
@@ -111,10 +130,8 @@ public abstract class CornerPoint2D extends Point2D {
      */
     public static class LineSlider extends CornerPoint2D {
 
-        private final Line2D.Double line2D;
-        private final double dx;
-        private final double dy;
-        private final double lineLength;
+        private final SegmentTable segments;
+        private final int segment;
 
         /**
          * Constructs and initializes a
@@ -124,17 +141,38 @@ public abstract class CornerPoint2D extends Point2D {
          * constructed <code>CornerPoint2D</code>
          * @param y the Y coordinate of the newly * * * * *
          * constructed <code>CornerPoint2D</code>
-         * @param line2D the line the point has always located on.
+         * @param line2D the line the point has always located on, it is
+         * interned in the shared <code>SegmentTable</code>.
          */
         public LineSlider(double x, double y, Line2D.Double line2D) {
             super(x, y);
             if (line2D == null) {
                 line2D = new Line2D.Double(0, 0, 0, 0);
             }
-            this.line2D = new Line2D.Double(line2D.getX1(), line2D.getY1(), line2D.getX2(), line2D.getY2());
-            dx = this.line2D.getX2() - this.line2D.getX1();
-            dy = this.line2D.getY2() - this.line2D.getY1();
-            lineLength = Math.sqrt(dx * dx + dy * dy);
+            this.segments = SegmentTable.getSharedTable();
+            this.segment = segments.intern(line2D.getX1(), line2D.getY1(), line2D.getX2(), line2D.getY2());
+        }
+
+        /**
+         * Constructs and initializes a
+         * <code>CornerPoint2D</code> with the specified coordinates on a
+         * segment of a shared <code>SegmentTable</code>.
+         *
+         * @param x the X coordinate of the newly
+         * constructed <code>CornerPoint2D</code>
+         * @param y the Y coordinate of the newly
+         * constructed <code>CornerPoint2D</code>
+         * @param segments table of the segment.
+         * @param segment index of the segment the point has always located
+         * on.
+         */
+        public LineSlider(double x, double y, SegmentTable segments, int segment) {
+            super(x, y);
+            if (segment < 0 || segment >= segments.getCount()) {
+                throw new IllegalArgumentException("segment out of range: " + segment);
+            }
+            this.segments = segments;
+            this.segment = segment;
         }
 
         /**
@@ -148,29 +186,34 @@ public abstract class CornerPoint2D extends Point2D {
          */
         @Override
         protected void setClosestToDesiredLocation(double x, double y) {
+            double lineLength = segments.getLength(segment);
             if (lineLength == 0) {
                 return;
             }
-            double distToLine = line2D.ptLineDist(x, y);
-            double dx = -this.dy * distToLine / lineLength;
-            double dy = this.dx * distToLine / lineLength;
-
-            int relativeCCW = line2D.relativeCCW(x, y);
+            double x1 = segments.getX1(segment);
+            double y1 = segments.getY1(segment);
+            double x2 = segments.getX2(segment);
+            double y2 = segments.getY2(segment);
+            double distToLine = Line2D.ptLineDist(x1, y1, x2, y2, x, y);
+            double dx = -segments.getDy(segment) * distToLine / lineLength;
+            double dy = segments.getDx(segment) * distToLine / lineLength;
+
+            int relativeCCW = Line2D.relativeCCW(x1, y1, x2, y2, x, y);
             double nx = x + dx * relativeCCW;
             double ny = y + dy * relativeCCW;
 
             //check if point(nx, ny) is on the line.
-            double distToP1 = line2D.getP1().distance(nx, ny);
-            double distToP2 = line2D.getP2().distance(nx, ny);
+            double distToP1 = Point2D.distance(x1, y1, nx, ny);
+            double distToP2 = Point2D.distance(x2, y2, nx, ny);
             if (distToP1 > lineLength || distToP2 > lineLength) {
                 if (distToP1 < distToP2) {
                     //set (nx, ny) to the startpoint
-                    nx = line2D.x1;
-                    ny = line2D.y1;
+                    nx = x1;
+                    ny = y1;
                 } else {
                     //set (nx, ny) to the end point
-                    nx = line2D.x2;
-                    ny = line2D.y2;
+                    nx = x2;
+                    ny = y2;
                 }
             }
 
@@ -179,10 +222,78 @@ public abstract class CornerPoint2D extends Point2D {
             this.y = ny;
         }
 
+        /**
+         * Returns a copy of the line the point has always located on.
+         *
+         * @return line of this.
+         */
+        public Line2D.Double getLine() {
+            return segments.getLine(segment);
+        }
+
+        /**
+         * Returns the table of the segment of this.
+         *
+         * @return segment table.
+         */
+        public SegmentTable getSegmentTable() {
+            return segments;
+        }
+
+        /**
+         * Returns the index of the segment of this in its table.
+         *
+         * @return index of the segment.
+         */
+        public int getSegment() {
+            return segment;
+        }
+
+        /**
+         * Returns the length of the line the point has always located on.
+         *
+         * @return length of the line.
+         */
+        public double getLineLength() {
+            return segments.getLength(segment);
+        }
+
+        /**
+         * Returns the position of this on its line as parameter t, where 0 is
+         * the start point and 1 the end point of the line.
+         *
+         * @return line parameter t in [0, 1].
+         */
+        public double getLineParameter() {
+            double lineLength = segments.getLength(segment);
+            if (lineLength == 0) {
+                return 0;
+            }
+            return ((x - segments.getX1(segment)) * segments.getDx(segment)
+                    + (y - segments.getY1(segment)) * segments.getDy(segment)) / (lineLength * lineLength);
+        }
+
+        /**
+         * Sets the location of this to a specific position on its line without
+         * any projection.
+         *
+         * @param t line parameter, it is clamped to [0, 1].
+         */
+        public void setLineParameter(double t) {
+            t = t < 0 ? 0 : (t > 1 ? 1 : t);
+            this.x = segments.getX1(segment) + t * segments.getDx(segment);
+            this.y = segments.getY1(segment) + t * segments.getDy(segment);
+        }
+
         @Override
         public String getInstance() {
             return IS_LINESLIDER;
         }
+
+        @Override
+        public Kind getKind() {
+            return Kind.lineSlider;
+        }
     }
     
     /**
@@ -259,12 +370,24 @@ public abstract class CornerPoint2D extends Point2D {
      * @return
      */
     public boolean addIncidentCorner(CornerPoint2D corner) {
-        if(incidentCorners.contains(corner)){
+        if (indexOf(incidentCorners, corner) >= 0) {
             return false;
         }
         return incidentCorners.add(corner);
     }
 
+    /**
+     * Removes a incident
+     * <code>CornerPoint2D</code> of this. The corner is compared by identity,
+     * not by its location.
+     *
+     * @param corner incident cornerPoint2D
+     * @return <tt>true</tt> if the corner was incident to this.
+     */
+    public boolean removeIncidentCorner(CornerPoint2D corner) {
+        return removeIdentical(incidentCorners, corner);
+    }
+
     /**
      * Returns all the associated
      * <code>PolygonDeformable</code> of this.
@@ -285,6 +408,36 @@ public abstract class CornerPoint2D extends Point2D {
         return this.associatedPolygons.add(polygon);
     }
 
+    /**
+     * Removes an associated
+     * <code>PolygonDeformable</code> of this. The polygon is compared by
+     * identity.
+     *
+     * @param polygon associated polygon.
+     * @return <tt>true</tt> if the polygon was associated to this.
+     */
+    public boolean removeAssociatedPolygon(PolygonDeformable polygon) {
+        return removeIdentical(associatedPolygons, polygon);
+    }
+
+    private static int indexOf(List<?> list, Object element) {
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i) == element) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean removeIdentical(List<?> list, Object element) {
+        int i = indexOf(list, element);
+        if (i < 0) {
+            return false;
+        }
+        list.remove(i);
+        return true;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -335,6 +488,14 @@ public abstract class CornerPoint2D extends Point2D {
      */
     public abstract String getInstance();
 
+    /**
+     * Returns the kind of this. In contrast to {@link #getInstance()} the
+     * kind can be compared by identity and used in a <code>switch</code>.
+     *
+     * @return kind of this.
+     */
+    public abstract Kind getKind();
+
     /**
      * Sets the location of this
      * <code>CornerPoint2D</code> to the closest possible location coordinates
@@ -0,0 +1,351 @@
+package movingmorphingmasking.data.topology;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Bulk evaluation of the areas of a whole tesselation of
+ * <code>PolygonDeformable</code>s.
+ * <p>
+ * The corner locations are kept in flat per-corner coordinate arrays, the
+ * rings of all polygons are concatenated into one array of corner indices. The
+ * areas are computed with the Shoelace formula (
+ * {@link PolygonDeformable#getCurrentArea}) from these arrays without modular
+ * indexing, so the quality check of a frame costs a single sequential pass over
+ * the rings. The pass can be split by polygon ranges on a
+ * <code>ForkJoinPool</code>.
+ * <p>
+ * A kernel of <code>PolygonDeformable</code>s numbers their corners with a
+ * <code>CornerIndex</code> and reads the locations of the corners that can
+ * move once per corner at the start of every pass, a corner shared by several
+ * polygons is read only once. A kernel on the arrays of a mesh (e.g.
+ * <code>MeshGeometry.createAreaKernel()</code>) computes directly from the
+ * coordinates of the mesh without any copy.
+ *
+ * @author julia schueler
+ */
+public class PolygonAreaKernel {
+
+    private static final int DEFAULT_THRESHOLD = 1024;
+    private final CornerIndex cornerIndex;
+    private final int[] ringCorners;
+    private final int[] ringOffsets;
+    private final double[] x;
+    private final double[] y;
+    private final double[] targetAreas;
+
+    /**
+     * Constructor for the kernel of a specific tesselation.
+     *
+     * @param polygons tesselation of <code>PolygonDeformable</code>.
+     */
+    public PolygonAreaKernel(List<PolygonDeformable> polygons) {
+        int n = polygons.size();
+        this.cornerIndex = new CornerIndex(polygons);
+        this.ringOffsets = new int[n + 1];
+        this.targetAreas = new double[n];
+        for (int p = 0; p < n; p++) {
+            PolygonDeformable polygon = polygons.get(p);
+            ringOffsets[p + 1] = ringOffsets[p] + polygon.getCorners().length;
+            targetAreas[p] = polygon.getTagetArea();
+        }
+        this.ringCorners = new int[ringOffsets[n]];
+        for (int p = 0; p < n; p++) {
+            CornerPoint2D[] corners = polygons.get(p).getCorners();
+            for (int i = 0; i < corners.length; i++) {
+                ringCorners[ringOffsets[p] + i] = cornerIndex.indexOf(corners[i]);
+            }
+        }
+        this.x = new double[cornerIndex.getCornerCount()];
+        this.y = new double[cornerIndex.getCornerCount()];
+        cornerIndex.getLocations(x, y);
+    }
+
+    /**
+     * Constructor for a kernel on the flat arrays of a mesh. The arrays are
+     * used, not copied, so the kernel computes the areas of the current
+     * coordinates of the mesh.
+     *
+     * @param ringOffsets offsets of the rings, the ring of polygon p is stored
+     * in [ringOffsets[p], ringOffsets[p + 1]).
+     * @param ringCorners concatenated corner indices of the rings.
+     * @param x X coordinates, indexed by the corner index.
+     * @param y Y coordinates, indexed by the corner index.
+     * @param targetAreas target areas of the polygons.
+     */
+    public PolygonAreaKernel(int[] ringOffsets, int[] ringCorners, double[] x, double[] y, double[] targetAreas) {
+        if (ringOffsets.length != targetAreas.length + 1 || x.length != y.length) {
+            throw new IllegalArgumentException("arrays of different meshes");
+        }
+        this.cornerIndex = null;
+        this.ringOffsets = ringOffsets;
+        this.ringCorners = ringCorners;
+        this.x = x;
+        this.y = y;
+        this.targetAreas = targetAreas;
+    }
+
+    /**
+     * Returns the count of polygons.
+     *
+     * @return count of polygons.
+     */
+    public int getPolygonCount() {
+        return targetAreas.length;
+    }
+
+    /**
+     * Returns the offsets of the rings in the concatenated corner indices. The
+     * ring of polygon p is stored in [offsets[p], offsets[p + 1]).
+     *
+     * @return ring offsets.
+     */
+    public int[] getRingOffsets() {
+        return ringOffsets;
+    }
+
+    /**
+     * Returns the concatenated corner indices of the rings.
+     *
+     * @return corner indices.
+     */
+    public int[] getRingCorners() {
+        return ringCorners;
+    }
+
+    /**
+     * Returns the X coordinates of the last pass, indexed by the corner index.
+     *
+     * @return X coordinates.
+     */
+    public double[] getX() {
+        return x;
+    }
+
+    /**
+     * Returns the Y coordinates of the last pass, indexed by the corner index.
+     *
+     * @return Y coordinates.
+     */
+    public double[] getY() {
+        return y;
+    }
+
+    /**
+     * Returns the index of the corners of a kernel of
+     * <code>PolygonDeformable</code>s.
+     *
+     * @return corner index or <code>null</code> for a kernel on mesh arrays.
+     */
+    public CornerIndex getCornerIndex() {
+        return cornerIndex;
+    }
+
+    /**
+     * Returns the target areas of the polygons.
+     *
+     * @return target areas.
+     */
+    public double[] getTargetAreas() {
+        return targetAreas;
+    }
+
+    /**
+     * Sets the target area of a specific polygon, e.g. to a changed target
+     * area of its <code>PolygonDeformable</code>.
+     *
+     * @param polygon index of the polygon.
+     * @param targetArea target area.
+     */
+    public void setTargetArea(int polygon, double targetArea) {
+        targetAreas[polygon] = targetArea;
+    }
+
+    /**
+     * Computes the current areas and the signed area errors (current area
+     * minus target area) of all polygons.
+     *
+     * @param areas array for the areas or <code>null</code>.
+     * @param errors array for the signed errors or <code>null</code>.
+     * @return areas of the polygons.
+     */
+    public double[] compute(double[] areas, double[] errors) {
+        areas = areas == null ? new double[targetAreas.length] : areas;
+        if (cornerIndex != null) {
+            readLocations(0, cornerIndex.getImmovableStart());
+        }
+        compute(0, targetAreas.length, areas, errors);
+        return areas;
+    }
+
+    /**
+     * Computes the current areas and the signed area errors of all polygons in
+     * parallel on the common <code>ForkJoinPool</code>.
+     *
+     * @param areas array for the areas or <code>null</code>.
+     * @param errors array for the signed errors or <code>null</code>.
+     * @return areas of the polygons.
+     */
+    public double[] computeParallel(double[] areas, double[] errors) {
+        return computeParallel(areas, errors, ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Computes the current areas and the signed area errors of all polygons in
+     * parallel on a specific <code>ForkJoinPool</code>.
+     *
+     * @param areas array for the areas or <code>null</code>.
+     * @param errors array for the signed errors or <code>null</code>.
+     * @param pool pool for the polygon ranges.
+     * @param threshold maximal count of polygons of a range computed in one
+     * task.
+     * @return areas of the polygons.
+     */
+    public double[] computeParallel(double[] areas, double[] errors, ForkJoinPool pool, int threshold) {
+        areas = areas == null ? new double[targetAreas.length] : areas;
+        threshold = Math.max(1, threshold);
+        if (cornerIndex != null) {
+            pool.invoke(new AreaTask(true, 0, cornerIndex.getImmovableStart(), areas, errors, threshold));
+        }
+        pool.invoke(new AreaTask(false, 0, targetAreas.length, areas, errors, threshold));
+        return areas;
+    }
+
+    /**
+     * Computes the areas of a range of polygons of flat ring-concatenated
+     * coordinates with the Shoelace formula.
+     *
+     * @param x concatenated X coordinates.
+     * @param y concatenated Y coordinates.
+     * @param ringOffsets offsets of the rings, the ring of polygon p is stored
+     * in [ringOffsets[p], ringOffsets[p + 1]).
+     * @param from first polygon of the range.
+     * @param to polygon after the range.
+     * @param areas array for the areas.
+     */
+    public static void computeAreas(double[] x, double[] y, int[] ringOffsets, int from, int to, double[] areas) {
+        for (int p = from; p < to; p++) {
+            areas[p] = ringArea(x, y, ringOffsets[p], ringOffsets[p + 1]);
+        }
+    }
+
+    /**
+     * Computes the areas of a range of polygons of flat per-corner coordinates
+     * and rings of corner indices with the Shoelace formula.
+     *
+     * @param x X coordinates, indexed by the corner index.
+     * @param y Y coordinates, indexed by the corner index.
+     * @param ringOffsets offsets of the rings, the ring of polygon p is stored
+     * in [ringOffsets[p], ringOffsets[p + 1]).
+     * @param ringCorners concatenated corner indices of the rings.
+     * @param from first polygon of the range.
+     * @param to polygon after the range.
+     * @param areas array for the areas.
+     */
+    public static void computeAreas(double[] x, double[] y, int[] ringOffsets, int[] ringCorners,
+            int from, int to, double[] areas) {
+        for (int p = from; p < to; p++) {
+            areas[p] = ringArea(x, y, ringCorners, ringOffsets[p], ringOffsets[p + 1]);
+        }
+    }
+
+    private void readLocations(int from, int to) {
+        CornerPoint2D.Movable[] movables = cornerIndex.getMovables();
+        int lineSliderStart = movables.length;
+        for (int c = from, end = Math.min(to, lineSliderStart); c < end; c++) {
+            x[c] = movables[c].getX();
+            y[c] = movables[c].getY();
+        }
+        CornerPoint2D.LineSlider[] lineSliders = cornerIndex.getLineSliders();
+        for (int c = Math.max(from, lineSliderStart); c < to; c++) {
+            x[c] = lineSliders[c - lineSliderStart].getX();
+            y[c] = lineSliders[c - lineSliderStart].getY();
+        }
+    }
+
+    private void compute(int from, int to, double[] areas, double[] errors) {
+        for (int p = from; p < to; p++) {
+            double area = ringArea(x, y, ringCorners, ringOffsets[p], ringOffsets[p + 1]);
+            areas[p] = area;
+            if (errors != null) {
+                errors[p] = area - targetAreas[p];
+            }
+        }
+    }
+
+    private static double ringArea(double[] x, double[] y, int start, int end) {
+        if (end - start < 3) {
+            return 0;
+        }
+        double sum = 0;
+        double xPrevious = x[end - 1];
+        double yPrevious = y[end - 1];
+        for (int i = start; i < end; i++) {
+            double xi = x[i];
+            double yi = y[i];
+            sum += (yPrevious + yi) * (xPrevious - xi);
+            xPrevious = xi;
+            yPrevious = yi;
+        }
+        return Math.abs(sum * 0.5);
+    }
+
+    private static double ringArea(double[] x, double[] y, int[] ringCorners, int start, int end) {
+        if (end - start < 3) {
+            return 0;
+        }
+        double sum = 0;
+        int previous = ringCorners[end - 1];
+        double xPrevious = x[previous];
+        double yPrevious = y[previous];
+        for (int i = start; i < end; i++) {
+            int corner = ringCorners[i];
+            double xi = x[corner];
+            double yi = y[corner];
+            sum += (yPrevious + yi) * (xPrevious - xi);
+            xPrevious = xi;
+            yPrevious = yi;
+        }
+        return Math.abs(sum * 0.5);
+    }
+
+    /**
+     * Task of a range of corners whose locations are read, or of a range of
+     * polygons whose areas are computed.
+     */
+    private class AreaTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+        private final boolean corners;
+        private final int from;
+        private final int to;
+        private final double[] areas;
+        private final double[] errors;
+        private final int threshold;
+
+        private AreaTask(boolean corners, int from, int to, double[] areas, double[] errors, int threshold) {
+            this.corners = corners;
+            this.from = from;
+            this.to = to;
+            this.areas = areas;
+            this.errors = errors;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= threshold) {
+                if (corners) {
+                    readLocations(from, to);
+                } else {
+                    PolygonAreaKernel.this.compute(from, to, areas, errors);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new AreaTask(corners, from, middle, areas, errors, threshold),
+                    new AreaTask(corners, middle, to, areas, errors, threshold));
+        }
+    }
+}
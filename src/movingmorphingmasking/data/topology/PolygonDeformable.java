@@ -34,6 +34,18 @@ public class PolygonDeformable {
         return targetArea;
     }
 
+    /**
+     * Sets the targetArea of this.
+     *
+     * @param targetArea the polygon should have the surface area.
+     */
+    public void setTargetArea(double targetArea) {
+        if (!(targetArea >= 0)) {
+            throw new IllegalArgumentException("targetArea must not be negative: " + targetArea);
+        }
+        this.targetArea = targetArea;
+    }
+
     /**
      * Returns the current area of the
      * <code>PolygonDeformable</code>. It uses the Shoelace formula. 2*Area =
@@ -68,6 +80,42 @@ public class PolygonDeformable {
         return corners;
     }
 
+    /**
+     * Replaces the corners of this by a subset of them. All removed corners
+     * are disconnected from this and their incident corners, the remaining
+     * corners are connected along the new ring.
+     *
+     * @param keptCorners remaining corners in ring order.
+     */
+    void replaceCorners(CornerPoint2D[] keptCorners) {
+        for (CornerPoint2D cornerPoint2D : corners) {
+            if (!contains(keptCorners, cornerPoint2D)) {
+                for (CornerPoint2D neighbor : cornerPoint2D.getIncidentCorners()) {
+                    neighbor.removeIncidentCorner(cornerPoint2D);
+                }
+                cornerPoint2D.getIncidentCorners().clear();
+                cornerPoint2D.removeAssociatedPolygon(this);
+            }
+        }
+        this.corners = keptCorners;
+        int n = corners.length;
+        for (int i = 0; i < n; i++) {
+            CornerPoint2D cornerPoint2D = corners[i];
+            CornerPoint2D neighbor = corners[(i + 1) % n];
+            cornerPoint2D.addIncidentCorner(neighbor);
+            neighbor.addIncidentCorner(cornerPoint2D);
+        }
+    }
+
+    private static boolean contains(CornerPoint2D[] corners, CornerPoint2D corner) {
+        for (CornerPoint2D cornerPoint2D : corners) {
+            if (cornerPoint2D == corner) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private void connectCornersAndPolygon() {
         int n = corners.length;
         for (int i = 0; i < corners.length; i++) {
@@ -0,0 +1,24 @@
+package movingmorphingmasking.data.topology;
+
+import kn.uni.voronoitreemap.j2d.PolygonSimple;
+
+/**
+ * Listener for a progressive transformation of a tesselation into
+ * <code>PolygonDeformable</code>s (
+ * {@link PolygonTransformator#transformatePolygonDeformables(movingmorphingmasking.data.topology.maskingpseudoregionfactory.PseudoRegionHolder, java.util.Comparator, PolygonDeformableListener)}).
+ *
+ * @author julia schueler
+ */
+public interface PolygonDeformableListener {
+
+    /**
+     * Is called as soon as a <code>PolygonDeformable</code> is created. The
+     * corners of the polygon are already connected, but corners shared with
+     * polygons that are not created yet do not know these polygons yet.
+     *
+     * @param index index of the polygon in the tesselation.
+     * @param polygonSimple polygon of the tesselation.
+     * @param polygonDeformable created polygon.
+     */
+    void polygonDeformableCreated(int index, PolygonSimple polygonSimple, PolygonDeformable polygonDeformable);
+}
@@ -0,0 +1,319 @@
+package movingmorphingmasking.data.topology;
+
+import java.awt.geom.Line2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import kn.uni.voronoitreemap.j2d.PolygonSimple;
+
+/**
+ * Level of detail simplification of a tesselation of
+ * <code>PolygonDeformable</code>s with the Douglas-Peucker algorithm.
+ * <p>
+ * The rings are split at their anchors, the corners with not exactly two
+ * incident corners (the ends of the sides shared by neighboring polygons, like
+ * the <code>PseudoRegionSide</code>s). Each chain between two anchors is
+ * simplified only once and used by all polygons that contain it, so neighboring
+ * polygons stay gap-free on every level.
+ * <p>
+ * The Douglas-Peucker significance of every chain corner is computed once, so
+ * all levels are only thresholds of the same result. A chain is computed
+ * again, when one of its corners was moved since the last request.
+ *
+ * @author julia schueler
+ */
+public class PolygonLevelOfDetail {
+
+    private final double[] tolerances;
+    private final IdentityHashMap<PolygonDeformable, ChainReference[]> rings;
+    private final HashMap<ChainKey, Chain> chains;
+
+    /**
+     * Constructor for the levels of detail of a specific tesselation.
+     *
+     * @param polygons tesselation of <code>PolygonDeformable</code>.
+     * @param tolerances ascending tolerances of the levels, the first level
+     * should be the finest one.
+     */
+    public PolygonLevelOfDetail(List<PolygonDeformable> polygons, double[] tolerances) {
+        this.tolerances = Arrays.copyOf(tolerances, tolerances.length);
+        Arrays.sort(this.tolerances);
+        this.rings = new IdentityHashMap<PolygonDeformable, ChainReference[]>();
+        this.chains = new HashMap<ChainKey, Chain>();
+        for (PolygonDeformable polygon : polygons) {
+            rings.put(polygon, splitIntoChains(polygon.getCorners()));
+        }
+    }
+
+    /**
+     * Returns the count of levels.
+     *
+     * @return count of levels.
+     */
+    public int getLevelCount() {
+        return tolerances.length;
+    }
+
+    /**
+     * Returns the tolerance of a specific level.
+     *
+     * @param level specific level.
+     * @return tolerance of the level.
+     */
+    public double getTolerance(int level) {
+        return tolerances[level];
+    }
+
+    /**
+     * Returns the count of chains shared between the rings.
+     *
+     * @return count of chains.
+     */
+    public int getChainCount() {
+        return chains.size();
+    }
+
+    /**
+     * Returns the coarsest level whose tolerance does not exceed a specific
+     * screen space error.
+     *
+     * @param unitsPerPixel size of a pixel in the units of the tesselation.
+     * @param maxPixelError allowed error in pixels.
+     * @return level for the screen space error.
+     */
+    public int getLevel(double unitsPerPixel, double maxPixelError) {
+        double maxError = unitsPerPixel * maxPixelError;
+        int level = 0;
+        for (int i = 0; i < tolerances.length; i++) {
+            if (tolerances[i] <= maxError) {
+                level = i;
+            }
+        }
+        return level;
+    }
+
+    /**
+     * Returns the simplified ring of a specific polygon on a specific level. A
+     * polygon that is smaller than the tolerance of the level might have less
+     * than three points.
+     *
+     * @param polygon polygon of the tesselation.
+     * @param level specific level.
+     * @return simplified polygon.
+     */
+    public PolygonSimple getPolygon(PolygonDeformable polygon, int level) {
+        ChainReference[] references = rings.get(polygon);
+        if (references == null) {
+            throw new IllegalArgumentException("polygon is not part of the tesselation");
+        }
+        double tolerance = tolerances[level];
+        int n = 0;
+        for (ChainReference reference : references) {
+            n += reference.chain.update().countPoints(tolerance) - 1;
+        }
+        double[] x = new double[n];
+        double[] y = new double[n];
+        int k = 0;
+        for (ChainReference reference : references) {
+            k = reference.chain.copyPoints(tolerance, reference.reversed, x, y, k);
+        }
+        return new PolygonSimple(x, y);
+    }
+
+    /**
+     * Returns the simplified rings of all polygons of the tesselation on a
+     * specific level.
+     *
+     * @param polygons polygons of the tesselation.
+     * @param level specific level.
+     * @return simplified polygons.
+     */
+    public List<PolygonSimple> getPolygons(List<PolygonDeformable> polygons, int level) {
+        List<PolygonSimple> polygonSimples = new ArrayList<PolygonSimple>(polygons.size());
+        for (PolygonDeformable polygon : polygons) {
+            polygonSimples.add(getPolygon(polygon, level));
+        }
+        return polygonSimples;
+    }
+
+    private ChainReference[] splitIntoChains(CornerPoint2D[] corners) {
+        int n = corners.length;
+        List<Integer> anchors = new ArrayList<Integer>();
+        for (int i = 0; i < n; i++) {
+            if (corners[i].getIncidentCorners().size() != 2) {
+                anchors.add(i);
+            }
+        }
+        if (anchors.size() < 2) {
+            anchors.clear();
+            anchors.add(0);
+            anchors.add(n / 2);
+        }
+        ChainReference[] references = new ChainReference[anchors.size()];
+        for (int a = 0; a < anchors.size(); a++) {
+            int start = anchors.get(a);
+            int end = anchors.get((a + 1) % anchors.size());
+            int length = (end - start + n) % n + 1;
+            CornerPoint2D[] chainCorners = new CornerPoint2D[length];
+            for (int i = 0; i < length; i++) {
+                chainCorners[i] = corners[(start + i) % n];
+            }
+            references[a] = getChainReference(chainCorners);
+        }
+        return references;
+    }
+
+    private ChainReference getChainReference(CornerPoint2D[] chainCorners) {
+        int n = chainCorners.length;
+        ChainKey forward = new ChainKey(chainCorners[0], chainCorners[1], chainCorners[n - 1]);
+        Chain chain = chains.get(forward);
+        if (chain != null) {
+            return new ChainReference(chain, false);
+        }
+        ChainKey backward = new ChainKey(chainCorners[n - 1], chainCorners[n - 2], chainCorners[0]);
+        chain = chains.get(backward);
+        if (chain != null) {
+            return new ChainReference(chain, true);
+        }
+        chain = new Chain(chainCorners);
+        chains.put(forward, chain);
+        return new ChainReference(chain, false);
+    }
+
+    private static class ChainReference {
+
+        private final Chain chain;
+        private final boolean reversed;
+
+        private ChainReference(Chain chain, boolean reversed) {
+            this.chain = chain;
+            this.reversed = reversed;
+        }
+    }
+
+    private static class ChainKey {
+
+        private final CornerPoint2D start;
+        private final CornerPoint2D second;
+        private final CornerPoint2D end;
+
+        private ChainKey(CornerPoint2D start, CornerPoint2D second, CornerPoint2D end) {
+            this.start = start;
+            this.second = second;
+            this.end = end;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof ChainKey)) {
+                return false;
+            }
+            ChainKey key = (ChainKey) obj;
+            return start == key.start && second == key.second && end == key.end;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = System.identityHashCode(start);
+            hash = 31 * hash + System.identityHashCode(second);
+            return 31 * hash + System.identityHashCode(end);
+        }
+    }
+
+    private static class Chain {
+
+        private final CornerPoint2D[] corners;
+        private final double[] x;
+        private final double[] y;
+        private final double[] significance;
+        private boolean computed;
+
+        private Chain(CornerPoint2D[] corners) {
+            this.corners = corners;
+            this.x = new double[corners.length];
+            this.y = new double[corners.length];
+            this.significance = new double[corners.length];
+            this.computed = false;
+        }
+
+        private Chain update() {
+            boolean moved = !computed;
+            for (int i = 0; i < corners.length; i++) {
+                double cx = corners[i].getX();
+                double cy = corners[i].getY();
+                if (cx != x[i] || cy != y[i]) {
+                    x[i] = cx;
+                    y[i] = cy;
+                    moved = true;
+                }
+            }
+            if (moved) {
+                computeSignificance();
+                computed = true;
+            }
+            return this;
+        }
+
+        private int countPoints(double tolerance) {
+            int count = 0;
+            for (double s : significance) {
+                if (s > tolerance) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        private int copyPoints(double tolerance, boolean reversed, double[] xOut, double[] yOut, int k) {
+            int n = corners.length;
+            for (int j = 0; j < n - 1; j++) {
+                int i = reversed ? n - 1 - j : j;
+                if (significance[i] > tolerance) {
+                    xOut[k] = x[i];
+                    yOut[k] = y[i];
+                    k++;
+                }
+            }
+            return k;
+        }
+
+        private void computeSignificance() {
+            int n = corners.length;
+            Arrays.fill(significance, 0);
+            significance[0] = Double.POSITIVE_INFINITY;
+            significance[n - 1] = Double.POSITIVE_INFINITY;
+            int[] stack = new int[2 * n];
+            double[] parentSignificance = new double[n];
+            int top = 0;
+            stack[top++] = 0;
+            stack[top++] = n - 1;
+            parentSignificance[0] = Double.POSITIVE_INFINITY;
+            while (top > 0) {
+                int last = stack[--top];
+                int first = stack[--top];
+                if (last - first < 2) {
+                    continue;
+                }
+                int index = -1;
+                double maxDistance = -1;
+                for (int i = first + 1; i < last; i++) {
+                    double distance = Line2D.ptSegDist(x[first], y[first], x[last], y[last], x[i], y[i]);
+                    if (distance > maxDistance) {
+                        maxDistance = distance;
+                        index = i;
+                    }
+                }
+                double s = Math.min(maxDistance, parentSignificance[first]);
+                significance[index] = s;
+                parentSignificance[first] = s;
+                parentSignificance[index] = s;
+                stack[top++] = first;
+                stack[top++] = index;
+                stack[top++] = index;
+                stack[top++] = last;
+            }
+        }
+    }
+}
@@ -1,9 +1,19 @@
 package movingmorphingmasking.data.topology;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicBoolean;
 import kn.uni.voronoitreemap.j2d.PolygonSimple;
 import movingmorphingmasking.data.topology.maskingpseudoregionfactory.PseudoRegionHolder;
+import movingmorphingmasking.data.util.event.PolygonDeformableCreationEvent;
+import movingmorphingmasking.data.util.event.RingAssemblyEvent;
 
 /**
  * Transformates <code>PolygonDeformable</code> into a <code>PolygonSimple</code>
@@ -37,15 +47,171 @@ public class PolygonTransformator {
      * @return tesselation of <code>PolygonDeformable</code>.
      */
     public static List<PolygonDeformable> transformatePolygonDeformables(PseudoRegionHolder pseudoRegionHolder) {
+        List<PolygonSimple> tesselation = pseudoRegionHolder.getTesselation();
 
-        List<PolygonDeformable> deformablePolygons = new ArrayList<PolygonDeformable>();
-        for (PolygonSimple polygonSimple : pseudoRegionHolder.getTesselation()) {
-            PolygonDeformable polygonDeformable = transformateIntoPolygonDeformable(polygonSimple, pseudoRegionHolder);
-            deformablePolygons.add(polygonDeformable);
+        RingAssemblyEvent ringAssemblyEvent = new RingAssemblyEvent();
+        ringAssemblyEvent.begin();
+        boolean countPredicateCalls = ringAssemblyEvent.isEnabled();
+        long predicateCalls = pseudoRegionHolder.getPredicateCallCount();
+        List<CornerPoint2D[]> rings = new ArrayList<CornerPoint2D[]>(tesselation.size());
+        int vertices = 0;
+        for (PolygonSimple polygonSimple : tesselation) {
+            CornerPoint2D[] ring = pseudoRegionHolder.getCornerPoints(polygonSimple, countPredicateCalls);
+            rings.add(ring);
+            vertices += ring.length;
+        }
+        ringAssemblyEvent.end();
+        if (ringAssemblyEvent.shouldCommit()) {
+            ringAssemblyEvent.setVertices(vertices);
+            ringAssemblyEvent.setSides(pseudoRegionHolder.getPseudoRegionSides().size());
+            ringAssemblyEvent.setPredicateCalls(pseudoRegionHolder.getPredicateCallCount() - predicateCalls);
+            ringAssemblyEvent.commit();
+        }
+
+        PolygonDeformableCreationEvent creationEvent = new PolygonDeformableCreationEvent();
+        creationEvent.begin();
+        List<PolygonDeformable> deformablePolygons = new ArrayList<PolygonDeformable>(tesselation.size());
+        for (int i = 0; i < rings.size(); i++) {
+            deformablePolygons.add(new PolygonDeformable(rings.get(i), tesselation.get(i).getArea()));
+        }
+        creationEvent.end();
+        if (creationEvent.shouldCommit()) {
+            creationEvent.setVertices(vertices);
+            creationEvent.commit();
         }
         return deformablePolygons;
     }
 
+    /**
+     * Transformates progressively all <code>PolygonSimple</code>s of the
+     * tesselation of a <code>PseudoRegionHolder</code> into
+     * <code>PolygonDeformable</code>s. The polygons are created in the order
+     * of a specific priority, e.g. the visible polygons first, and each is
+     * passed to the listener as soon as it is created, so rendering can start
+     * before the whole tesselation is transformated.
+     * @param pseudoRegionHolder holds the whole situation of a pseudo region tesselation.
+     * @param priority order of creation or <code>null</code> for the order of the tesselation.
+     * @param listener listener for each created polygon.
+     * @return tesselation of <code>PolygonDeformable</code> in the order of the tesselation.
+     */
+    public static List<PolygonDeformable> transformatePolygonDeformables(PseudoRegionHolder pseudoRegionHolder,
+            Comparator<? super PolygonSimple> priority, PolygonDeformableListener listener) {
+        final List<PolygonSimple> tesselation = pseudoRegionHolder.getTesselation();
+        int n = tesselation.size();
+        // a heap orders the polygons in expected O(n) before the first one is
+        // created and O(log n) per polygon, ties keep the tesselation order
+        PriorityQueue<Integer> order = null;
+        if (priority != null) {
+            final Comparator<? super PolygonSimple> polygonPriority = priority;
+            order = new PriorityQueue<Integer>(Math.max(1, n), new Comparator<Integer>() {
+                @Override
+                public int compare(Integer i, Integer j) {
+                    int c = polygonPriority.compare(tesselation.get(i), tesselation.get(j));
+                    return c != 0 ? c : i.compareTo(j);
+                }
+            });
+            for (int i = 0; i < n; i++) {
+                order.add(i);
+            }
+        }
+
+        PolygonDeformableCreationEvent creationEvent = new PolygonDeformableCreationEvent();
+        creationEvent.begin();
+        PolygonDeformable[] deformablePolygons = new PolygonDeformable[n];
+        int vertices = 0;
+        for (int k = 0; k < n; k++) {
+            int i = order == null ? k : order.poll();
+            PolygonSimple polygonSimple = tesselation.get(i);
+            PolygonDeformable polygonDeformable = transformateIntoPolygonDeformable(polygonSimple, pseudoRegionHolder);
+            deformablePolygons[i] = polygonDeformable;
+            vertices += polygonDeformable.getCorners().length;
+            listener.polygonDeformableCreated(i, polygonSimple, polygonDeformable);
+        }
+        creationEvent.end();
+        if (creationEvent.shouldCommit()) {
+            creationEvent.setVertices(vertices);
+            creationEvent.commit();
+        }
+        return new ArrayList<PolygonDeformable>(Arrays.asList(deformablePolygons));
+    }
+
+    /**
+     * Returns a publisher of the progressive transformation (
+     * {@link #transformatePolygonDeformables(PseudoRegionHolder, Comparator, PolygonDeformableListener)}).
+     * The transformation runs on a new daemon thread as soon as a subscriber
+     * subscribes, and honours the demand of the subscriber. The tesselation
+     * can only be transformated once, so the publisher accepts only one
+     * subscriber. If the subscriber cancels, the transformation stops.
+     * @param pseudoRegionHolder holds the whole situation of a pseudo region tesselation.
+     * @param priority order of creation or <code>null</code> for the order of the tesselation.
+     * @return publisher of the created polygons.
+     */
+    public static Flow.Publisher<PolygonDeformable> publishPolygonDeformables(PseudoRegionHolder pseudoRegionHolder,
+            Comparator<? super PolygonSimple> priority) {
+        return publishPolygonDeformables(pseudoRegionHolder, priority, null);
+    }
+
+    /**
+     * Returns a publisher of the progressive transformation like
+     * {@link #publishPolygonDeformables(PseudoRegionHolder, Comparator)} that
+     * runs the transformation and delivers the polygons on a specific
+     * executor. The executor must run at least two tasks concurrently.
+     * @param pseudoRegionHolder holds the whole situation of a pseudo region tesselation.
+     * @param priority order of creation or <code>null</code> for the order of the tesselation.
+     * @param executor executor of the transformation and the delivery or
+     * <code>null</code> for a new daemon thread.
+     * @return publisher of the created polygons.
+     */
+    public static Flow.Publisher<PolygonDeformable> publishPolygonDeformables(
+            final PseudoRegionHolder pseudoRegionHolder, final Comparator<? super PolygonSimple> priority,
+            final Executor executor) {
+        final AtomicBoolean subscribed = new AtomicBoolean(false);
+        return new Flow.Publisher<PolygonDeformable>() {
+            @Override
+            public void subscribe(Flow.Subscriber<? super PolygonDeformable> subscriber) {
+                if (!subscribed.compareAndSet(false, true)) {
+                    SubmissionPublisher<PolygonDeformable> closed = new SubmissionPublisher<PolygonDeformable>();
+                    closed.closeExceptionally(new IllegalStateException("tesselation is already transformated"));
+                    closed.subscribe(subscriber);
+                    return;
+                }
+                final SubmissionPublisher<PolygonDeformable> publisher = executor == null
+                        ? new SubmissionPublisher<PolygonDeformable>()
+                        : new SubmissionPublisher<PolygonDeformable>(executor, Flow.defaultBufferSize());
+                publisher.subscribe(subscriber);
+                Runnable transformation = new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            transformatePolygonDeformables(pseudoRegionHolder, priority, new PolygonDeformableListener() {
+                                @Override
+                                public void polygonDeformableCreated(int index, PolygonSimple polygonSimple,
+                                        PolygonDeformable polygonDeformable) {
+                                    if (!publisher.hasSubscribers()) {
+                                        throw new CancellationException();
+                                    }
+                                    publisher.submit(polygonDeformable);
+                                }
+                            });
+                            publisher.close();
+                        } catch (CancellationException e) {
+                            publisher.close();
+                        } catch (RuntimeException e) {
+                            publisher.closeExceptionally(e);
+                        }
+                    }
+                };
+                if (executor == null) {
+                    Thread thread = new Thread(transformation, "polygon-deformable-publisher");
+                    thread.setDaemon(true);
+                    thread.start();
+                } else {
+                    executor.execute(transformation);
+                }
+            }
+        };
+    }
+
     /**
      * Transformate on the basis of a pseudo region tesselation region 
      * holds in the <code>PseudoRegionHolder</code> a specific <code>PolygonSimple</code>s
@@ -0,0 +1,359 @@
+package movingmorphingmasking.data.topology;
+
+import java.awt.geom.Line2D;
+import java.awt.geom.Point2D;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Table of interned line segments, e.g. the sides of a base polygon shared by
+ * all <code>CornerPoint2D.LineSlider</code>s on them, or the sides of the
+ * pseudo regions.
+ * <p>
+ * Every segment is stored once in a flat array together with its direction,
+ * length, inverse length, squared length and bounding box, so users refer to
+ * a segment by its index and loops over segments read their data in order.
+ * Segments are interned by their exact oriented end points.
+ * <p>
+ * Adding segments is synchronized, reading is not. The data array is only
+ * replaced after a new segment is written into it, so a reader that got the
+ * index of a segment from another thread reads its data even while further
+ * segments are added, e.g. to the shared table ({@link #getSharedTable()}).
+ *
+ * @author julia schueler
+ */
+public class SegmentTable {
+
+    private static final int X1 = 0, Y1 = 1, X2 = 2, Y2 = 3, DX = 4, DY = 5, LENGTH = 6, INVERSE_LENGTH = 7,
+            LENGTH_SQ = 8, MIN_X = 9, MIN_Y = 10, MAX_X = 11, MAX_Y = 12, STRIDE = 13;
+    private static final SegmentTable SHARED = new SegmentTable();
+    private volatile double[] data;
+    private int count;
+    private HashMap<Key, Integer> indices;
+
+    /**
+     * Constructor for an empty table.
+     */
+    public SegmentTable() {
+        this(16);
+    }
+
+    /**
+     * Constructor for an empty table with a specific initial capacity.
+     *
+     * @param capacity initial count of segments.
+     */
+    public SegmentTable(int capacity) {
+        this.data = new double[STRIDE * Math.max(1, capacity)];
+        this.count = 0;
+    }
+
+    /**
+     * Returns the table of the lines of single
+     * <code>CornerPoint2D.LineSlider</code>s and <code>PseudoRegionSide</code>s
+     * that are constructed without a table. Its segments are interned, so
+     * equal lines are stored once, and it is never cleared.
+     *
+     * @return shared table.
+     */
+    public static SegmentTable getSharedTable() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the index of the segment (x1,y1)->(x2,y2) and adds it if it is
+     * not already part of this.
+     *
+     * @param x1 X coordinate of the start point.
+     * @param y1 Y coordinate of the start point.
+     * @param x2 X coordinate of the end point.
+     * @param y2 Y coordinate of the end point.
+     * @return index of the segment.
+     */
+    public synchronized int intern(double x1, double y1, double x2, double y2) {
+        if (indices == null) {
+            indices = new HashMap<Key, Integer>();
+            for (int i = 0; i < count; i++) {
+                int o = STRIDE * i;
+                indices.put(new Key(data[o + X1], data[o + Y1], data[o + X2], data[o + Y2]), i);
+            }
+        }
+        Key key = new Key(x1, y1, x2, y2);
+        Integer index = indices.get(key);
+        if (index == null) {
+            index = add(x1, y1, x2, y2);
+            indices.put(key, index);
+        }
+        return index;
+    }
+
+    /**
+     * Adds the segment (x1,y1)->(x2,y2) without interning.
+     *
+     * @param x1 X coordinate of the start point.
+     * @param y1 Y coordinate of the start point.
+     * @param x2 X coordinate of the end point.
+     * @param y2 Y coordinate of the end point.
+     * @return index of the segment.
+     */
+    public synchronized int add(double x1, double y1, double x2, double y2) {
+        double[] data = this.data;
+        if (STRIDE * (count + 1) > data.length) {
+            data = Arrays.copyOf(data, 2 * data.length);
+        }
+        int o = STRIDE * count;
+        double dx = x2 - x1;
+        double dy = y2 - y1;
+        double lengthSq = dx * dx + dy * dy;
+        double length = Math.sqrt(lengthSq);
+        data[o + X1] = x1;
+        data[o + Y1] = y1;
+        data[o + X2] = x2;
+        data[o + Y2] = y2;
+        data[o + DX] = dx;
+        data[o + DY] = dy;
+        data[o + LENGTH] = length;
+        data[o + INVERSE_LENGTH] = length == 0 ? 0 : 1 / length;
+        data[o + LENGTH_SQ] = lengthSq;
+        data[o + MIN_X] = Math.min(x1, x2);
+        data[o + MIN_Y] = Math.min(y1, y2);
+        data[o + MAX_X] = Math.max(x1, x2);
+        data[o + MAX_Y] = Math.max(y1, y2);
+        this.data = data;
+        if (indices != null) {
+            indices.put(new Key(x1, y1, x2, y2), count);
+        }
+        return count++;
+    }
+
+    /**
+     * Returns the count of segments.
+     *
+     * @return count of segments.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the X coordinate of the start point of a specific segment.
+     *
+     * @param segment index of the segment.
+     * @return X coordinate of the start point.
+     */
+    public double getX1(int segment) {
+        return data[STRIDE * segment + X1];
+    }
+
+    /**
+     * Returns the Y coordinate of the start point of a specific segment.
+     *
+     * @param segment index of the segment.
+     * @return Y coordinate of the start point.
+     */
+    public double getY1(int segment) {
+        return data[STRIDE * segment + Y1];
+    }
+
+    /**
+     * Returns the X coordinate of the end point of a specific segment.
+     *
+     * @param segment index of the segment.
+     * @return X coordinate of the end point.
+     */
+    public double getX2(int segment) {
+        return data[STRIDE * segment + X2];
+    }
+
+    /**
+     * Returns the Y coordinate of the end point of a specific segment.
+     *
+     * @param segment index of the segment.
+     * @return Y coordinate of the end point.
+     */
+    public double getY2(int segment) {
+        return data[STRIDE * segment + Y2];
+    }
+
+    /**
+     * Returns the X component of the direction (end point minus start point)
+     * of a specific segment.
+     *
+     * @param segment index of the segment.
+     * @return X direction.
+     */
+    public double getDx(int segment) {
+        return data[STRIDE * segment + DX];
+    }
+
+    /**
+     * Returns the Y component of the direction (end point minus start point)
+     * of a specific segment.
+     *
+     * @param segment index of the segment.
+     * @return Y direction.
+     */
+    public double getDy(int segment) {
+        return data[STRIDE * segment + DY];
+    }
+
+    /**
+     * Returns the length of a specific segment.
+     *
+     * @param segment index of the segment.
+     * @return length of the segment.
+     */
+    public double getLength(int segment) {
+        return data[STRIDE * segment + LENGTH];
+    }
+
+    /**
+     * Returns the inverse length of a specific segment.
+     *
+     * @param segment index of the segment.
+     * @return 1 / length or 0 for a segment of length 0.
+     */
+    public double getInverseLength(int segment) {
+        return data[STRIDE * segment + INVERSE_LENGTH];
+    }
+
+    /**
+     * Returns the squared length of a specific segment.
+     *
+     * @param segment index of the segment.
+     * @return squared length of the segment.
+     */
+    public double getLengthSq(int segment) {
+        return data[STRIDE * segment + LENGTH_SQ];
+    }
+
+    /**
+     * Returns the minimal X coordinate of the bounding box of a specific segment.
+     *
+     * @param segment index of the segment.
+     * @return minimal X coordinate.
+     */
+    public double getMinX(int segment) {
+        return data[STRIDE * segment + MIN_X];
+    }
+
+    /**
+     * Returns the minimal Y coordinate of the bounding box of a specific segment.
+     *
+     * @param segment index of the segment.
+     * @return minimal Y coordinate.
+     */
+    public double getMinY(int segment) {
+        return data[STRIDE * segment + MIN_Y];
+    }
+
+    /**
+     * Returns the maximal X coordinate of the bounding box of a specific segment.
+     *
+     * @param segment index of the segment.
+     * @return maximal X coordinate.
+     */
+    public double getMaxX(int segment) {
+        return data[STRIDE * segment + MAX_X];
+    }
+
+    /**
+     * Returns the maximal Y coordinate of the bounding box of a specific segment.
+     *
+     * @param segment index of the segment.
+     * @return maximal Y coordinate.
+     */
+    public double getMaxY(int segment) {
+        return data[STRIDE * segment + MAX_Y];
+    }
+
+    /**
+     * Returns a specific segment as a new line.
+     *
+     * @param segment index of the segment.
+     * @return line of the segment.
+     */
+    public Line2D.Double getLine(int segment) {
+        int o = STRIDE * segment;
+        return new Line2D.Double(data[o + X1], data[o + Y1], data[o + X2], data[o + Y2]);
+    }
+
+    /**
+     * Returns if a specific point (x,y) is on a specific segment, as specified
+     * by {@link #isOnSegment(double, double, double, double, double, double)}.
+     *
+     * @param segment index of the segment.
+     * @param x X coordinate of the point.
+     * @param y Y coordinate of the point.
+     * @return <tt>true</tt> if the point is on the segment.
+     */
+    public boolean isOnSegment(int segment, double x, double y) {
+        int o = STRIDE * segment;
+        double lengthSq = data[o + LENGTH_SQ];
+        double ex = x - data[o + X1];
+        double ey = y - data[o + Y1];
+        // a single axis of the distance to the start point rejects most points
+        // before the orientation test, with the same result as the full test
+        if (ex * ex > lengthSq || ey * ey > lengthSq) {
+            return false;
+        }
+        return isOnSegment(data[o + X1], data[o + Y1], data[o + X2], data[o + Y2], lengthSq, x, y);
+    }
+
+    /**
+     * Returns if a specific point (x,y) is on the segment (x1,y1)->(x2,y2):
+     * the relative CCW (as specified by {@link Line2D#relativeCCW}) is 0 and
+     * the squared distances to both end points are at most the squared length
+     * of the segment.
+     *
+     * @param x1 X coordinate of the start point.
+     * @param y1 Y coordinate of the start point.
+     * @param x2 X coordinate of the end point.
+     * @param y2 Y coordinate of the end point.
+     * @param x X coordinate of the point.
+     * @param y Y coordinate of the point.
+     * @return <tt>true</tt> if the point is on the segment.
+     */
+    public static boolean isOnSegment(double x1, double y1, double x2, double y2, double x, double y) {
+        return isOnSegment(x1, y1, x2, y2, Point2D.distanceSq(x1, y1, x2, y2), x, y);
+    }
+
+    private static boolean isOnSegment(double x1, double y1, double x2, double y2, double lengthSq,
+            double x, double y) {
+        if (Line2D.relativeCCW(x1, y1, x2, y2, x, y) != 0) {
+            return false;
+        }
+        return Point2D.distanceSq(x1, y1, x, y) <= lengthSq && Point2D.distanceSq(x2, y2, x, y) <= lengthSq;
+    }
+
+    private static final class Key {
+
+        private final double x1, y1, x2, y2;
+
+        private Key(double x1, double y1, double x2, double y2) {
+            // + 0.0 turns -0.0 into 0.0, which are equal for ==
+            this.x1 = x1 + 0.0;
+            this.y1 = y1 + 0.0;
+            this.x2 = x2 + 0.0;
+            this.y2 = y2 + 0.0;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) object;
+            return x1 == key.x1 && y1 == key.y1 && x2 == key.x2 && y2 == key.y2;
+        }
+
+        @Override
+        public int hashCode() {
+            long bits = Double.doubleToLongBits(x1);
+            bits = 31 * bits + Double.doubleToLongBits(y1);
+            bits = 31 * bits + Double.doubleToLongBits(x2);
+            bits = 31 * bits + Double.doubleToLongBits(y2);
+            return (int) (bits ^ (bits >>> 32));
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package movingmorphingmasking.data.topology;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ingest queue for target area updates of a tesselation of
+ * <code>PolygonDeformable</code>s.
+ * <p>
+ * Producers, e.g. the threads of a metrics feed, offer new target areas at
+ * any rate. The updates of one polygon are coalesced, only the last one is
+ * kept. The consumer applies all pending updates at a frame boundary with
+ * {@link TargetAreaUpdateQueue#applyPending} and gets the indices of the
+ * changed polygons, so downstream structures (e.g.
+ * <code>PolygonAreaKernel</code> or the session of a
+ * <code>MeshGeometry</code> with <code>MeshGeometry.setTargetArea</code>)
+ * only update those.
+ * <p>
+ * The capacity bounds the count of pending polygons. An update of a polygon
+ * that is already pending always succeeds, an update of another polygon
+ * waits (<code>put</code>) or fails (<code>offer</code>) while the queue is
+ * full, until the consumer applies the pending updates.
+ *
+ * @author julia schueler
+ */
+public class TargetAreaUpdateQueue {
+
+    private final List<PolygonDeformable> polygons;
+    private final IdentityHashMap<PolygonDeformable, Integer> indices;
+    private final int capacity;
+    private final ReentrantLock lock;
+    private final Condition notFull;
+    private final double[] pendingAreas;
+    private final boolean[] pending;
+    private int[] pendingPolygons;
+    private int pendingCount;
+    private long updateCount;
+    private long coalescedCount;
+
+    /**
+     * Constructor for the queue of a specific tesselation.
+     *
+     * @param polygons tesselation of <code>PolygonDeformable</code>.
+     * @param capacity maximal count of pending polygons.
+     */
+    public TargetAreaUpdateQueue(List<PolygonDeformable> polygons, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        int n = polygons.size();
+        this.polygons = polygons;
+        this.indices = new IdentityHashMap<PolygonDeformable, Integer>(2 * n);
+        for (int p = 0; p < n; p++) {
+            indices.put(polygons.get(p), p);
+        }
+        this.capacity = capacity;
+        this.lock = new ReentrantLock();
+        this.notFull = lock.newCondition();
+        this.pendingAreas = new double[n];
+        this.pending = new boolean[n];
+        this.pendingPolygons = new int[Math.min(n, capacity)];
+        this.pendingCount = 0;
+    }
+
+    /**
+     * Returns the index of a specific polygon of the tesselation.
+     *
+     * @param polygon specific polygon.
+     * @return index of the polygon.
+     */
+    public int indexOf(PolygonDeformable polygon) {
+        Integer index = indices.get(polygon);
+        if (index == null) {
+            throw new IllegalArgumentException("polygon is not part of the tesselation");
+        }
+        return index;
+    }
+
+    /**
+     * Adds an update of a specific polygon and waits while the queue is full.
+     *
+     * @param polygon index of the polygon.
+     * @param targetArea new target area.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public void put(int polygon, double targetArea) throws InterruptedException {
+        checkTargetArea(targetArea);
+        lock.lockInterruptibly();
+        try {
+            while (!pending[polygon] && pendingCount >= capacity) {
+                notFull.await();
+            }
+            enqueue(polygon, targetArea);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds an update of a specific polygon and waits while the queue is full.
+     *
+     * @param polygon specific polygon.
+     * @param targetArea new target area.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public void put(PolygonDeformable polygon, double targetArea) throws InterruptedException {
+        put(indexOf(polygon), targetArea);
+    }
+
+    /**
+     * Adds an update of a specific polygon if the queue is not full.
+     *
+     * @param polygon index of the polygon.
+     * @param targetArea new target area.
+     * @return <tt>true</tt> if the update was added.
+     */
+    public boolean offer(int polygon, double targetArea) {
+        checkTargetArea(targetArea);
+        lock.lock();
+        try {
+            if (!pending[polygon] && pendingCount >= capacity) {
+                return false;
+            }
+            enqueue(polygon, targetArea);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds an update of a specific polygon and waits at most a specific time
+     * while the queue is full.
+     *
+     * @param polygon index of the polygon.
+     * @param targetArea new target area.
+     * @param timeout time to wait.
+     * @param unit unit of the time.
+     * @return <tt>true</tt> if the update was added.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public boolean offer(int polygon, double targetArea, long timeout, TimeUnit unit) throws InterruptedException {
+        checkTargetArea(targetArea);
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (!pending[polygon] && pendingCount >= capacity) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            enqueue(polygon, targetArea);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Applies all pending updates to the polygons. It has to be called by the
+     * thread that owns the polygons, e.g. at the start of a frame.
+     *
+     * @return indices of the polygons whose target area changed, in the order
+     * of their first update.
+     */
+    public int[] applyPending() {
+        int[] polygonIndices;
+        double[] areas;
+        lock.lock();
+        try {
+            polygonIndices = Arrays.copyOf(pendingPolygons, pendingCount);
+            areas = new double[pendingCount];
+            for (int i = 0; i < pendingCount; i++) {
+                int polygon = polygonIndices[i];
+                areas[i] = pendingAreas[polygon];
+                pending[polygon] = false;
+            }
+            pendingCount = 0;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        int changed = 0;
+        for (int i = 0; i < polygonIndices.length; i++) {
+            PolygonDeformable polygon = polygons.get(polygonIndices[i]);
+            if (polygon.getTagetArea() != areas[i]) {
+                polygon.setTargetArea(areas[i]);
+                polygonIndices[changed++] = polygonIndices[i];
+            }
+        }
+        return changed == polygonIndices.length ? polygonIndices : Arrays.copyOf(polygonIndices, changed);
+    }
+
+    /**
+     * Returns the count of pending polygons.
+     *
+     * @return count of pending polygons.
+     */
+    public int getPendingCount() {
+        lock.lock();
+        try {
+            return pendingCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the capacity of this.
+     *
+     * @return maximal count of pending polygons.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the count of added updates so far.
+     *
+     * @return count of updates.
+     */
+    public long getUpdateCount() {
+        lock.lock();
+        try {
+            return updateCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the count of updates so far that replaced a pending update of
+     * the same polygon.
+     *
+     * @return count of coalesced updates.
+     */
+    public long getCoalescedCount() {
+        lock.lock();
+        try {
+            return coalescedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void enqueue(int polygon, double targetArea) {
+        updateCount++;
+        if (pending[polygon]) {
+            coalescedCount++;
+        } else {
+            pending[polygon] = true;
+            pendingPolygons[pendingCount++] = polygon;
+        }
+        pendingAreas[polygon] = targetArea;
+    }
+
+    private static void checkTargetArea(double targetArea) {
+        if (!(targetArea >= 0)) {
+            throw new IllegalArgumentException("targetArea must not be negative: " + targetArea);
+        }
+    }
+}
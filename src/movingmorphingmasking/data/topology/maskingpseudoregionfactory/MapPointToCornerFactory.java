@@ -3,7 +3,11 @@ package movingmorphingmasking.data.topology.maskingpseudoregionfactory;
 import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import kn.uni.voronoitreemap.j2d.PolygonSimple;
 import movingmorphingmasking.data.topology.CornerPoint2D;
 
@@ -13,6 +17,15 @@ import movingmorphingmasking.data.topology.CornerPoint2D;
  * base polygon a
  * <code>CornerPoint2D</code> and save them in a
  * <code>HashMap</code>.
+ * <p>
+ * The parallel construction splits the distinct points into chunks, not the
+ * tesselation by pseudo region polygon. A point on a side of two pseudo
+ * regions would be classified by both region tasks, which then create two
+ * <code>CornerPoint2D</code>s for one corner that have to be merged. The
+ * classification of a point only reads the point and the shared segments, so
+ * every point is classified exactly once, by any chunk, with the result of
+ * the sequential construction. The chunks are also of the same size, while
+ * pseudo regions differ widely in their count of points.
  *
  * @author julia schueler
  */
@@ -92,28 +105,121 @@ public class MapPointToCornerFactory {
         }
     }
 
+    /**
+     * Returns the same <code>HashMap</code> as
+     * {@link MapPointToCornerFactory#createPointToCornerMap(List)}, but the
+     * points are classified in parallel on a specific pool. The distinct points
+     * are collected in the order of the sequential construction, every chunk of
+     * them is classified by its own <code>PseudoRegionCornerPoint2DFactory</code>
+     * on the shared segments and the map is filled in the collected order.
+     *
+     * @param tesselation tesselation of the base polygon.
+     * @param pool pool of the classification.
+     * @return map of a corner of all polygons in the tesselation to
+     * a <code>CornerPoint2D</code>.
+     */
+    public HashMap<Point2D, CornerPoint2D> createPointToCornerMap(List<PolygonSimple> tesselation, ForkJoinPool pool) {
+        LinkedHashMap<Point2D, PolygonMode> modes = new LinkedHashMap<Point2D, PolygonMode>();
+        addPolygonPoints(cornerPoint2DFactory.getBasePolygon(), modes, PolygonMode.base);
+        for (PolygonSimple polygonSimple : cornerPoint2DFactory.getPseudoRegionPolygones()) {
+            addPolygonPoints(polygonSimple, modes, PolygonMode.pseudo);
+        }
+        for (PolygonSimple polygonSimple : tesselation) {
+            addPolygonPoints(polygonSimple, modes, PolygonMode.normal);
+        }
+
+        int n = modes.size();
+        Point2D[] points = new Point2D[n];
+        PolygonMode[] pointModes = new PolygonMode[n];
+        int i = 0;
+        for (Map.Entry<Point2D, PolygonMode> entry : modes.entrySet()) {
+            points[i] = entry.getKey();
+            pointModes[i] = entry.getValue();
+            i++;
+        }
+        CornerPoint2D[] corners = new CornerPoint2D[n];
+        long predicateCalls = pool.invoke(new ClassificationTask(points, pointModes, corners, 0, n));
+        cornerPoint2DFactory.addPredicateCalls(predicateCalls);
+
+        HashMap<Point2D, CornerPoint2D> mapPointToCorner = new HashMap<Point2D, CornerPoint2D>(2 * n);
+        for (i = 0; i < n; i++) {
+            mapPointToCorner.put(points[i], corners[i]);
+        }
+        return mapPointToCorner;
+    }
+
+    private void addPolygonPoints(PolygonSimple polygon, LinkedHashMap<Point2D, PolygonMode> modes, PolygonMode mode) {
+        double[] x = polygon.getXPoints();
+        double[] y = polygon.getYPoints();
+        int n = x.length;
+        for (int i = 0; i < n; i++) {
+            Point2D point = new Point2D.Double(x[i], y[i]);
+            if (mode == PolygonMode.base || !modes.containsKey(point)) {
+                modes.put(point, mode);
+            }
+        }
+    }
+
     private void addCornerPoint(Point2D point, PolygonMode mode, HashMap<Point2D, CornerPoint2D> mapPointToCorner) {
+        if (mode == PolygonMode.base || !mapPointToCorner.containsKey(point)) {
+            mapPointToCorner.put(point, createCornerPoint(cornerPoint2DFactory, point, mode));
+        }
+    }
+
+    private static CornerPoint2D createCornerPoint(PseudoRegionCornerPoint2DFactory factory,
+            Point2D point, PolygonMode mode) {
         double x = point.getX();
         double y = point.getY();
         switch (mode) {
             case base:
-                mapPointToCorner.put(point, new CornerPoint2D.Immovable(x, y));
-                break;
+                return new CornerPoint2D.Immovable(x, y);
             case pseudo:
-                if (!mapPointToCorner.containsKey(point)) {
-                    CornerPoint2D cornerPoint2D = cornerPoint2DFactory.getLineSliderOnBasePolygonSide(x, y);
-                    if (cornerPoint2D == null) {
-                        cornerPoint2D = new CornerPoint2D.Movable(x, y);
-                    }
-                    mapPointToCorner.put(point, cornerPoint2D);
+                CornerPoint2D cornerPoint2D = factory.getLineSliderOnBasePolygonSide(x, y);
+                if (cornerPoint2D == null) {
+                    cornerPoint2D = new CornerPoint2D.Movable(x, y);
                 }
-                break;
-            case normal:
-                if (!mapPointToCorner.containsKey(point)) {
-                    CornerPoint2D cornerPoint2D = cornerPoint2DFactory.getCornerPointOnTesselationSide(x, y);
-                    mapPointToCorner.put(point, cornerPoint2D);
+                return cornerPoint2D;
+            default:
+                return factory.getCornerPointOnTesselationSide(x, y);
+        }
+    }
+
+    /**
+     * Task of a chunk of the distinct points. It returns its count of point on
+     * side tests.
+     */
+    private class ClassificationTask extends RecursiveTask<Long> {
+
+        private static final long serialVersionUID = 1L;
+        private static final int THRESHOLD = 256;
+        private final Point2D[] points;
+        private final PolygonMode[] modes;
+        private final CornerPoint2D[] corners;
+        private final int from;
+        private final int to;
+
+        private ClassificationTask(Point2D[] points, PolygonMode[] modes, CornerPoint2D[] corners, int from, int to) {
+            this.points = points;
+            this.modes = modes;
+            this.corners = corners;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from <= THRESHOLD) {
+                PseudoRegionCornerPoint2DFactory factory = new PseudoRegionCornerPoint2DFactory(cornerPoint2DFactory);
+                for (int i = from; i < to; i++) {
+                    corners[i] = createCornerPoint(factory, points[i], modes[i]);
                 }
-                break;
+                return factory.getPredicateCallCount();
+            }
+            int middle = (from + to) >>> 1;
+            ClassificationTask left = new ClassificationTask(points, modes, corners, from, middle);
+            left.fork();
+            long right = new ClassificationTask(points, modes, corners, middle, to).compute();
+            return left.join() + right;
         }
     }
 }
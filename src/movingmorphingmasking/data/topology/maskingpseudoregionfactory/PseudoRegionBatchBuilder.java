@@ -0,0 +1,333 @@
+package movingmorphingmasking.data.topology.maskingpseudoregionfactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import kn.uni.voronoitreemap.j2d.PolygonSimple;
+import movingmorphingmasking.data.topology.PolygonDeformable;
+import movingmorphingmasking.data.topology.PolygonDeformableListener;
+import movingmorphingmasking.data.topology.PolygonTransformator;
+
+/**
+ * Builds the <code>PseudoRegionHolder</code>s and
+ * <code>PolygonDeformable</code>s of many independent layouts concurrently.
+ * <p>
+ * The jobs run on a work-stealing <code>ForkJoinPool</code> or on any given
+ * executor, e.g. one that starts a virtual thread per task. A semaphore bounds
+ * the count of concurrently running builds independent of the executor. Each
+ * job has a timeout from its start, and the results are delivered in the order
+ * of their completion by a <code>Batch</code>.
+ * <p>
+ * A timed out or cancelled job delivers its result at once. Its build checks
+ * for this and for an interrupt before it takes a slot, after the
+ * construction of the holder and after every created polygon, and then stops
+ * and gives up its slot. The construction of the holder itself is not
+ * interrupted.
+ *
+ * @author julia schueler
+ */
+public class PseudoRegionBatchBuilder {
+
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    private final Semaphore slots;
+    private final long timeoutNanos;
+    private final ScheduledExecutorService timer;
+
+    /**
+     * Constructor for a builder on its own work-stealing pool.
+     *
+     * @param maxConcurrency maximal count of concurrently running builds.
+     * @param timeout timeout of each job from its start.
+     * @param unit unit of the timeout.
+     */
+    public PseudoRegionBatchBuilder(int maxConcurrency, long timeout, TimeUnit unit) {
+        this(new ForkJoinPool(maxConcurrency), true, maxConcurrency, timeout, unit);
+    }
+
+    /**
+     * Constructor for a builder on a specific executor. The executor is not
+     * shut down by the builder.
+     *
+     * @param executor executor of the jobs.
+     * @param maxConcurrency maximal count of concurrently running builds.
+     * @param timeout timeout of each job from its start.
+     * @param unit unit of the timeout.
+     */
+    public PseudoRegionBatchBuilder(ExecutorService executor, int maxConcurrency, long timeout, TimeUnit unit) {
+        this(executor, false, maxConcurrency, timeout, unit);
+    }
+
+    private PseudoRegionBatchBuilder(ExecutorService executor, boolean ownsExecutor,
+            int maxConcurrency, long timeout, TimeUnit unit) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be positive: " + maxConcurrency);
+        }
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        this.slots = new Semaphore(maxConcurrency, true);
+        this.timeoutNanos = unit.toNanos(timeout);
+        this.timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "pseudo-region-batch-timer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Submits all jobs of a batch.
+     *
+     * @param jobs jobs of the batch.
+     * @return batch that delivers the results in the order of completion.
+     */
+    public Batch submit(List<PseudoRegionJob> jobs) {
+        Batch batch = new Batch(jobs.size());
+        for (PseudoRegionJob job : jobs) {
+            JobTask task = new JobTask(job, batch);
+            FutureTask<Void> future = new FutureTask<Void>(task, null);
+            task.future = future;
+            batch.tasks.add(task);
+            executor.execute(future);
+        }
+        return batch;
+    }
+
+    /**
+     * Shuts the builder down. Running jobs are finished.
+     */
+    public void shutdown() {
+        timer.shutdownNow();
+        if (ownsExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * The
+     * <code>Batch</code> class delivers the results of submitted jobs in the
+     * order of their completion.
+     */
+    public static class Batch implements Iterable<PseudoRegionJobResult> {
+
+        private final int jobCount;
+        private final BlockingQueue<PseudoRegionJobResult> results;
+        private final List<JobTask> tasks;
+        private int taken;
+
+        private Batch(int jobCount) {
+            this.jobCount = jobCount;
+            this.results = new LinkedBlockingQueue<PseudoRegionJobResult>();
+            this.tasks = new ArrayList<JobTask>(jobCount);
+            this.taken = 0;
+        }
+
+        /**
+         * Returns the count of jobs of this batch.
+         *
+         * @return count of jobs.
+         */
+        public int getJobCount() {
+            return jobCount;
+        }
+
+        /**
+         * Returns if there are results that are not taken yet.
+         *
+         * @return <tt>true</tt> if there are more results.
+         */
+        public synchronized boolean hasNext() {
+            return taken < jobCount;
+        }
+
+        /**
+         * Waits for the next result.
+         *
+         * @return next result or <code>null</code> if all results are taken.
+         * @throws InterruptedException if interrupted while waiting.
+         */
+        public PseudoRegionJobResult take() throws InterruptedException {
+            synchronized (this) {
+                if (taken >= jobCount) {
+                    return null;
+                }
+                taken++;
+            }
+            return results.take();
+        }
+
+        /**
+         * Waits a specific time for the next result.
+         *
+         * @param timeout time to wait.
+         * @param unit unit of the time.
+         * @return next result or <code>null</code> if no result is ready in time.
+         * @throws InterruptedException if interrupted while waiting.
+         */
+        public PseudoRegionJobResult poll(long timeout, TimeUnit unit) throws InterruptedException {
+            PseudoRegionJobResult result = results.poll(timeout, unit);
+            if (result != null) {
+                synchronized (this) {
+                    taken++;
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Cancels all jobs that have not delivered their result yet.
+         */
+        public void cancel() {
+            for (JobTask task : tasks) {
+                task.cancel();
+            }
+        }
+
+        /**
+         * Returns a blocking iterator over the results in the order of their
+         * completion.
+         *
+         * @return iterator over the results.
+         */
+        @Override
+        public Iterator<PseudoRegionJobResult> iterator() {
+            return new Iterator<PseudoRegionJobResult>() {
+                @Override
+                public boolean hasNext() {
+                    return Batch.this.hasNext();
+                }
+
+                @Override
+                public PseudoRegionJobResult next() {
+                    try {
+                        PseudoRegionJobResult result = take();
+                        if (result == null) {
+                            throw new NoSuchElementException();
+                        }
+                        return result;
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException("interrupted while waiting for a result", e);
+                    }
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+
+    private class JobTask implements Runnable {
+
+        private final PseudoRegionJob job;
+        private final Batch batch;
+        private final AtomicBoolean delivered;
+        private volatile Future<?> future;
+        private volatile long start;
+
+        private JobTask(PseudoRegionJob job, Batch batch) {
+            this.job = job;
+            this.batch = batch;
+            this.delivered = new AtomicBoolean(false);
+        }
+
+        @Override
+        public void run() {
+            if (delivered.get()) {
+                return;
+            }
+            try {
+                slots.acquire();
+            } catch (InterruptedException e) {
+                deliver(PseudoRegionJobResult.Status.cancelled, null, null, null);
+                return;
+            }
+            try {
+                if (delivered.get()) {
+                    return;
+                }
+                start = System.nanoTime();
+                ScheduledFuture<?> timeout = timer.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        deliver(PseudoRegionJobResult.Status.timedOut, null, null, null);
+                    }
+                }, timeoutNanos, TimeUnit.NANOSECONDS);
+                try {
+                    PseudoRegionHolder holder = new PseudoRegionHolder(job.getBasePolygon(),
+                            job.getPseudoRegionTesselation(), job.getTesselation());
+                    checkAbandoned();
+                    List<PolygonDeformable> polygons = PolygonTransformator.transformatePolygonDeformables(holder,
+                            null, new PolygonDeformableListener() {
+                                @Override
+                                public void polygonDeformableCreated(int index, PolygonSimple polygonSimple,
+                                        PolygonDeformable polygonDeformable) {
+                                    checkAbandoned();
+                                }
+                            });
+                    deliver(PseudoRegionJobResult.Status.completed, holder, polygons, null);
+                } catch (CancellationException e) {
+                    deliver(PseudoRegionJobResult.Status.cancelled, null, null, null);
+                } catch (RuntimeException e) {
+                    deliver(PseudoRegionJobResult.Status.failed, null, null, e);
+                } catch (Error e) {
+                    deliver(PseudoRegionJobResult.Status.failed, null, null, e);
+                    throw e;
+                } finally {
+                    timeout.cancel(false);
+                }
+            } finally {
+                slots.release();
+            }
+        }
+
+        /**
+         * Throws a <code>CancellationException</code> if the result of this is
+         * already delivered, i.e. it timed out or is cancelled, or if the
+         * thread is interrupted.
+         */
+        private void checkAbandoned() {
+            if (delivered.get() || Thread.currentThread().isInterrupted()) {
+                throw new CancellationException();
+            }
+        }
+
+        private void cancel() {
+            if (deliver(PseudoRegionJobResult.Status.cancelled, null, null, null)) {
+                Future<?> current = future;
+                if (current != null) {
+                    current.cancel(false);
+                }
+            }
+        }
+
+        private boolean deliver(PseudoRegionJobResult.Status status, PseudoRegionHolder holder,
+                List<PolygonDeformable> polygons, Throwable error) {
+            if (!delivered.compareAndSet(false, true)) {
+                return false;
+            }
+            long nanos = start == 0 ? 0 : System.nanoTime() - start;
+            batch.results.add(new PseudoRegionJobResult(job, status, holder, polygons, error, nanos));
+            return true;
+        }
+    }
+}
@@ -1,14 +1,18 @@
 package movingmorphingmasking.data.topology.maskingpseudoregionfactory;
 
-import java.awt.geom.Line2D;
 import java.util.List;
 import kn.uni.voronoitreemap.j2d.PolygonSimple;
 import movingmorphingmasking.data.topology.CornerPoint2D;
+import movingmorphingmasking.data.topology.SegmentTable;
 
 /**
  * <code>PseudoRegionCornerPoint2DFactory</code> creates movable CornerPoint2Ds
  * on the boundary of the base polygon or on the boundary of the pseudo region
  * polygon borders.
+ * <p>
+ * The sides of the base polygon and of the pseudo region polygons are stored
+ * once in a <code>SegmentTable</code>, the created line sliders refer to the
+ * base polygon sides in this table.
  *
  * @author julia schueler
  */
@@ -16,6 +20,10 @@ public class PseudoRegionCornerPoint2DFactory {
 
     private final PolygonSimple basePolygon;
     private final List<PolygonSimple> pseudoRegionPolygones;
+    private final SegmentTable segments;
+    private final int[] polygonSegments;
+    private long predicateCalls;
+    private boolean countPredicateCalls;
 
     /**
      * Constructor with the base polygon of a tesselation.
@@ -27,6 +35,31 @@ public class PseudoRegionCornerPoint2DFactory {
     public PseudoRegionCornerPoint2DFactory(PolygonSimple basePolygon, List<PolygonSimple> pseudoRegionPolygones) {
         this.basePolygon = basePolygon;
         this.pseudoRegionPolygones = pseudoRegionPolygones;
+        this.segments = new SegmentTable();
+        this.polygonSegments = new int[pseudoRegionPolygones.size() + 2];
+        addSides(basePolygon);
+        for (int i = 0; i < pseudoRegionPolygones.size(); i++) {
+            polygonSegments[i + 1] = segments.getCount();
+            addSides(pseudoRegionPolygones.get(i));
+        }
+        polygonSegments[pseudoRegionPolygones.size() + 1] = segments.getCount();
+        this.predicateCalls = 0;
+    }
+
+    /**
+     * Constructor for a factory that shares the polygons and the segments of
+     * a specific factory, but counts its own point on side tests. Such
+     * factories can be used concurrently.
+     *
+     * @param factory specific factory.
+     */
+    PseudoRegionCornerPoint2DFactory(PseudoRegionCornerPoint2DFactory factory) {
+        this.basePolygon = factory.basePolygon;
+        this.pseudoRegionPolygones = factory.pseudoRegionPolygones;
+        this.segments = factory.segments;
+        this.polygonSegments = factory.polygonSegments;
+        this.predicateCalls = 0;
+        this.countPredicateCalls = factory.countPredicateCalls;
     }
 
     /**
@@ -45,6 +78,37 @@ public class PseudoRegionCornerPoint2DFactory {
         return pseudoRegionPolygones;
     }
 
+    /**
+     * Returns the table of the sides of the base polygon and the pseudo
+     * region polygons.
+     * @return segment table.
+     */
+    public SegmentTable getSegmentTable() {
+        return segments;
+    }
+
+    /**
+     * Returns the count of point on side tests of this factory while the
+     * tests are counted.
+     * @return count of point on side tests.
+     */
+    public long getPredicateCallCount() {
+        return predicateCalls;
+    }
+
+    void addPredicateCalls(long calls) {
+        predicateCalls += calls;
+    }
+
+    /**
+     * Sets if the point on side tests are counted, usually only while a
+     * recording event of the phase is enabled.
+     * @param countPredicateCalls <tt>true</tt> to count the tests.
+     */
+    void setCountPredicateCalls(boolean countPredicateCalls) {
+        this.countPredicateCalls = countPredicateCalls;
+    }
+
     /**
      * Reurns a <code>CornerPoint2D.LineSlider</code> on a side of the 
      * base polygon. If the the point (x,y) is not on a base polygon side
@@ -54,7 +118,7 @@ public class PseudoRegionCornerPoint2DFactory {
      * @return <code>CornerPoint2D</code> with the coordinates x and y.
      */
     public CornerPoint2D getLineSliderOnBasePolygonSide(double x, double y) {
-        return getCornerPointOnPolygonSide(basePolygon, x, y, CornerPoint2D.IS_LINESLIDER);
+        return getCornerPointOnPolygonSide(0, x, y, CornerPoint2D.Kind.lineSlider);
 
     }
 
@@ -83,8 +147,8 @@ public class PseudoRegionCornerPoint2DFactory {
     }
 
     private CornerPoint2D getMovableOnPseudoPolygonSide(double x, double y) {
-        for (PolygonSimple polygonSimple : pseudoRegionPolygones) {
-            CornerPoint2D cornerPoint = getCornerPointOnPolygonSide(polygonSimple, x, y, CornerPoint2D.IS_MOVABLE);
+        for (int i = 1; i <= pseudoRegionPolygones.size(); i++) {
+            CornerPoint2D cornerPoint = getCornerPointOnPolygonSide(i, x, y, CornerPoint2D.Kind.movable);
             if (cornerPoint != null) {
                 return cornerPoint;
             }
@@ -93,29 +157,40 @@ public class PseudoRegionCornerPoint2DFactory {
     }
 
     private CornerPoint2D getImmovableOnBasePolygonSide(double x, double y) {
-        return getCornerPointOnPolygonSide(basePolygon, x, y, CornerPoint2D.IS_IMMOVABLE);
+        return getCornerPointOnPolygonSide(0, x, y, CornerPoint2D.Kind.immovable);
 
     }
 
-    private CornerPoint2D getCornerPointOnPolygonSide(PolygonSimple polygon, double x, double y, String cornerMode) {
+    private CornerPoint2D getCornerPointOnPolygonSide(int polygon, double x, double y, CornerPoint2D.Kind cornerMode) {
+        int start = polygonSegments[polygon];
+        int end = polygonSegments[polygon + 1];
+        for (int segment = start; segment < end; segment++) {
+            if (segments.isOnSegment(segment, x, y)) {
+                if (countPredicateCalls) {
+                    predicateCalls += segment - start + 1;
+                }
+                switch (cornerMode) {
+                    case lineSlider:
+                        return new CornerPoint2D.LineSlider(x, y, segments, segment);
+                    case movable:
+                        return new CornerPoint2D.Movable(x, y);
+                    default:
+                        return new CornerPoint2D.Immovable(x, y);
+                }
+            }
+        }
+        if (countPredicateCalls) {
+            predicateCalls += end - start;
+        }
+        return null;
+    }
+
+    private void addSides(PolygonSimple polygon) {
         double[] xi = polygon.getXPoints();
         double[] yi = polygon.getYPoints();
         int n = xi.length;
         for (int i = 0; i < n; i++) {
-            double x1 = xi[i];
-            double y1 = yi[i];
-            double x2 = xi[(i + 1) % n];
-            double y2 = yi[(i + 1) % n];
-            if (PseudoRegionSide.isOnSide(x1, y1, x2, y2, x, y)) {
-                if (cornerMode.equals(CornerPoint2D.IS_LINESLIDER)) {
-                    return new CornerPoint2D.LineSlider(x, y, new Line2D.Double(x1, y1, x2, y2));
-                } else if (cornerMode.equals(CornerPoint2D.IS_MOVABLE)) {
-                    return new CornerPoint2D.Movable(x, y);
-                } else if (cornerMode.equals(CornerPoint2D.IS_IMMOVABLE)) {
-                    return new CornerPoint2D.Immovable(x, y);
-                }
-            }
+            segments.add(xi[i], yi[i], xi[(i + 1) % n], yi[(i + 1) % n]);
         }
-        return null;
     }
 }
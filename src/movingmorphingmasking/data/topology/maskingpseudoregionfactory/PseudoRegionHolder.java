@@ -5,8 +5,13 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
 import kn.uni.voronoitreemap.j2d.PolygonSimple;
 import movingmorphingmasking.data.topology.CornerPoint2D;
+import movingmorphingmasking.data.util.event.PointToCornerMapEvent;
 
 /**
  * Holder for geometric details and structures of a tesselation with 
@@ -20,6 +25,7 @@ public final class PseudoRegionHolder {
     private List<PolygonSimple> tesselation;
     private HashMap<Point2D, CornerPoint2D> mapPointToCorner;
     private List<PseudoRegionSide> pseudoRegionSides;
+    private final AtomicLong predicateCalls = new AtomicLong();
 
     /**
      * Constructor for a specific tesselation with pseudo regions.
@@ -34,8 +40,36 @@ public final class PseudoRegionHolder {
         this.basePolygon = basePolygon;
         this.pseudoRegionTesselation = pseudoRegionTesselation;
         this.tesselation = tesselation;
-        this.mapPointToCorner = getPointToCornerMap();
-        this.pseudoRegionSides = createPseudoRegionSides();
+        this.mapPointToCorner = getPointToCornerMap(null);
+        this.pseudoRegionSides = createPseudoRegionSides(null);
+    }
+
+    /**
+     * Constructor for a specific tesselation with pseudo regions that builds
+     * the structures in parallel on a specific pool. The map of points to
+     * corners and the pseudo region sides are built concurrently, the points
+     * are classified in parallel chunks and the points of the tesselation are
+     * added to the sides in parallel. The result is the same as of the
+     * sequential constructor.
+     * @param basePolygon  base polygon of the tesselation
+     * @param pseudoRegionTesselation polygones the shows the pseudo region structure.
+     * @param tesselation  tesselation of the basePolygon
+     * @param pool pool of the construction.
+     */
+    public PseudoRegionHolder(PolygonSimple basePolygon,
+            List<PolygonSimple> pseudoRegionTesselation, List<PolygonSimple> tesselation, final ForkJoinPool pool) {
+
+        this.basePolygon = basePolygon;
+        this.pseudoRegionTesselation = pseudoRegionTesselation;
+        this.tesselation = tesselation;
+        ForkJoinTask<List<PseudoRegionSide>> sides = pool.submit(new Callable<List<PseudoRegionSide>>() {
+            @Override
+            public List<PseudoRegionSide> call() {
+                return createPseudoRegionSides(pool);
+            }
+        });
+        this.mapPointToCorner = getPointToCornerMap(pool);
+        this.pseudoRegionSides = sides.join();
     }
 
     /**
@@ -80,6 +114,16 @@ public final class PseudoRegionHolder {
         return pseudoRegionSides;
     }
 
+    /**
+     * Returns the count of side lookups of all calls of
+     * {@link PseudoRegionHolder#getCornerPoints(PolygonSimple, boolean)} so
+     * far that count them.
+     * @return count of side lookups.
+     */
+    public long getPredicateCallCount() {
+        return predicateCalls.get();
+    }
+
     /**
      * Returns all <code>CornerPoint2D</code> of a specific polygon of this
      * tesselation. It might be more <code>CornerPoint2D</code>s the the polygon has
@@ -88,50 +132,89 @@ public final class PseudoRegionHolder {
      * @return <code>CornerPoint2D</code> associated to a specific polygon.
      */
     public CornerPoint2D[] getCornerPoints(PolygonSimple tesselationPolygon) {
+        return getCornerPoints(tesselationPolygon, false);
+    }
+
+    /**
+     * Returns all <code>CornerPoint2D</code> of a specific polygon of this
+     * tesselation like {@link PseudoRegionHolder#getCornerPoints(PolygonSimple)}
+     * and adds the count of its side lookups to the predicate call count,
+     * e.g. while a recording event of the ring assembly is enabled. It may be
+     * called concurrently.
+     * @param tesselationPolygon polygon of the tesselation.
+     * @param countPredicateCalls <tt>true</tt> to count the side lookups.
+     * @return <code>CornerPoint2D</code> associated to a specific polygon.
+     */
+    public CornerPoint2D[] getCornerPoints(PolygonSimple tesselationPolygon, boolean countPredicateCalls) {
         List<CornerPoint2D> cornerPoint2Ds = new ArrayList<CornerPoint2D>();
 
         double[] xi = tesselationPolygon.getXPoints();
         double[] yi = tesselationPolygon.getYPoints();
         int n = xi.length;
+        int[] sideLookups = countPredicateCalls ? new int[1] : null;
 
         for (int i = 0; i < n; i++) {
             double x1 = xi[i];
             double y1 = yi[i];
             double x2 = xi[(i + 1) % n];
             double y2 = yi[(i + 1) % n];
-            CornerPoint2D[] cornerPointOnSide = createCornerPointOnSide(x1, y1, x2, y2);
+            CornerPoint2D[] cornerPointOnSide = createCornerPointOnSide(x1, y1, x2, y2, sideLookups);
             cornerPoint2Ds.addAll(Arrays.asList(cornerPointOnSide));
         }
+        if (sideLookups != null) {
+            predicateCalls.addAndGet(sideLookups[0]);
+        }
         return cornerPoint2Ds.toArray(new CornerPoint2D[cornerPoint2Ds.size()]);
     }
 
-    private CornerPoint2D[] createCornerPointOnSide(double x1, double y1, double x2, double y2) {
-        List<Point2D> pointsOnSide = getPointsOnSide(x1, y1, x2, y2);
-        CornerPoint2D[] corners = new CornerPoint2D[pointsOnSide.size()];
+    private CornerPoint2D[] createCornerPointOnSide(double x1, double y1, double x2, double y2, int[] sideLookups) {
+        List<Point2D> pointsOnSide = getPointsOnSide(x1, y1, x2, y2, sideLookups);
+        CornerPoint2D[] corners = new CornerPoint2D[pointsOnSide.size() - 1];
         for (int i = 1; i < pointsOnSide.size(); i++) {
             Point2D point2D = pointsOnSide.get(i);
-            corners[i] = mapPointToCorner.get(point2D);
+            corners[i - 1] = mapPointToCorner.get(point2D);
         }
         return corners;
     }
 
-    private List<Point2D> getPointsOnSide(double x1, double y1, double x2, double y2) {
-        for (PseudoRegionSide punnetSide : pseudoRegionSides) {
-            List<Point2D> pointsOnSideBetween = punnetSide.getPointsOnSideBetween(x1, y1, x2, y2);
+    private List<Point2D> getPointsOnSide(double x1, double y1, double x2, double y2, int[] sideLookups) {
+        int n = pseudoRegionSides.size();
+        for (int i = 0; i < n; i++) {
+            List<Point2D> pointsOnSideBetween = pseudoRegionSides.get(i).getPointsOnSideBetween(x1, y1, x2, y2);
             if (!pointsOnSideBetween.isEmpty()) {
+                if (sideLookups != null) {
+                    sideLookups[0] += i + 1;
+                }
                 return pointsOnSideBetween;
             }
         }
+        if (sideLookups != null) {
+            sideLookups[0] += n;
+        }
         return Arrays.asList(new Point2D[]{new Point2D.Double(x1, y1), new Point2D.Double(x2, y2)});
     }
     
-    private HashMap<Point2D, CornerPoint2D> getPointToCornerMap() {
-        MapPointToCornerFactory mapPointToCornerFactory = new MapPointToCornerFactory(basePolygon);
-        return mapPointToCornerFactory.createPointToCornerMap(pseudoRegionTesselation, tesselation);
+    private HashMap<Point2D, CornerPoint2D> getPointToCornerMap(ForkJoinPool pool) {
+        PointToCornerMapEvent event = new PointToCornerMapEvent();
+        event.begin();
+        PseudoRegionCornerPoint2DFactory cornerPoint2DFactory =
+                new PseudoRegionCornerPoint2DFactory(basePolygon, pseudoRegionTesselation);
+        cornerPoint2DFactory.setCountPredicateCalls(event.isEnabled());
+        MapPointToCornerFactory mapPointToCornerFactory = new MapPointToCornerFactory(cornerPoint2DFactory);
+        HashMap<Point2D, CornerPoint2D> pointToCornerMap = pool == null
+                ? mapPointToCornerFactory.createPointToCornerMap(tesselation)
+                : mapPointToCornerFactory.createPointToCornerMap(tesselation, pool);
+        event.end();
+        if (event.shouldCommit()) {
+            event.setVertices(pointToCornerMap.size());
+            event.setPredicateCalls(cornerPoint2DFactory.getPredicateCallCount());
+            event.commit();
+        }
+        return pointToCornerMap;
     }
 
-    private List<PseudoRegionSide> createPseudoRegionSides() {
-        PseudoRegionSideFactory punnetSideFactory = new PseudoRegionSideFactory(pseudoRegionTesselation, tesselation);
+    private List<PseudoRegionSide> createPseudoRegionSides(ForkJoinPool pool) {
+        PseudoRegionSideFactory punnetSideFactory = new PseudoRegionSideFactory(pseudoRegionTesselation, tesselation, pool);
         return punnetSideFactory.getPseudoRegionSides();
     }
 }
@@ -0,0 +1,76 @@
+package movingmorphingmasking.data.topology.maskingpseudoregionfactory;
+
+import java.util.List;
+import kn.uni.voronoitreemap.j2d.PolygonSimple;
+
+/**
+ * A job of the <code>PseudoRegionBatchBuilder</code>: the base polygon, the
+ * pseudo region tesselation and the tesselation of one layout.
+ *
+ * @author julia schueler
+ */
+public class PseudoRegionJob {
+
+    private final String id;
+    private final PolygonSimple basePolygon;
+    private final List<PolygonSimple> pseudoRegionTesselation;
+    private final List<PolygonSimple> tesselation;
+
+    /**
+     * Constructor for a job of a specific layout.
+     *
+     * @param id identifier of the job.
+     * @param basePolygon base polygon of the tesselation
+     * @param pseudoRegionTesselation polygones the shows the pseudo region
+     * structure.
+     * @param tesselation tesselation of the basePolygon
+     */
+    public PseudoRegionJob(String id, PolygonSimple basePolygon,
+            List<PolygonSimple> pseudoRegionTesselation, List<PolygonSimple> tesselation) {
+        this.id = id;
+        this.basePolygon = basePolygon;
+        this.pseudoRegionTesselation = pseudoRegionTesselation;
+        this.tesselation = tesselation;
+    }
+
+    /**
+     * Returns the identifier of the job.
+     *
+     * @return identifier.
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Returns the base polygon of the tesselation with pseudo regions.
+     *
+     * @return base polygon.
+     */
+    public PolygonSimple getBasePolygon() {
+        return basePolygon;
+    }
+
+    /**
+     * Returns the pseudo region structure as a tesselation.
+     *
+     * @return pseudo region structure tesselation.
+     */
+    public List<PolygonSimple> getPseudoRegionTesselation() {
+        return pseudoRegionTesselation;
+    }
+
+    /**
+     * Returns the tesselation of the base polygon.
+     *
+     * @return tesselation
+     */
+    public List<PolygonSimple> getTesselation() {
+        return tesselation;
+    }
+
+    @Override
+    public String toString() {
+        return id;
+    }
+}
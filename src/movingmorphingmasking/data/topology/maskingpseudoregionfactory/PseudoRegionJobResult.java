@@ -0,0 +1,98 @@
+package movingmorphingmasking.data.topology.maskingpseudoregionfactory;
+
+import java.util.List;
+import movingmorphingmasking.data.topology.PolygonDeformable;
+
+/**
+ * Result of a <code>PseudoRegionJob</code> of the
+ * <code>PseudoRegionBatchBuilder</code>.
+ *
+ * @author julia schueler
+ */
+public class PseudoRegionJobResult {
+
+    /**
+     * States of a finished job.
+     */
+    public static enum Status {
+
+        completed, failed, timedOut, cancelled
+    };
+    private final PseudoRegionJob job;
+    private final Status status;
+    private final PseudoRegionHolder pseudoRegionHolder;
+    private final List<PolygonDeformable> polygons;
+    private final Throwable error;
+    private final long nanos;
+
+    PseudoRegionJobResult(PseudoRegionJob job, Status status, PseudoRegionHolder pseudoRegionHolder,
+            List<PolygonDeformable> polygons, Throwable error, long nanos) {
+        this.job = job;
+        this.status = status;
+        this.pseudoRegionHolder = pseudoRegionHolder;
+        this.polygons = polygons;
+        this.error = error;
+        this.nanos = nanos;
+    }
+
+    /**
+     * Returns the job of this result.
+     *
+     * @return job.
+     */
+    public PseudoRegionJob getJob() {
+        return job;
+    }
+
+    /**
+     * Returns the state of the finished job.
+     *
+     * @return state.
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Returns the holder of the layout, or <code>null</code> if the job did
+     * not complete.
+     *
+     * @return holder of the layout.
+     */
+    public PseudoRegionHolder getPseudoRegionHolder() {
+        return pseudoRegionHolder;
+    }
+
+    /**
+     * Returns the tesselation of <code>PolygonDeformable</code>, or
+     * <code>null</code> if the job did not complete.
+     *
+     * @return deformable polygons.
+     */
+    public List<PolygonDeformable> getPolygons() {
+        return polygons;
+    }
+
+    /**
+     * Returns the error of a failed job.
+     *
+     * @return error or <code>null</code>.
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    /**
+     * Returns the time between the start of the job and its result.
+     *
+     * @return time in nanoseconds.
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    @Override
+    public String toString() {
+        return job + " " + status + " " + (nanos / 1000000) + " ms";
+    }
+}
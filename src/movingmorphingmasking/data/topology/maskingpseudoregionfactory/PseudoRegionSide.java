@@ -6,6 +6,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import kn.uni.voronoitreemap.j2d.PolygonSimple;
+import movingmorphingmasking.data.topology.SegmentTable;
 import movingmorphingmasking.data.util.comparator.DistanceToPointComparator;
 
 /**
@@ -18,8 +19,8 @@ import movingmorphingmasking.data.util.comparator.DistanceToPointComparator;
  */
 public class PseudoRegionSide {
 
-    private double x1, x2, y1, y2;
-    private double sideLengthSq;
+    private final SegmentTable segments;
+    private final int segment;
     private List<PolygonSimple> associatedPolygons;
     private List<Point2D> pointsOnSide;
 
@@ -39,7 +40,7 @@ public class PseudoRegionSide {
     /**
      * Constructor for a
      * <code>PseudoRegionSide</code> with the start point (x1,y1) and end point
-     * (x2, y2).
+     * (x2, y2). The side is interned in the shared <code>SegmentTable</code>.
      *
      * @param x1 X Coordinate of the start point
      * @param y1 Y Coordinate of the start point
@@ -47,17 +48,83 @@ public class PseudoRegionSide {
      * @param y2 Y Coordinate of the end point.
      */
     public PseudoRegionSide(double x1, double y1, double x2, double y2) {
-        this.x1 = x1;
-        this.y1 = y1;
-        this.x2 = x2;
-        this.y2 = y2;
+        this(SegmentTable.getSharedTable(), x1, y1, x2, y2);
+    }
 
-        this.sideLengthSq = Point2D.distanceSq(x1, y1, x2, y2);
+    /**
+     * Constructor for a
+     * <code>PseudoRegionSide</code> on a specific segment of a shared
+     * <code>SegmentTable</code>.
+     *
+     * @param segments table of the segment.
+     * @param segment index of the segment.
+     */
+    public PseudoRegionSide(SegmentTable segments, int segment) {
+        this.segments = segments;
+        this.segment = segment;
 
         this.associatedPolygons = new ArrayList<PolygonSimple>(2);
         this.pointsOnSide = new ArrayList<Point2D>();
-        this.pointsOnSide.add(new Point2D.Double(x1, y1));
-        this.pointsOnSide.add(new Point2D.Double(x2, y2));
+        this.pointsOnSide.add(new Point2D.Double(segments.getX1(segment), segments.getY1(segment)));
+        this.pointsOnSide.add(new Point2D.Double(segments.getX2(segment), segments.getY2(segment)));
+    }
+
+    private PseudoRegionSide(SegmentTable segments, double x1, double y1, double x2, double y2) {
+        this(segments, segments.intern(x1, y1, x2, y2));
+    }
+
+    /**
+     * Returns the table of the segment of this.
+     *
+     * @return segment table.
+     */
+    public SegmentTable getSegmentTable() {
+        return segments;
+    }
+
+    /**
+     * Returns the index of the segment of this in its table.
+     *
+     * @return index of the segment.
+     */
+    public int getSegment() {
+        return segment;
+    }
+
+    /**
+     * Returns the X coordinate of the start point of this.
+     *
+     * @return X coordinate.
+     */
+    public double getX1() {
+        return segments.getX1(segment);
+    }
+
+    /**
+     * Returns the Y coordinate of the start point of this.
+     *
+     * @return Y coordinate.
+     */
+    public double getY1() {
+        return segments.getY1(segment);
+    }
+
+    /**
+     * Returns the X coordinate of the end point of this.
+     *
+     * @return X coordinate.
+     */
+    public double getX2() {
+        return segments.getX2(segment);
+    }
+
+    /**
+     * Returns the Y coordinate of the end point of this.
+     *
+     * @return Y coordinate.
+     */
+    public double getY2() {
+        return segments.getY2(segment);
     }
 
     /**
@@ -91,10 +158,14 @@ public class PseudoRegionSide {
      * @return <tt>true</tt> if the side (x1,y1)->(x2,y2) equals this.
      */
     public boolean isEqualSide(double x1, double y1, double x2, double y2) {
-        if (x1 == this.x1 && x2 == this.x2 && y1 == this.y1 && y2 == this.y2) {
+        double sx1 = getX1();
+        double sy1 = getY1();
+        double sx2 = getX2();
+        double sy2 = getY2();
+        if (x1 == sx1 && x2 == sx2 && y1 == sy1 && y2 == sy2) {
             return true;
         }
-        if (x2 == this.x1 && x1 == this.x2 && y2 == this.y1 && y1 == this.y2) {
+        if (x2 == sx1 && x1 == sx2 && y2 == sy1 && y1 == sy2) {
             return true;
         }
         return false;
@@ -107,7 +178,7 @@ public class PseudoRegionSide {
      * @return
      */
     public boolean isOnSameStraightLine(PseudoRegionSide side) {
-        return isOnSameStraightLine(side.x1, side.y1, side.x2, side.y2);
+        return isOnSameStraightLine(side.getX1(), side.getY1(), side.getX2(), side.getY2());
     }
 
     /**
@@ -124,9 +195,51 @@ public class PseudoRegionSide {
         if (isEqualSide(x1, y1, x2, y2)) {
             return true;
         }
-        PseudoRegionSide side = getLongestPseudoRegionSide(new PseudoRegionSide(x1, y1, x2, y2));
-        return (side.isOnSide(x1, y1) && side.isOnSide(x2, y2)
-                && side.isOnSide(this.x1, this.y1) && side.isOnSide(this.x2, this.y2));
+        double tx1 = getX1();
+        double ty1 = getY1();
+        double tx2 = getX2();
+        double ty2 = getY2();
+        double ax, ay, bx, by;
+        switch (getLongestSegment(tx1, ty1, tx2, ty2, x1, y1, x2, y2)) {
+            case 0:
+                ax = tx1;
+                ay = ty1;
+                bx = tx2;
+                by = ty2;
+                break;
+            case 1:
+                ax = x1;
+                ay = y1;
+                bx = x2;
+                by = y2;
+                break;
+            case 2:
+                ax = x1;
+                ay = y1;
+                bx = tx2;
+                by = ty2;
+                break;
+            case 3:
+                ax = x1;
+                ay = y1;
+                bx = tx1;
+                by = ty1;
+                break;
+            case 4:
+                ax = x2;
+                ay = y2;
+                bx = tx2;
+                by = ty2;
+                break;
+            default:
+                ax = x2;
+                ay = y2;
+                bx = tx1;
+                by = ty1;
+                break;
+        }
+        return (isOnSide(ax, ay, bx, by, x1, y1) && isOnSide(ax, ay, bx, by, x2, y2)
+                && isOnSide(ax, ay, bx, by, tx1, ty1) && isOnSide(ax, ay, bx, by, tx2, ty2));
     }
 
     /**
@@ -170,11 +283,8 @@ public class PseudoRegionSide {
      * @return <tt>true</tt>
      */
     public boolean addPoint(double x, double y) {
-        System.out.println("Side " + x1 + " " + y1 + " -> " + x2 + " " + y2);
-        System.out.println(" look at " + x + " " + y + " " + isOnSide(x, y));
         if (isOnSide(x, y) && indexOfPoint(x, y) < 0) {
             pointsOnSide.add(new Point2D.Double(x, y));
-            System.out.println("   can add it");
             return true;
         }
         return false;
@@ -191,16 +301,7 @@ public class PseudoRegionSide {
      * @return <tt>true</tt>
      */
     public boolean isOnSide(double x, double y) {
-        int relativeCCW = Line2D.relativeCCW(x1, y1, x2, y2, x, y);
-        if (relativeCCW == 0) {
-            double d1 = Point2D.distanceSq(x1, y1, x, y);
-            if (d1 <= sideLengthSq) {
-                return Point2D.distanceSq(x2, y2, x, y) <= sideLengthSq;
-            }
-            return false;
-
-        }
-        return false;
+        return segments.isOnSegment(segment, x, y);
     }
 
     /**
@@ -216,7 +317,7 @@ public class PseudoRegionSide {
      * @return <tt>true</tt>
      */
     public static boolean isOnSide(double x1, double y1, double x2, double y2, double x, double y) {
-        return new PseudoRegionSide(x1, y1, x2, y2).isOnSide(x, y);
+        return SegmentTable.isOnSegment(x1, y1, x2, y2, x, y);
     }
 
     /**
@@ -260,7 +361,6 @@ public class PseudoRegionSide {
         int index_1 = indexOfPoint(x1, y1);
         int index_2 = indexOfPoint(x2, y2);
         int n = pointsOnSide.size();
-        System.out.println("index 1 " + index_1 + " index_2 " + index_2 + " n " + n);
         if (index_1 < 0 || index_2 < 0 || index_1 == index_2) {
             return points;
         }
@@ -285,39 +385,65 @@ public class PseudoRegionSide {
      * <code>DistanceToPointComparator</code>.
      */
     public void sortPointsOnSide() {
-        Collections.sort(pointsOnSide, new DistanceToPointComparator(x1, y1));
+        Collections.sort(pointsOnSide, new DistanceToPointComparator(getX1(), getY1()));
     }
 
     @Override
     public String toString() {
-        return x1 + " " + y1 + " --> " + x2 + " " + y2;
+        return getX1() + " " + getY1() + " --> " + getX2() + " " + getY2();
     }
 
     private PseudoRegionSide getLongestPseudoRegionSide(PseudoRegionSide side) {
+        double x1 = getX1();
+        double y1 = getY1();
+        double x2 = getX2();
+        double y2 = getY2();
+        double sx1 = side.getX1();
+        double sy1 = side.getY1();
+        double sx2 = side.getX2();
+        double sy2 = side.getY2();
+        switch (getLongestSegment(x1, y1, x2, y2, sx1, sy1, sx2, sy2)) {
+            case 0:
+                return this;
+            case 1:
+                return side;
+            case 2:
+                return new PseudoRegionSide(sx1, sy1, x2, y2);
+            case 3:
+                return new PseudoRegionSide(sx1, sy1, x1, y1);
+            case 4:
+                return new PseudoRegionSide(sx2, sy2, x2, y2);
+            default:
+                return new PseudoRegionSide(sx2, sy2, x1, y1);
+        }
+    }
+
+    /**
+     * Returns which connection of the end points of the sides (x1,y1)->(x2,y2)
+     * and (sx1,sy1)->(sx2,sy2) is the longest: 0 for the first side, 1 for the
+     * second side, then 2 to 5 for (sx1,sy1)->(x2,y2), (sx1,sy1)->(x1,y1),
+     * (sx2,sy2)->(x2,y2) and (sx2,sy2)->(x1,y1).
+     */
+    private static int getLongestSegment(double x1, double y1, double x2, double y2,
+            double sx1, double sy1, double sx2, double sy2) {
         double d1 = Point2D.distanceSq(x1, y1, x2, y2);
-        double d2 = Point2D.distanceSq(side.x1, side.y1, side.x2, side.y2);
-        double d3 = Point2D.distanceSq(side.x1, side.y1, x2, y2);
-        double d4 = Point2D.distanceSq(side.x1, side.y1, x1, y1);
-        double d5 = Point2D.distanceSq(side.x2, side.y2, x2, y2);
-        double d6 = Point2D.distanceSq(side.x2, side.y2, x1, y1);
+        double d2 = Point2D.distanceSq(sx1, sy1, sx2, sy2);
+        double d3 = Point2D.distanceSq(sx1, sy1, x2, y2);
+        double d4 = Point2D.distanceSq(sx1, sy1, x1, y1);
+        double d5 = Point2D.distanceSq(sx2, sy2, x2, y2);
+        double d6 = Point2D.distanceSq(sx2, sy2, x1, y1);
         if (d1 >= d2 && d1 >= d3 && d1 >= d4 && d1 >= d5 && d1 >= d6) {
-            return this;
+            return 0;
         }
         if (d2 >= d3 && d2 >= d4 && d2 >= d5 && d2 >= d6) {
-            return side;
+            return 1;
         }
         if (d3 >= d4 && d3 >= d5 && d3 >= d6) {
-            return new PseudoRegionSide(side.x1, side.y1, x2, y2);
+            return 2;
         }
         if (d4 >= d5 && d4 >= d6) {
-            return new PseudoRegionSide(side.x1, side.y1, x1, y1);
-        }
-        if (d5 >= d6) {
-            return new PseudoRegionSide(side.x2, side.y2, x2, y2);
+            return 3;
         }
-        return new PseudoRegionSide(side.x2, side.y2, x1, y1);
-
-
-
+        return d5 >= d6 ? 4 : 5;
     }
 }
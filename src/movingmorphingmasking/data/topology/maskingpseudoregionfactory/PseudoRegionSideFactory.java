@@ -1,12 +1,26 @@
 package movingmorphingmasking.data.topology.maskingpseudoregionfactory;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import kn.uni.voronoitreemap.j2d.PolygonSimple;
+import movingmorphingmasking.data.topology.SegmentTable;
+import movingmorphingmasking.data.util.event.SideDetectionEvent;
+import movingmorphingmasking.data.util.event.SidePruningEvent;
+import movingmorphingmasking.data.util.event.TJunctionInsertionEvent;
 
 /**
  * Factory for a pseudo region sides detection. It detects possible pseudo
  * region side of a specific tesselation with pseudo region structures.
+ * <p>
+ * The parallel insertion of the tesselation points splits the sides into
+ * ranges, not by pseudo region polygon. A side is shared by the two regions
+ * it separates, so two region tasks would add points to the same point list
+ * concurrently. A range task only writes the point lists of its own sides
+ * and only reads the tesselation, and the points of a side are sorted after
+ * the insertion, so the result is the same as of the sequential insertion.
  *
  * @author julia schueler
  */
@@ -15,6 +29,10 @@ public class PseudoRegionSideFactory {
     private List<PolygonSimple> pseudoRegionTesselation;
     private List<PolygonSimple> tesselation;
     private List<PseudoRegionSide> pseudoRegionSides;
+    private long predicateCalls;
+    private boolean countPredicateCalls;
+    private final ForkJoinPool pool;
+    private SegmentTable segments;
 
     /**
      * Constructor for a
@@ -26,9 +44,27 @@ public class PseudoRegionSideFactory {
      * @param tesselation specific tesselation
      */
     public PseudoRegionSideFactory(List<PolygonSimple> pseudoRegionTesselation, List<PolygonSimple> tesselation) {
+        this(pseudoRegionTesselation, tesselation, null);
+    }
+
+    /**
+     * Constructor for a
+     * <code>PseudoRegionSideFactory</code> that detects the same sides in the
+     * same order as the sequential one, but on a specific pool: the points of
+     * the tesselation are added to ranges of sides in parallel.
+     *
+     * @param pseudoRegionTesselation tesselation with the unwanted pseudo
+     * regions.
+     * @param tesselation specific tesselation
+     * @param pool pool of the detection or <code>null</code> for the
+     * sequential detection.
+     */
+    public PseudoRegionSideFactory(List<PolygonSimple> pseudoRegionTesselation, List<PolygonSimple> tesselation,
+            ForkJoinPool pool) {
         this.pseudoRegionTesselation = pseudoRegionTesselation;
         this.tesselation = tesselation;
         this.pseudoRegionSides = null;
+        this.pool = pool;
     }
 
     /**
@@ -49,13 +85,28 @@ public class PseudoRegionSideFactory {
     }
 
     private void detectAllPossiblePseudoRegionSides() {
+        SideDetectionEvent event = new SideDetectionEvent();
+        event.begin();
+        predicateCalls = 0;
+        countPredicateCalls = event.isEnabled();
         pseudoRegionSides = new ArrayList<PseudoRegionSide>();
+        segments = new SegmentTable();
+        int vertices = 0;
+        HashMap<SideKey, PseudoRegionSide> sideByKey = new HashMap<SideKey, PseudoRegionSide>();
         for (PolygonSimple polygonSimple : pseudoRegionTesselation) {
-            createPseudoRegionSides(polygonSimple);
+            createPseudoRegionSides(polygonSimple, sideByKey);
+            vertices += polygonSimple.getXPoints().length;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.setVertices(vertices);
+            event.setSides(pseudoRegionSides.size());
+            event.setPredicateCalls(predicateCalls);
+            event.commit();
         }
     }
 
-    private void createPseudoRegionSides(PolygonSimple polygonSimple) {
+    private void createPseudoRegionSides(PolygonSimple polygonSimple, HashMap<SideKey, PseudoRegionSide> sideByKey) {
         double[] xi = polygonSimple.getXPoints();
         double[] yi = polygonSimple.getYPoints();
         int n = xi.length;
@@ -64,52 +115,77 @@ public class PseudoRegionSideFactory {
             double y1 = yi[i];
             double x2 = xi[(i + 1) % n];
             double y2 = yi[(i + 1) % n];
-            PseudoRegionSide pseudoRegionSide = getPseudoRegionSideForPolygonSide(x1, y1, x2, y2);
+            SideKey key = new SideKey(x1, y1, x2, y2);
+            PseudoRegionSide pseudoRegionSide = sideByKey.get(key);
+            if (pseudoRegionSide == null) {
+                pseudoRegionSide = new PseudoRegionSide(segments, segments.add(x1, y1, x2, y2));
+                pseudoRegionSides.add(pseudoRegionSide);
+                sideByKey.put(key, pseudoRegionSide);
+            }
             pseudoRegionSide.addAssociatedPolygon(polygonSimple);
         }
-    }
-
-    private PseudoRegionSide getPseudoRegionSideForPolygonSide(double x1, double y1, double x2, double y2) {
-        PseudoRegionSide pseudoRegionSide = getPseudoRegionSide(x1, y1, x2, y2);
-        if (pseudoRegionSide == null) {
-            pseudoRegionSide = new PseudoRegionSide(x1, y1, x2, y2);
-            pseudoRegionSides.add(pseudoRegionSide);
-        }
-        return pseudoRegionSide;
-    }
-
-    private PseudoRegionSide getPseudoRegionSide(double x1, double y1, double x2, double y2) {
-        for (PseudoRegionSide pseudoRegionSide : pseudoRegionSides) {
-            if (pseudoRegionSide.isEqualSide(x1, y1, x2, y2)) {
-                return pseudoRegionSide;
-            }
+        if (countPredicateCalls) {
+            predicateCalls += n;
         }
-        return null;
     }
 
     private void removeSidesWithOnlyOneAssociatedPolygon() {
+        SidePruningEvent event = new SidePruningEvent();
+        event.begin();
+        int detectedSides = pseudoRegionSides.size();
         for (int i = pseudoRegionSides.size() - 1; i >= 0; i--) {
             PseudoRegionSide pseudoRegionSide = pseudoRegionSides.get(i);
             if (pseudoRegionSide.getAssociatedPolygonCount() != 2) {
                 pseudoRegionSides.remove(i);
             }
         }
+        event.end();
+        if (event.shouldCommit()) {
+            event.setSides(detectedSides);
+            event.setPredicateCalls(detectedSides);
+            event.commit();
+        }
     }
 
     private void addPointsOnPseudoRegionSideAndSortThem() {
-        for (PseudoRegionSide pseudoRegionSide : pseudoRegionSides) {
-            addPointsOnPseudoRegion(pseudoRegionSide);
-            pseudoRegionSide.sortPointsOnSide();
+        TJunctionInsertionEvent event = new TJunctionInsertionEvent();
+        event.begin();
+        predicateCalls = 0;
+        countPredicateCalls = event.isEnabled();
+        if (pool == null) {
+            for (PseudoRegionSide pseudoRegionSide : pseudoRegionSides) {
+                addPointsOnPseudoRegion(pseudoRegionSide);
+                pseudoRegionSide.sortPointsOnSide();
+            }
+        } else {
+            predicateCalls = pool.invoke(new InsertionTask(0, pseudoRegionSides.size()));
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            int vertices = 0;
+            for (PolygonSimple polygonSimple : tesselation) {
+                vertices += polygonSimple.getXPoints().length;
+            }
+            event.setVertices(vertices);
+            event.setSides(pseudoRegionSides.size());
+            event.setPredicateCalls(predicateCalls);
+            event.commit();
         }
     }
 
     private void addPointsOnPseudoRegion(PseudoRegionSide pseudoRegionSide) {
+        predicateCalls += addTesselationPoints(pseudoRegionSide);
+    }
+
+    private long addTesselationPoints(PseudoRegionSide pseudoRegionSide) {
+        long calls = 0;
         for (PolygonSimple polygonSimple : tesselation) {
-            addPseudoRegionPoints(pseudoRegionSide, polygonSimple);
+            calls += addPseudoRegionPoints(pseudoRegionSide, polygonSimple);
         }
+        return countPredicateCalls ? calls : 0;
     }
 
-    private void addPseudoRegionPoints(PseudoRegionSide pseudoRegionSide, PolygonSimple polygonSimple) {
+    private int addPseudoRegionPoints(PseudoRegionSide pseudoRegionSide, PolygonSimple polygonSimple) {
         double[] xi = polygonSimple.getXPoints();
         double[] yi = polygonSimple.getYPoints();
         int n = xi.length;
@@ -118,5 +194,88 @@ public class PseudoRegionSideFactory {
             double y1 = yi[i];
             pseudoRegionSide.addPoint(x1, y1);
         }
+        return n;
+    }
+
+    /**
+     * Key of a side that is equal to the key of the reversed side. Like
+     * {@link PseudoRegionSide#isEqualSide} it compares the coordinates with
+     * <code>==</code>, so a side with a NaN coordinate equals no other side.
+     */
+    private static final class SideKey {
+
+        private final double x1, y1, x2, y2;
+
+        private SideKey(double x1, double y1, double x2, double y2) {
+            // + 0.0 turns -0.0 into 0.0, which are equal for ==
+            x1 += 0.0;
+            y1 += 0.0;
+            x2 += 0.0;
+            y2 += 0.0;
+            if (x1 < x2 || (x1 == x2 && y1 <= y2)) {
+                this.x1 = x1;
+                this.y1 = y1;
+                this.x2 = x2;
+                this.y2 = y2;
+            } else {
+                this.x1 = x2;
+                this.y1 = y2;
+                this.x2 = x1;
+                this.y2 = y1;
+            }
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof SideKey)) {
+                return false;
+            }
+            SideKey key = (SideKey) object;
+            return x1 == key.x1 && y1 == key.y1 && x2 == key.x2 && y2 == key.y2;
+        }
+
+        @Override
+        public int hashCode() {
+            long bits = Double.doubleToLongBits(x1);
+            bits = 31 * bits + Double.doubleToLongBits(y1);
+            bits = 31 * bits + Double.doubleToLongBits(x2);
+            bits = 31 * bits + Double.doubleToLongBits(y2);
+            return (int) (bits ^ (bits >>> 32));
+        }
+    }
+
+    /**
+     * Task of a range of sides whose points are added and sorted. It returns
+     * its count of point on side tests.
+     */
+    private class InsertionTask extends RecursiveTask<Long> {
+
+        private static final long serialVersionUID = 1L;
+        private static final int THRESHOLD = 4;
+        private final int from;
+        private final int to;
+
+        private InsertionTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from <= THRESHOLD) {
+                long calls = 0;
+                for (int i = from; i < to; i++) {
+                    PseudoRegionSide pseudoRegionSide = pseudoRegionSides.get(i);
+                    calls += addTesselationPoints(pseudoRegionSide);
+                    pseudoRegionSide.sortPointsOnSide();
+                }
+                return calls;
+            }
+            int middle = (from + to) >>> 1;
+            InsertionTask left = new InsertionTask(from, middle);
+            left.fork();
+            long right = new InsertionTask(middle, to).compute();
+            return left.join() + right;
+        }
     }
 }
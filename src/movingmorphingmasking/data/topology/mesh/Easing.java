@@ -0,0 +1,54 @@
+package movingmorphingmasking.data.topology.mesh;
+
+/**
+ * Easing functions of a keyframe interpolation. Every function maps the
+ * interpolation parameter s in [0, 1] to the eased parameter in [0, 1], with
+ * 0 mapped to 0 and 1 mapped to 1.
+ *
+ * @author julia schueler
+ */
+public enum Easing {
+
+    linear {
+        @Override
+        public double ease(double s) {
+            return s;
+        }
+    },
+    quadraticIn {
+        @Override
+        public double ease(double s) {
+            return s * s;
+        }
+    },
+    quadraticOut {
+        @Override
+        public double ease(double s) {
+            return s * (2 - s);
+        }
+    },
+    cubicInOut {
+        @Override
+        public double ease(double s) {
+            if (s < 0.5) {
+                return 4 * s * s * s;
+            }
+            double u = 2 * s - 2;
+            return 0.5 * u * u * u + 1;
+        }
+    },
+    smoothStep {
+        @Override
+        public double ease(double s) {
+            return s * s * (3 - 2 * s);
+        }
+    };
+
+    /**
+     * Returns the eased parameter of a specific interpolation parameter.
+     *
+     * @param s interpolation parameter in [0, 1].
+     * @return eased parameter.
+     */
+    public abstract double ease(double s);
+}
@@ -0,0 +1,115 @@
+package movingmorphingmasking.data.topology.mesh;
+
+/**
+ * Corner locations of a <code>MeshGeometry</code> in constraint space: x and
+ * y of every movable, the line parameter t of every line slider and nothing
+ * of the immovables. An interpolation of two keyframes keeps every line
+ * slider on its line without any projection.
+ *
+ * @author julia schueler
+ */
+public class Keyframe {
+
+    private final MeshTopology topology;
+    final double[] movableX;
+    final double[] movableY;
+    final double[] lineParameters;
+
+    /**
+     * Constructor for a keyframe of the initial corner locations of a
+     * specific topology.
+     *
+     * @param topology shared topology.
+     */
+    public Keyframe(MeshTopology topology) {
+        this(topology, topology.initialX, topology.initialY);
+    }
+
+    /**
+     * Constructor for a keyframe of the current corner locations of a
+     * specific geometry.
+     *
+     * @param geometry specific geometry.
+     */
+    public Keyframe(MeshGeometry geometry) {
+        this(geometry.getTopology(), geometry.x, geometry.y);
+    }
+
+    private Keyframe(MeshTopology topology, double[] x, double[] y) {
+        this.topology = topology;
+        this.movableX = new double[topology.lineSliderStart];
+        this.movableY = new double[topology.lineSliderStart];
+        this.lineParameters = new double[topology.immovableStart - topology.lineSliderStart];
+        readFrom(x, y);
+    }
+
+    /**
+     * Returns the topology of this.
+     *
+     * @return topology.
+     */
+    public MeshTopology getTopology() {
+        return topology;
+    }
+
+    /**
+     * Sets this to the current corner locations of a specific geometry.
+     *
+     * @param geometry geometry of the topology of this.
+     */
+    public void readFrom(MeshGeometry geometry) {
+        if (geometry.getTopology() != topology) {
+            throw new IllegalArgumentException("geometry of another topology");
+        }
+        readFrom(geometry.x, geometry.y);
+    }
+
+    /**
+     * Returns the X coordinate of a specific movable.
+     *
+     * @param corner index of the movable.
+     * @return X coordinate.
+     */
+    public double getMovableX(int corner) {
+        return movableX[corner];
+    }
+
+    /**
+     * Returns the Y coordinate of a specific movable.
+     *
+     * @param corner index of the movable.
+     * @return Y coordinate.
+     */
+    public double getMovableY(int corner) {
+        return movableY[corner];
+    }
+
+    /**
+     * Returns the line parameter t of a specific line slider, where 0 is the
+     * start point and 1 the end point of its line.
+     *
+     * @param corner index of the line slider.
+     * @return line parameter.
+     */
+    public double getLineParameter(int corner) {
+        return lineParameters[corner - topology.lineSliderStart];
+    }
+
+    private void readFrom(double[] x, double[] y) {
+        System.arraycopy(x, 0, movableX, 0, movableX.length);
+        System.arraycopy(y, 0, movableY, 0, movableY.length);
+        int start = topology.lineSliderStart;
+        double[] segments = topology.segments;
+        for (int i = 0; i < lineParameters.length; i++) {
+            int corner = start + i;
+            int s = 4 * topology.cornerSegments[corner];
+            double x1 = segments[s];
+            double y1 = segments[s + 1];
+            double dx = segments[s + 2] - x1;
+            double dy = segments[s + 3] - y1;
+            double lengthSq = dx * dx + dy * dy;
+            double t = lengthSq == 0 ? 0 : ((x[corner] - x1) * dx + (y[corner] - y1) * dy) / lengthSq;
+            lineParameters[i] = t < 0 ? 0 : (t > 1 ? 1 : t);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package movingmorphingmasking.data.topology.mesh;
+
+import java.util.Arrays;
+
+/**
+ * Keyframes of a morph animation on a timeline and their interpolation.
+ * <p>
+ * The keyframes are stored in constraint space (<code>Keyframe</code>). An
+ * in-between frame interpolates x and y of the movables and the line
+ * parameter of the line sliders with an easing function between the two
+ * keyframes around its time and writes the corner locations straight into a
+ * <code>MeshGeometry</code>. A line slider is placed on its line by its line
+ * parameter, so no frame needs a projection, and a frame allocates nothing.
+ *
+ * @author julia schueler
+ */
+public class KeyframeTrack {
+
+    private final MeshTopology topology;
+    private double[] times;
+    private Keyframe[] keyframes;
+    private Easing[] easings;
+    private int size;
+
+    /**
+     * Constructor for an empty track of a specific topology.
+     *
+     * @param topology shared topology.
+     */
+    public KeyframeTrack(MeshTopology topology) {
+        this.topology = topology;
+        this.times = new double[4];
+        this.keyframes = new Keyframe[4];
+        this.easings = new Easing[4];
+    }
+
+    /**
+     * Adds a keyframe at a specific time, after all other keyframes.
+     *
+     * @param time time of the keyframe.
+     * @param keyframe keyframe of the topology of this.
+     * @param easing easing from the previous keyframe to this one.
+     */
+    public void add(double time, Keyframe keyframe, Easing easing) {
+        if (keyframe.getTopology() != topology) {
+            throw new IllegalArgumentException("keyframe of another topology");
+        }
+        if (size > 0 && !(time > times[size - 1])) {
+            throw new IllegalArgumentException("time " + time + " is not after " + times[size - 1]);
+        }
+        if (size == times.length) {
+            times = Arrays.copyOf(times, 2 * size);
+            keyframes = Arrays.copyOf(keyframes, 2 * size);
+            easings = Arrays.copyOf(easings, 2 * size);
+        }
+        times[size] = time;
+        keyframes[size] = keyframe;
+        easings[size] = easing == null ? Easing.linear : easing;
+        size++;
+    }
+
+    /**
+     * Returns the count of keyframes.
+     *
+     * @return count of keyframes.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Writes the frame of a specific time into a geometry. Before the first
+     * and after the last keyframe the frame is the first or last keyframe.
+     *
+     * @param time time of the frame.
+     * @param geometry geometry of the topology of this.
+     */
+    public void sample(double time, MeshGeometry geometry) {
+        if (size == 0) {
+            throw new IllegalStateException("track has no keyframes");
+        }
+        int next = Arrays.binarySearch(times, 0, size, time);
+        if (next >= 0) {
+            interpolate(keyframes[next], keyframes[next], 0, geometry);
+            return;
+        }
+        next = -next - 1;
+        if (next == 0) {
+            interpolate(keyframes[0], keyframes[0], 0, geometry);
+        } else if (next == size) {
+            interpolate(keyframes[size - 1], keyframes[size - 1], 0, geometry);
+        } else {
+            double s = (time - times[next - 1]) / (times[next] - times[next - 1]);
+            interpolate(keyframes[next - 1], keyframes[next], easings[next].ease(s), geometry);
+        }
+    }
+
+    /**
+     * Writes the interpolation of two keyframes into a geometry.
+     *
+     * @param from keyframe at s = 0.
+     * @param to keyframe at s = 1.
+     * @param s eased interpolation parameter.
+     * @param geometry geometry of the topology of the keyframes.
+     */
+    public static void interpolate(Keyframe from, Keyframe to, double s, MeshGeometry geometry) {
+        MeshTopology topology = geometry.getTopology();
+        if (from.getTopology() != topology || to.getTopology() != topology) {
+            throw new IllegalArgumentException("keyframe of another topology");
+        }
+        double r = 1 - s;
+        double[] fromX = from.movableX;
+        double[] fromY = from.movableY;
+        double[] toX = to.movableX;
+        double[] toY = to.movableY;
+        for (int corner = 0; corner < fromX.length; corner++) {
+            geometry.set(corner, r * fromX[corner] + s * toX[corner], r * fromY[corner] + s * toY[corner]);
+        }
+        int start = topology.lineSliderStart;
+        double[] segments = topology.segments;
+        double[] fromT = from.lineParameters;
+        double[] toT = to.lineParameters;
+        for (int i = 0; i < fromT.length; i++) {
+            int corner = start + i;
+            int k = 4 * topology.cornerSegments[corner];
+            double t = r * fromT[i] + s * toT[i];
+            double x1 = segments[k];
+            double y1 = segments[k + 1];
+            geometry.set(corner, x1 + t * (segments[k + 2] - x1), y1 + t * (segments[k + 3] - y1));
+        }
+    }
+}
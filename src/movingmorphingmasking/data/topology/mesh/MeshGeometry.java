@@ -0,0 +1,388 @@
+package movingmorphingmasking.data.topology.mesh;
+
+import java.util.Arrays;
+import kn.uni.voronoitreemap.j2d.PolygonSimple;
+import movingmorphingmasking.data.topology.CornerPoint2D;
+import movingmorphingmasking.data.topology.PolygonAreaKernel;
+
+/**
+ * Corner locations and target areas of a single morph session on a shared
+ * <code>MeshTopology</code>. The state of a session is only a pair of
+ * <code>double[]</code> for the locations and a <code>double[]</code> for the
+ * target areas, all constraints of the corners are read from the topology.
+ * <p>
+ * A geometry supports checkpoints: while a checkpoint is open, every location
+ * change is recorded with the old location in a compact undo journal of
+ * (corner, old x, old y). Taking a checkpoint costs O(1) and a rollback is
+ * proportional to the count of changes since the checkpoint.
+ * <p>
+ * A <code>TraceRecorder</code> attached to a geometry records every change of
+ * a corner location with the resulting location, whichever method made it,
+ * and every change of a target area.
+ *
+ * @author julia schueler
+ */
+public class MeshGeometry {
+
+    private final MeshTopology topology;
+    final double[] x;
+    final double[] y;
+    final double[] targetAreas;
+    private int[] journalCorners;
+    private double[] journalX;
+    private double[] journalY;
+    private int journalSize;
+    private int[] checkpoints;
+    private int checkpointCount;
+    private TraceRecorder recorder;
+
+    /**
+     * Constructor for a geometry with the initial corner locations of a
+     * specific topology.
+     *
+     * @param topology shared topology.
+     */
+    public MeshGeometry(MeshTopology topology) {
+        this.topology = topology;
+        this.x = topology.initialX.clone();
+        this.y = topology.initialY.clone();
+        this.targetAreas = topology.targetAreas.clone();
+    }
+
+    /**
+     * Constructor for a copy of a specific geometry.
+     *
+     * @param geometry geometry to copy.
+     */
+    public MeshGeometry(MeshGeometry geometry) {
+        this.topology = geometry.topology;
+        this.x = geometry.x.clone();
+        this.y = geometry.y.clone();
+        this.targetAreas = geometry.targetAreas.clone();
+    }
+
+    /**
+     * Returns the shared topology of this.
+     *
+     * @return topology.
+     */
+    public MeshTopology getTopology() {
+        return topology;
+    }
+
+    /**
+     * Returns the X coordinate of a specific corner.
+     *
+     * @param corner index of the corner.
+     * @return X coordinate.
+     */
+    public double getX(int corner) {
+        return x[corner];
+    }
+
+    /**
+     * Returns the Y coordinate of a specific corner.
+     *
+     * @param corner index of the corner.
+     * @return Y coordinate.
+     */
+    public double getY(int corner) {
+        return y[corner];
+    }
+
+    /**
+     * Sets the location of a specific corner to the closest possible location
+     * of the specified coordinates, like
+     * {@link CornerPoint2D#setLocation(double, double)}: an immovable corner
+     * keeps its location, a line slider is projected onto its line.
+     *
+     * @param corner index of the corner.
+     * @param x the desired X coordinate of the corner.
+     * @param y the desired Y coordinate of the corner.
+     */
+    public void setLocation(int corner, double x, double y) {
+        switch (topology.kinds[corner]) {
+            case MeshTopology.MOVABLE:
+                set(corner, x, y);
+                break;
+            case MeshTopology.LINESLIDER:
+                int s = 4 * topology.cornerSegments[corner];
+                double[] segments = topology.segments;
+                double x1 = segments[s];
+                double y1 = segments[s + 1];
+                double dx = segments[s + 2] - x1;
+                double dy = segments[s + 3] - y1;
+                double lengthSq = dx * dx + dy * dy;
+                if (lengthSq == 0) {
+                    return;
+                }
+                double t = ((x - x1) * dx + (y - y1) * dy) / lengthSq;
+                t = t < 0 ? 0 : (t > 1 ? 1 : t);
+                set(corner, x1 + t * dx, y1 + t * dy);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Returns the target area of a specific polygon in this session.
+     *
+     * @param polygon index of the polygon.
+     * @return target area.
+     */
+    public double getTargetArea(int polygon) {
+        return targetAreas[polygon];
+    }
+
+    /**
+     * Sets the target area of a specific polygon in this session, e.g. to a
+     * changed target area of its <code>PolygonDeformable</code>. Other
+     * geometries on the same topology keep their target areas.
+     *
+     * @param polygon index of the polygon.
+     * @param targetArea target area.
+     */
+    public void setTargetArea(int polygon, double targetArea) {
+        if (!(targetArea >= 0)) {
+            throw new IllegalArgumentException("targetArea must not be negative: " + targetArea);
+        }
+        putTargetArea(polygon, targetArea);
+    }
+
+    /**
+     * Sets a valid target area and records it if a recorder is attached.
+     */
+    void putTargetArea(int polygon, double targetArea) {
+        if (recorder != null && targetAreas[polygon] != targetArea) {
+            recorder.recordTargetArea(polygon, targetArea);
+        }
+        targetAreas[polygon] = targetArea;
+    }
+
+    /**
+     * Returns the recorder attached to this.
+     *
+     * @return recorder or <code>null</code>.
+     */
+    public TraceRecorder getRecorder() {
+        return recorder;
+    }
+
+    void setRecorder(TraceRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Copies the corner locations of another geometry on the same topology.
+     *
+     * @param geometry geometry to copy.
+     */
+    public void copyFrom(MeshGeometry geometry) {
+        if (geometry.topology != topology) {
+            throw new IllegalArgumentException("geometry of another topology");
+        }
+        if (checkpointCount > 0 || recorder != null) {
+            for (int i = 0; i < x.length; i++) {
+                set(i, geometry.x[i], geometry.y[i]);
+            }
+            return;
+        }
+        System.arraycopy(geometry.x, 0, x, 0, x.length);
+        System.arraycopy(geometry.y, 0, y, 0, y.length);
+    }
+
+    /**
+     * Copies the current locations of the corners of a tesselation, given in
+     * the numbering of the topology (
+     * {@link MeshTopology#orderCorners}).
+     *
+     * @param corners corners of the tesselation.
+     */
+    public void readFrom(CornerPoint2D[] corners) {
+        for (int i = 0; i < x.length; i++) {
+            set(i, corners[i].getX(), corners[i].getY());
+        }
+    }
+
+    /**
+     * Sets the locations of the corners of a tesselation, given in the
+     * numbering of the topology, to the locations of this. The immovables are
+     * skipped.
+     *
+     * @param corners corners of the tesselation.
+     */
+    public void writeTo(CornerPoint2D[] corners) {
+        int end = topology.immovableStart;
+        for (int i = 0; i < end; i++) {
+            corners[i].setLocation(x[i], y[i]);
+        }
+    }
+
+    /**
+     * Opens a checkpoint. Until it is released, all location changes are
+     * recorded. Checkpoints are nested: a checkpoint taken while another one
+     * is open is closed with the outer one.
+     *
+     * @return checkpoint for {@link #rollback(int)} and {@link #release(int)}.
+     */
+    public int checkpoint() {
+        if (checkpoints == null) {
+            checkpoints = new int[8];
+        } else if (checkpointCount == checkpoints.length) {
+            checkpoints = Arrays.copyOf(checkpoints, 2 * checkpointCount);
+        }
+        checkpoints[checkpointCount] = journalSize;
+        return checkpointCount++;
+    }
+
+    /**
+     * Restores the locations of a specific open checkpoint. The checkpoint
+     * stays open, all checkpoints taken after it are closed.
+     *
+     * @param checkpoint open checkpoint.
+     * @return count of restored changes.
+     */
+    public int rollback(int checkpoint) {
+        checkCheckpoint(checkpoint);
+        int position = checkpoints[checkpoint];
+        int restored = journalSize - position;
+        for (int i = journalSize - 1; i >= position; i--) {
+            int corner = journalCorners[i];
+            if (recorder != null) {
+                recorder.recordLocation(corner, journalX[i], journalY[i]);
+            }
+            x[corner] = journalX[i];
+            y[corner] = journalY[i];
+        }
+        journalSize = position;
+        checkpointCount = checkpoint + 1;
+        return restored;
+    }
+
+    /**
+     * Releases a specific open checkpoint and all checkpoints taken after it
+     * and keeps all changes since it. The journal is cleared when the last
+     * open checkpoint is released.
+     *
+     * @param checkpoint open checkpoint.
+     */
+    public void release(int checkpoint) {
+        checkCheckpoint(checkpoint);
+        checkpointCount = checkpoint;
+        if (checkpointCount == 0) {
+            journalSize = 0;
+        }
+    }
+
+    /**
+     * Returns the count of recorded changes.
+     *
+     * @return size of the undo journal.
+     */
+    public int getJournalSize() {
+        return journalSize;
+    }
+
+    /**
+     * Sets a location that already satisfies the constraint of its corner,
+     * records the old location if a checkpoint is open and the new location
+     * if a recorder is attached. All location changes except a rollback pass
+     * this.
+     */
+    void set(int corner, double x, double y) {
+        if (recorder != null && (this.x[corner] != x || this.y[corner] != y)) {
+            recorder.recordLocation(corner, x, y);
+        }
+        if (checkpointCount > 0 && (this.x[corner] != x || this.y[corner] != y)) {
+            if (journalCorners == null) {
+                journalCorners = new int[64];
+                journalX = new double[64];
+                journalY = new double[64];
+            } else if (journalSize == journalCorners.length) {
+                journalCorners = Arrays.copyOf(journalCorners, 2 * journalSize);
+                journalX = Arrays.copyOf(journalX, 2 * journalSize);
+                journalY = Arrays.copyOf(journalY, 2 * journalSize);
+            }
+            journalCorners[journalSize] = corner;
+            journalX[journalSize] = this.x[corner];
+            journalY[journalSize] = this.y[corner];
+            journalSize++;
+        }
+        this.x[corner] = x;
+        this.y[corner] = y;
+    }
+
+    private void checkCheckpoint(int checkpoint) {
+        if (checkpoint < 0 || checkpoint >= checkpointCount) {
+            throw new IllegalStateException("no open checkpoint: " + checkpoint);
+        }
+    }
+
+    /**
+     * Returns the current area of a specific polygon with the Shoelace
+     * formula. It is assumed that the polygon is simple.
+     *
+     * @param polygon index of the polygon.
+     * @return area of the polygon.
+     */
+    public double getCurrentArea(int polygon) {
+        int[] ringCorners = topology.ringCorners;
+        int start = topology.ringOffsets[polygon];
+        int end = topology.ringOffsets[polygon + 1];
+        if (end - start < 3) {
+            return 0;
+        }
+        int previous = ringCorners[end - 1];
+        double sum = 0;
+        for (int i = start; i < end; i++) {
+            int corner = ringCorners[i];
+            sum += (y[previous] + y[corner]) * (x[previous] - x[corner]);
+            previous = corner;
+        }
+        return Math.abs(sum * 0.5);
+    }
+
+    /**
+     * Computes the current areas of all polygons.
+     *
+     * @param areas array for the areas or <code>null</code>.
+     * @return areas of the polygons.
+     */
+    public double[] computeAreas(double[] areas) {
+        int n = topology.getPolygonCount();
+        areas = areas == null ? new double[n] : areas;
+        PolygonAreaKernel.computeAreas(x, y, topology.ringOffsets, topology.ringCorners, 0, n, areas);
+        return areas;
+    }
+
+    /**
+     * Returns a new <code>PolygonAreaKernel</code> on the coordinates of this.
+     * It computes the areas of the current locations and the errors to the
+     * current target areas of this without copying them.
+     *
+     * @return area kernel of this.
+     */
+    public PolygonAreaKernel createAreaKernel() {
+        return new PolygonAreaKernel(topology.ringOffsets, topology.ringCorners, x, y, targetAreas);
+    }
+
+    /**
+     * Transformate a specific polygon into a <code>PolygonSimple</code>.
+     *
+     * @param polygon index of the polygon.
+     * @return transformated <code>PolygonSimple</code>
+     */
+    public PolygonSimple toPolygonSimple(int polygon) {
+        int start = topology.ringOffsets[polygon];
+        int n = topology.ringOffsets[polygon + 1] - start;
+        double[] xPoints = new double[n];
+        double[] yPoints = new double[n];
+        for (int i = 0; i < n; i++) {
+            int corner = topology.ringCorners[start + i];
+            xPoints[i] = x[corner];
+            yPoints[i] = y[corner];
+        }
+        return new PolygonSimple(xPoints, yPoints);
+    }
+}
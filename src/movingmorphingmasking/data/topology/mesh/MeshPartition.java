@@ -0,0 +1,224 @@
+package movingmorphingmasking.data.topology.mesh;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Sub-mesh of a partitioned tesselation (<code>MeshPartitioner</code>).
+ * <p>
+ * A partition has its own <code>MeshTopology</code> of its polygons with
+ * local corner numbers, the global number of every local corner and the
+ * owner of every local corner. A corner shared by several partitions is owned
+ * by the partition with the lowest id; in all other partitions it is a halo
+ * corner. A partition only moves the corners it owns and receives the
+ * locations of its halo corners from their owners.
+ * <p>
+ * A halo message of partition p to partition q holds the locations of the
+ * corners owned by p that are halo corners of q, in the order of their global
+ * numbers, which both partitions know from the partitioning. Immovable halo
+ * corners keep their locations and are not part of the messages:
+ * <pre>
+ * int MAGIC, int from, int to, int count, count * (double x, double y)
+ * </pre>
+ * All values are little-endian. The topology of a partition can be written
+ * into an <code>OffHeapMesh</code> file and mapped by a worker process.
+ *
+ * @author julia schueler
+ */
+public class MeshPartition {
+
+    public static final int MAGIC = 0x4d4d4848;
+    public static final int HEADER_BYTES = 16;
+    private final int id;
+    private final MeshTopology topology;
+    private final int[] globalCorners;
+    private final int[] globalPolygons;
+    private final int[] owners;
+    private final Map<Integer, int[]> sendCorners;
+    private final Map<Integer, int[]> receiveCorners;
+
+    MeshPartition(int id, MeshTopology topology, int[] globalCorners, int[] globalPolygons, int[] owners) {
+        this.id = id;
+        this.topology = topology;
+        this.globalCorners = globalCorners;
+        this.globalPolygons = globalPolygons;
+        this.owners = owners;
+        this.sendCorners = new TreeMap<Integer, int[]>();
+        this.receiveCorners = new TreeMap<Integer, int[]>();
+    }
+
+    void setSendCorners(int partition, int[] corners) {
+        sendCorners.put(partition, corners);
+    }
+
+    void setReceiveCorners(int partition, int[] corners) {
+        receiveCorners.put(partition, corners);
+    }
+
+    /**
+     * Returns the id of this.
+     *
+     * @return id of the partition.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Returns the local topology of this.
+     *
+     * @return topology of the sub-mesh.
+     */
+    public MeshTopology getTopology() {
+        return topology;
+    }
+
+    /**
+     * Returns the global number of a specific local corner.
+     *
+     * @param corner local index of the corner.
+     * @return global index of the corner.
+     */
+    public int getGlobalCorner(int corner) {
+        return globalCorners[corner];
+    }
+
+    /**
+     * Returns the global number of a specific local polygon.
+     *
+     * @param polygon local index of the polygon.
+     * @return global index of the polygon.
+     */
+    public int getGlobalPolygon(int polygon) {
+        return globalPolygons[polygon];
+    }
+
+    /**
+     * Returns the owner of a specific local corner.
+     *
+     * @param corner local index of the corner.
+     * @return id of the owning partition.
+     */
+    public int getOwner(int corner) {
+        return owners[corner];
+    }
+
+    /**
+     * Returns if this owns a specific local corner.
+     *
+     * @param corner local index of the corner.
+     * @return <tt>true</tt> if the corner is no halo corner.
+     */
+    public boolean isOwned(int corner) {
+        return owners[corner] == id;
+    }
+
+    /**
+     * Returns the ids of the partitions that receive halo messages of this.
+     *
+     * @return ids of the neighbors.
+     */
+    public int[] getSendPartitions() {
+        return toArray(sendCorners);
+    }
+
+    /**
+     * Returns the ids of the partitions that send halo messages to this.
+     *
+     * @return ids of the neighbors.
+     */
+    public int[] getReceivePartitions() {
+        return toArray(receiveCorners);
+    }
+
+    /**
+     * Returns the size of the halo message of this to a specific partition.
+     *
+     * @param to id of the receiving partition.
+     * @return size in bytes.
+     */
+    public int getMessageSize(int to) {
+        int[] corners = sendCorners.get(to);
+        return HEADER_BYTES + 16 * (corners == null ? 0 : corners.length);
+    }
+
+    /**
+     * Writes the halo message of this to a specific partition into a buffer.
+     *
+     * @param to id of the receiving partition.
+     * @param geometry geometry of the topology of this.
+     * @param buffer buffer with at least <code>getMessageSize(to)</code>
+     * bytes remaining.
+     */
+    public void writeHalo(int to, MeshGeometry geometry, ByteBuffer buffer) {
+        checkGeometry(geometry);
+        int[] corners = sendCorners.get(to);
+        if (corners == null) {
+            corners = new int[0];
+        }
+        ByteOrder order = buffer.order();
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC);
+        buffer.putInt(id);
+        buffer.putInt(to);
+        buffer.putInt(corners.length);
+        for (int corner : corners) {
+            buffer.putDouble(geometry.x[corner]);
+            buffer.putDouble(geometry.y[corner]);
+        }
+        buffer.order(order);
+    }
+
+    /**
+     * Reads a halo message of a neighbor from a buffer and sets the locations
+     * of the halo corners.
+     *
+     * @param buffer buffer positioned at the message.
+     * @param geometry geometry of the topology of this.
+     * @return id of the sending partition.
+     */
+    public int readHalo(ByteBuffer buffer, MeshGeometry geometry) {
+        checkGeometry(geometry);
+        ByteOrder order = buffer.order();
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IllegalArgumentException("no halo message");
+            }
+            int from = buffer.getInt();
+            int to = buffer.getInt();
+            int count = buffer.getInt();
+            int[] corners = receiveCorners.get(from);
+            if (to != id || corners == null || corners.length != count) {
+                throw new IllegalArgumentException("halo message of partition " + from + " to " + to
+                        + " with " + count + " corners does not match partition " + id);
+            }
+            for (int corner : corners) {
+                geometry.set(corner, buffer.getDouble(), buffer.getDouble());
+            }
+            return from;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("truncated halo message", e);
+        } finally {
+            buffer.order(order);
+        }
+    }
+
+    private void checkGeometry(MeshGeometry geometry) {
+        if (geometry.getTopology() != topology) {
+            throw new IllegalArgumentException("geometry of another topology");
+        }
+    }
+
+    private static int[] toArray(Map<Integer, int[]> map) {
+        int[] ids = new int[map.size()];
+        int i = 0;
+        for (Integer key : map.keySet()) {
+            ids[i++] = key;
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,195 @@
+package movingmorphingmasking.data.topology.mesh;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import movingmorphingmasking.data.topology.CornerIndex;
+import movingmorphingmasking.data.topology.CornerPoint2D;
+import movingmorphingmasking.data.topology.PolygonDeformable;
+import movingmorphingmasking.data.topology.maskingpseudoregionfactory.PseudoRegionHolder;
+
+/**
+ * Partitions a tesselation of <code>PolygonDeformable</code>s into sub-meshes
+ * with halo corners (<code>MeshPartition</code>).
+ * <p>
+ * A tesselation of a <code>PseudoRegionHolder</code> is partitioned by its
+ * pseudo regions: with at least as many partitions as regions every region is
+ * a partition of its own, otherwise the regions are grouped into partitions
+ * of about the same count of corners, the largest region first into the
+ * smallest partition.
+ * <p>
+ * Partitioning costs O(corners + halo corners * log(halo corners)) time and
+ * O(corners) memory besides the partitions.
+ *
+ * @author julia schueler
+ */
+public class MeshPartitioner {
+
+    /**
+     * Partitions the tesselation of a specific holder by its pseudo regions.
+     *
+     * @param holder holder of the pseudo region tesselation.
+     * @param polygons tesselation of <code>PolygonDeformable</code> of the
+     * holder, in the order of its tesselation.
+     * @param partitionCount maximal count of partitions.
+     * @return partitions.
+     */
+    public static List<MeshPartition> partition(PseudoRegionHolder holder, List<PolygonDeformable> polygons,
+            int partitionCount) {
+        int[] regions = RegionOutlines.getPolygonRegions(holder);
+        int regionCount = holder.getPseudoRegionPolygones().size();
+        if (regions.length != polygons.size()) {
+            throw new IllegalArgumentException("polygons do not match the tesselation of the holder");
+        }
+        for (int p = 0; p < regions.length; p++) {
+            if (regions[p] < 0) {
+                regions[p] = regionCount;
+            }
+        }
+        return partition(polygons, groupRegions(polygons, regions, regionCount + 1, partitionCount));
+    }
+
+    /**
+     * Partitions a tesselation by a specific assignment of its polygons.
+     *
+     * @param polygons tesselation of <code>PolygonDeformable</code>.
+     * @param polygonPartitions partition of every polygon, from 0 to the
+     * count of partitions - 1.
+     * @return partitions, empty partitions are left out.
+     */
+    public static List<MeshPartition> partition(List<PolygonDeformable> polygons, int[] polygonPartitions) {
+        CornerIndex index = new CornerIndex(polygons);
+        int partitionCount = 0;
+        for (int partition : polygonPartitions) {
+            partitionCount = Math.max(partitionCount, partition + 1);
+        }
+
+        int[] owners = new int[index.getCornerCount()];
+        Arrays.fill(owners, Integer.MAX_VALUE);
+        List<List<PolygonDeformable>> partitionPolygons = new ArrayList<List<PolygonDeformable>>(partitionCount);
+        List<List<Integer>> partitionPolygonIndices = new ArrayList<List<Integer>>(partitionCount);
+        for (int q = 0; q < partitionCount; q++) {
+            partitionPolygons.add(new ArrayList<PolygonDeformable>());
+            partitionPolygonIndices.add(new ArrayList<Integer>());
+        }
+        for (int p = 0; p < polygons.size(); p++) {
+            int q = polygonPartitions[p];
+            partitionPolygons.get(q).add(polygons.get(p));
+            partitionPolygonIndices.get(q).add(p);
+            for (CornerPoint2D corner : polygons.get(p).getCorners()) {
+                int global = index.indexOf(corner);
+                owners[global] = Math.min(owners[global], q);
+            }
+        }
+
+        List<MeshPartition> partitions = new ArrayList<MeshPartition>();
+        MeshPartition[] byId = new MeshPartition[partitionCount];
+        int[] ownerLocals = new int[index.getCornerCount()];
+        for (int q = 0; q < partitionCount; q++) {
+            List<PolygonDeformable> subMesh = partitionPolygons.get(q);
+            if (subMesh.isEmpty()) {
+                continue;
+            }
+            CornerIndex localIndex = new CornerIndex(subMesh);
+            MeshTopology topology = MeshTopology.create(subMesh);
+            int n = localIndex.getCornerCount();
+            int[] globalCorners = new int[n];
+            int[] localOwners = new int[n];
+            for (int c = 0; c < n; c++) {
+                globalCorners[c] = index.indexOf(localIndex.getCorner(c));
+                localOwners[c] = owners[globalCorners[c]];
+                if (localOwners[c] == q) {
+                    ownerLocals[globalCorners[c]] = c;
+                }
+            }
+            List<Integer> indices = partitionPolygonIndices.get(q);
+            int[] globalPolygons = new int[indices.size()];
+            for (int i = 0; i < globalPolygons.length; i++) {
+                globalPolygons[i] = indices.get(i);
+            }
+            MeshPartition partition = new MeshPartition(q, topology, globalCorners, globalPolygons, localOwners);
+            partitions.add(partition);
+            byId[q] = partition;
+        }
+
+        // the halo corners of a partition are sorted by (owner, global number),
+        // so every run of an owner is the message in the order of the global
+        // numbers; immovables never change and are left out
+        int[] receiverLocals = new int[index.getCornerCount()];
+        for (MeshPartition receiver : partitions) {
+            int q = receiver.getId();
+            int end = receiver.getTopology().getImmovableStart();
+            long[] halo = new long[end];
+            int haloCount = 0;
+            for (int c = 0; c < end; c++) {
+                int owner = receiver.getOwner(c);
+                if (owner != q) {
+                    int global = receiver.getGlobalCorner(c);
+                    receiverLocals[global] = c;
+                    halo[haloCount++] = ((long) owner << 32) | global;
+                }
+            }
+            Arrays.sort(halo, 0, haloCount);
+            for (int start = 0; start < haloCount;) {
+                int owner = (int) (halo[start] >>> 32);
+                int stop = start + 1;
+                while (stop < haloCount && (int) (halo[stop] >>> 32) == owner) {
+                    stop++;
+                }
+                int[] receive = new int[stop - start];
+                int[] send = new int[stop - start];
+                for (int i = start; i < stop; i++) {
+                    int global = (int) halo[i];
+                    receive[i - start] = receiverLocals[global];
+                    send[i - start] = ownerLocals[global];
+                }
+                receiver.setReceiveCorners(owner, receive);
+                byId[owner].setSendCorners(q, send);
+                start = stop;
+            }
+        }
+        return partitions;
+    }
+
+    private static int[] groupRegions(List<PolygonDeformable> polygons, int[] regions, int regionCount,
+            int partitionCount) {
+        if (partitionCount < 1) {
+            throw new IllegalArgumentException("partitionCount must be positive: " + partitionCount);
+        }
+        final long[] weights = new long[regionCount];
+        for (int p = 0; p < regions.length; p++) {
+            weights[regions[p]] += polygons.get(p).getCorners().length;
+        }
+        List<Integer> order = new ArrayList<Integer>(regionCount);
+        for (int r = 0; r < regionCount; r++) {
+            if (weights[r] > 0) {
+                order.add(r);
+            }
+        }
+        Collections.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer r, Integer s) {
+                return weights[r] > weights[s] ? -1 : (weights[r] < weights[s] ? 1 : r.compareTo(s));
+            }
+        });
+        int[] regionPartitions = new int[regionCount];
+        long[] loads = new long[Math.min(partitionCount, Math.max(1, order.size()))];
+        for (int r : order) {
+            int lightest = 0;
+            for (int q = 1; q < loads.length; q++) {
+                if (loads[q] < loads[lightest]) {
+                    lightest = q;
+                }
+            }
+            regionPartitions[r] = lightest;
+            loads[lightest] += weights[r];
+        }
+        int[] polygonPartitions = new int[regions.length];
+        for (int p = 0; p < regions.length; p++) {
+            polygonPartitions[p] = regionPartitions[regions[p]];
+        }
+        return polygonPartitions;
+    }
+}
@@ -0,0 +1,403 @@
+package movingmorphingmasking.data.topology.mesh;
+
+import java.awt.geom.Line2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import movingmorphingmasking.data.topology.CornerIndex;
+import movingmorphingmasking.data.topology.CornerPoint2D;
+import movingmorphingmasking.data.topology.PolygonDeformable;
+
+/**
+ * Immutable topology of a tesselation of <code>PolygonDeformable</code>s that
+ * can be shared by any count of morph sessions.
+ * <p>
+ * The corners are numbered from 0 to <code>getCornerCount() - 1</code> in
+ * contiguous ranges of movables, line sliders and immovables (
+ * {@link CornerIndex}), and the polygons in the order of the given
+ * tesselation. A per-frame update only has to visit the corners
+ * [0, <code>getImmovableStart()</code>). The topology holds the
+ * kind of every corner, the line of every line slider, the rings, the incident
+ * corners and the associated polygons of every corner (both in compressed
+ * sparse row layout), the initial target areas and the initial corner
+ * locations. The corner locations and target areas of a session are held by a
+ * <code>MeshGeometry</code>.
+ *
+ * @author julia schueler
+ */
+public final class MeshTopology {
+
+    public static final byte IMMOVABLE = 0;
+    public static final byte MOVABLE = 1;
+    public static final byte LINESLIDER = 2;
+    final byte[] kinds;
+    final int[] cornerSegments;
+    final double[] segments;
+    final int[] ringOffsets;
+    final int[] ringCorners;
+    final int[] incidentOffsets;
+    final int[] incidentCorners;
+    final int[] polygonOffsets;
+    final int[] cornerPolygons;
+    final double[] targetAreas;
+    final double[] initialX;
+    final double[] initialY;
+    final int lineSliderStart;
+    final int immovableStart;
+
+    private MeshTopology(CornerIndex index, List<PolygonDeformable> polygons) {
+        CornerPoint2D[] corners = index.getCorners();
+        int n = corners.length;
+        lineSliderStart = index.getLineSliderStart();
+        immovableStart = index.getImmovableStart();
+
+        kinds = new byte[n];
+        cornerSegments = new int[n];
+        initialX = new double[n];
+        initialY = new double[n];
+        List<Line2D.Double> lines = new ArrayList<Line2D.Double>();
+        for (int i = 0; i < n; i++) {
+            CornerPoint2D corner = corners[i];
+            initialX[i] = corner.getX();
+            initialY[i] = corner.getY();
+            kinds[i] = kindOf(corner);
+            cornerSegments[i] = -1;
+            if (kinds[i] == LINESLIDER) {
+                cornerSegments[i] = lines.size();
+                lines.add(((CornerPoint2D.LineSlider) corner).getLine());
+            }
+        }
+        segments = new double[4 * lines.size()];
+        for (int s = 0; s < lines.size(); s++) {
+            Line2D.Double line = lines.get(s);
+            segments[4 * s] = line.x1;
+            segments[4 * s + 1] = line.y1;
+            segments[4 * s + 2] = line.x2;
+            segments[4 * s + 3] = line.y2;
+        }
+
+        int polygonCount = polygons.size();
+        ringOffsets = new int[polygonCount + 1];
+        targetAreas = new double[polygonCount];
+        for (int p = 0; p < polygonCount; p++) {
+            ringOffsets[p + 1] = ringOffsets[p] + polygons.get(p).getCorners().length;
+            targetAreas[p] = polygons.get(p).getTagetArea();
+        }
+        ringCorners = new int[ringOffsets[polygonCount]];
+        int[] incidentCounts = new int[n];
+        int[] polygonCounts = new int[n];
+        int[] lastPolygons = new int[n];
+        Arrays.fill(lastPolygons, -1);
+        for (int p = 0; p < polygonCount; p++) {
+            CornerPoint2D[] ring = polygons.get(p).getCorners();
+            for (int i = 0; i < ring.length; i++) {
+                int corner = index.indexOf(ring[i]);
+                ringCorners[ringOffsets[p] + i] = corner;
+                if (lastPolygons[corner] != p) {
+                    lastPolygons[corner] = p;
+                    polygonCounts[corner]++;
+                }
+            }
+        }
+
+        polygonOffsets = prefixSums(polygonCounts);
+        cornerPolygons = new int[polygonOffsets[n]];
+        int[] fill = Arrays.copyOf(polygonOffsets, n);
+        Arrays.fill(lastPolygons, -1);
+        for (int p = 0; p < polygonCount; p++) {
+            for (int i = ringOffsets[p]; i < ringOffsets[p + 1]; i++) {
+                int corner = ringCorners[i];
+                if (lastPolygons[corner] != p) {
+                    lastPolygons[corner] = p;
+                    cornerPolygons[fill[corner]++] = p;
+                }
+            }
+        }
+
+        int[][] neighbors = new int[n][];
+        for (int p = 0; p < polygonCount; p++) {
+            int start = ringOffsets[p];
+            int length = ringOffsets[p + 1] - start;
+            for (int i = 0; i < length; i++) {
+                int a = ringCorners[start + i];
+                int b = ringCorners[start + (i + 1) % length];
+                if (a != b) {
+                    incidentCounts[a] += addNeighbor(neighbors, incidentCounts[a], a, b);
+                    incidentCounts[b] += addNeighbor(neighbors, incidentCounts[b], b, a);
+                }
+            }
+        }
+        incidentOffsets = prefixSums(incidentCounts);
+        incidentCorners = new int[incidentOffsets[n]];
+        for (int c = 0; c < n; c++) {
+            if (incidentCounts[c] > 0) {
+                System.arraycopy(neighbors[c], 0, incidentCorners, incidentOffsets[c], incidentCounts[c]);
+            }
+        }
+    }
+
+    MeshTopology(byte[] kinds, int[] cornerSegments, double[] segments, int[] ringOffsets, int[] ringCorners,
+            int[] incidentOffsets, int[] incidentCorners, int[] polygonOffsets, int[] cornerPolygons,
+            double[] targetAreas, double[] initialX, double[] initialY) {
+        this.kinds = kinds;
+        this.cornerSegments = cornerSegments;
+        this.segments = segments;
+        this.ringOffsets = ringOffsets;
+        this.ringCorners = ringCorners;
+        this.incidentOffsets = incidentOffsets;
+        this.incidentCorners = incidentCorners;
+        this.polygonOffsets = polygonOffsets;
+        this.cornerPolygons = cornerPolygons;
+        this.targetAreas = targetAreas;
+        this.initialX = initialX;
+        this.initialY = initialY;
+        int c = 0;
+        while (c < kinds.length && kinds[c] == MOVABLE) {
+            c++;
+        }
+        lineSliderStart = c;
+        while (c < kinds.length && kinds[c] == LINESLIDER) {
+            c++;
+        }
+        immovableStart = c;
+        while (c < kinds.length && kinds[c] == IMMOVABLE) {
+            c++;
+        }
+        if (c != kinds.length) {
+            throw new IllegalArgumentException("corners are not ordered by kind");
+        }
+    }
+
+    /**
+     * Returns the topology of a specific tesselation of
+     * <code>PolygonDeformable</code>s. The corners are numbered in the order
+     * of {@link MeshTopology#orderCorners}.
+     *
+     * @param polygons tesselation of <code>PolygonDeformable</code>.
+     * @return topology of the tesselation.
+     */
+    public static MeshTopology create(List<PolygonDeformable> polygons) {
+        return new MeshTopology(new CornerIndex(polygons), polygons);
+    }
+
+    /**
+     * Returns all corners of a specific tesselation in the numbering of its
+     * topology, that is the partitioned order of {@link CornerIndex}.
+     *
+     * @param polygons tesselation of <code>PolygonDeformable</code>.
+     * @return corners of the tesselation.
+     */
+    public static CornerPoint2D[] orderCorners(List<PolygonDeformable> polygons) {
+        return new CornerIndex(polygons).getCorners().clone();
+    }
+
+    /**
+     * Returns a new geometry with the initial corner locations.
+     *
+     * @return geometry of a new session.
+     */
+    public MeshGeometry createGeometry() {
+        return new MeshGeometry(this);
+    }
+
+    /**
+     * Returns the count of corners.
+     *
+     * @return count of corners.
+     */
+    public int getCornerCount() {
+        return kinds.length;
+    }
+
+    /**
+     * Returns the count of polygons.
+     *
+     * @return count of polygons.
+     */
+    public int getPolygonCount() {
+        return targetAreas.length;
+    }
+
+    /**
+     * Returns the index of the first line slider, that is also the count of
+     * movables.
+     *
+     * @return index of the first line slider.
+     */
+    public int getLineSliderStart() {
+        return lineSliderStart;
+    }
+
+    /**
+     * Returns the index of the first immovable, that is also the count of
+     * corners that can move.
+     *
+     * @return index of the first immovable.
+     */
+    public int getImmovableStart() {
+        return immovableStart;
+    }
+
+    /**
+     * Returns the kind of a specific corner ({@link MeshTopology#IMMOVABLE},
+     * {@link MeshTopology#MOVABLE}, {@link MeshTopology#LINESLIDER}).
+     *
+     * @param corner index of the corner.
+     * @return kind of the corner.
+     */
+    public byte getKind(int corner) {
+        return kinds[corner];
+    }
+
+    /**
+     * Returns the line index of a specific corner, or -1 if the corner is not
+     * a line slider.
+     *
+     * @param corner index of the corner.
+     * @return index of the line.
+     */
+    public int getSegment(int corner) {
+        return cornerSegments[corner];
+    }
+
+    /**
+     * Returns a copy of the line of a specific line index.
+     *
+     * @param segment index of the line.
+     * @return line.
+     */
+    public Line2D.Double getSegmentLine(int segment) {
+        int s = 4 * segment;
+        return new Line2D.Double(segments[s], segments[s + 1], segments[s + 2], segments[s + 3]);
+    }
+
+    /**
+     * Returns the count of corners of a specific polygon.
+     *
+     * @param polygon index of the polygon.
+     * @return length of the ring.
+     */
+    public int getRingLength(int polygon) {
+        return ringOffsets[polygon + 1] - ringOffsets[polygon];
+    }
+
+    /**
+     * Returns a specific corner of a ring.
+     *
+     * @param polygon index of the polygon.
+     * @param i position in the ring.
+     * @return index of the corner.
+     */
+    public int getRingCorner(int polygon, int i) {
+        return ringCorners[ringOffsets[polygon] + i];
+    }
+
+    /**
+     * Returns the count of incident corners of a specific corner.
+     *
+     * @param corner index of the corner.
+     * @return count of incident corners.
+     */
+    public int getIncidentCornerCount(int corner) {
+        return incidentOffsets[corner + 1] - incidentOffsets[corner];
+    }
+
+    /**
+     * Returns a specific incident corner of a corner.
+     *
+     * @param corner index of the corner.
+     * @param i position in the incident corners.
+     * @return index of the incident corner.
+     */
+    public int getIncidentCorner(int corner, int i) {
+        return incidentCorners[incidentOffsets[corner] + i];
+    }
+
+    /**
+     * Returns the count of associated polygons of a specific corner.
+     *
+     * @param corner index of the corner.
+     * @return count of polygons.
+     */
+    public int getAssociatedPolygonCount(int corner) {
+        return polygonOffsets[corner + 1] - polygonOffsets[corner];
+    }
+
+    /**
+     * Returns a specific associated polygon of a corner.
+     *
+     * @param corner index of the corner.
+     * @param i position in the associated polygons.
+     * @return index of the polygon.
+     */
+    public int getAssociatedPolygon(int corner, int i) {
+        return cornerPolygons[polygonOffsets[corner] + i];
+    }
+
+    /**
+     * Returns the initial target area of a specific polygon. The target areas
+     * of a session are held by its <code>MeshGeometry</code>.
+     *
+     * @param polygon index of the polygon.
+     * @return initial target area.
+     */
+    public double getTargetArea(int polygon) {
+        return targetAreas[polygon];
+    }
+
+    /**
+     * Returns the initial X coordinate of a specific corner.
+     *
+     * @param corner index of the corner.
+     * @return X coordinate.
+     */
+    public double getInitialX(int corner) {
+        return initialX[corner];
+    }
+
+    /**
+     * Returns the initial Y coordinate of a specific corner.
+     *
+     * @param corner index of the corner.
+     * @return Y coordinate.
+     */
+    public double getInitialY(int corner) {
+        return initialY[corner];
+    }
+
+    private static byte kindOf(CornerPoint2D corner) {
+        switch (corner.getKind()) {
+            case movable:
+                return MOVABLE;
+            case lineSlider:
+                return LINESLIDER;
+            default:
+                return IMMOVABLE;
+        }
+    }
+
+    private static int addNeighbor(int[][] neighbors, int count, int corner, int neighbor) {
+        int[] list = neighbors[corner];
+        for (int i = 0; i < count; i++) {
+            if (list[i] == neighbor) {
+                return 0;
+            }
+        }
+        if (list == null) {
+            list = new int[4];
+        } else if (count == list.length) {
+            list = Arrays.copyOf(list, 2 * count);
+        }
+        list[count] = neighbor;
+        neighbors[corner] = list;
+        return 1;
+    }
+
+    private static int[] prefixSums(int[] counts) {
+        int[] offsets = new int[counts.length + 1];
+        for (int i = 0; i < counts.length; i++) {
+            offsets[i + 1] = offsets[i] + counts[i];
+        }
+        return offsets;
+    }
+}
@@ -0,0 +1,67 @@
+package movingmorphingmasking.data.topology.mesh;
+
+/**
+ * Result of a check of a <code>MeshValidator</code>: the pairs of
+ * intersecting edges and the polygons with a flipped orientation.
+ *
+ * @author julia schueler
+ */
+public class MeshValidation {
+
+    private final int[] intersections;
+    private final int[] invertedPolygons;
+
+    MeshValidation(int[] intersections, int[] invertedPolygons) {
+        this.intersections = intersections;
+        this.invertedPolygons = invertedPolygons;
+    }
+
+    /**
+     * Returns if no fold-over was detected.
+     *
+     * @return <tt>true</tt> if the checked part of the geometry is valid.
+     */
+    public boolean isValid() {
+        return intersections.length == 0 && invertedPolygons.length == 0;
+    }
+
+    /**
+     * Returns the count of pairs of intersecting edges.
+     *
+     * @return count of intersections.
+     */
+    public int getIntersectionCount() {
+        return intersections.length / 2;
+    }
+
+    /**
+     * Returns an edge of a specific intersection (
+     * {@link MeshValidator#getEdgeCorner}).
+     *
+     * @param intersection index of the intersection.
+     * @param i 0 for the edge with the lower index, 1 for the other one.
+     * @return index of the edge.
+     */
+    public int getIntersectingEdge(int intersection, int i) {
+        return intersections[2 * intersection + i];
+    }
+
+    /**
+     * Returns the count of polygons with a flipped orientation.
+     *
+     * @return count of inverted polygons.
+     */
+    public int getInvertedPolygonCount() {
+        return invertedPolygons.length;
+    }
+
+    /**
+     * Returns a specific polygon with a flipped orientation.
+     *
+     * @param i position in the inverted polygons.
+     * @return index of the polygon.
+     */
+    public int getInvertedPolygon(int i) {
+        return invertedPolygons[i];
+    }
+}
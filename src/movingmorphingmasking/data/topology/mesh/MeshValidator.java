@@ -0,0 +1,459 @@
+package movingmorphingmasking.data.topology.mesh;
+
+import java.util.Arrays;
+
+/**
+ * Detects fold-overs of the polygons of a <code>MeshGeometry</code>: edges
+ * that intersect or touch any edge other than their neighbours in a ring, and
+ * polygons whose orientation is flipped against the initial corner locations.
+ * A morph with such a fold-over has no valid areas, the Shoelace formula
+ * assumes simple polygons.
+ * <p>
+ * The full check buckets all edges into a uniform grid over the bounds of the
+ * corners and tests only the pairs of edges that share a grid cell. The
+ * incremental check moves only the edges of the moved corners to their new
+ * cells and tests only them, so it can run on every frame. It reports only
+ * fold-overs of the moved edges and polygons, and it needs a full check of the
+ * same geometry first. Corners that leave the bounds of the last full check
+ * are bucketed into the border cells, which is correct but slower.
+ * <p>
+ * A validator is not thread-safe, use one validator per morph session.
+ *
+ * @author julia schueler
+ */
+public class MeshValidator {
+
+    private final MeshTopology topology;
+    private final int[] edgeCorners;
+    private final int[] edgePolygons;
+    private final int[] cornerEdgeOffsets;
+    private final int[] cornerEdges;
+    private final double[] initialSignedAreas;
+    private final int[] edgeCells;
+    private final int[] edgeMarks;
+    private final int[] polygonMarks;
+    private int mark;
+    private MeshGeometry validated;
+    private double minX;
+    private double minY;
+    private double cellSize;
+    private int columns;
+    private int rows;
+    private int[][] cellEdges;
+    private int[] cellCounts;
+    private int[] pairs;
+    private int pairCount;
+    private int[] inverted;
+    private int invertedCount;
+
+    /**
+     * Constructor for a validator of the geometries of a specific topology.
+     *
+     * @param topology shared topology.
+     */
+    public MeshValidator(MeshTopology topology) {
+        this.topology = topology;
+        int n = topology.getCornerCount();
+        int[] offsets = topology.incidentOffsets;
+        int[] incident = topology.incidentCorners;
+
+        int edgeCount = 0;
+        for (int a = 0; a < n; a++) {
+            for (int i = offsets[a]; i < offsets[a + 1]; i++) {
+                if (a < incident[i]) {
+                    edgeCount++;
+                }
+            }
+        }
+        edgeCorners = new int[2 * edgeCount];
+        cornerEdgeOffsets = Arrays.copyOf(offsets, n + 1);
+        cornerEdges = new int[offsets[n]];
+        int[] fill = Arrays.copyOf(offsets, n);
+        int e = 0;
+        for (int a = 0; a < n; a++) {
+            for (int i = offsets[a]; i < offsets[a + 1]; i++) {
+                int b = incident[i];
+                if (a < b) {
+                    edgeCorners[2 * e] = a;
+                    edgeCorners[2 * e + 1] = b;
+                    cornerEdges[fill[a]++] = e;
+                    cornerEdges[fill[b]++] = e;
+                    e++;
+                }
+            }
+        }
+
+        edgePolygons = new int[2 * edgeCount];
+        Arrays.fill(edgePolygons, -1);
+        int polygonCount = topology.getPolygonCount();
+        initialSignedAreas = new double[polygonCount];
+        for (int p = 0; p < polygonCount; p++) {
+            int start = topology.ringOffsets[p];
+            int end = topology.ringOffsets[p + 1];
+            for (int i = start; i < end; i++) {
+                int a = topology.ringCorners[i];
+                int b = topology.ringCorners[i + 1 < end ? i + 1 : start];
+                int edge = findEdge(a, b);
+                if (edge >= 0 && edgePolygons[2 * edge] != p && edgePolygons[2 * edge + 1] != p) {
+                    edgePolygons[edgePolygons[2 * edge] < 0 ? 2 * edge : 2 * edge + 1] = p;
+                }
+            }
+            initialSignedAreas[p] = signedArea(p, topology.initialX, topology.initialY);
+        }
+
+        edgeCells = new int[4 * edgeCount];
+        edgeMarks = new int[edgeCount];
+        polygonMarks = new int[polygonCount];
+        pairs = new int[16];
+        inverted = new int[16];
+    }
+
+    /**
+     * Returns the topology of this.
+     *
+     * @return topology.
+     */
+    public MeshTopology getTopology() {
+        return topology;
+    }
+
+    /**
+     * Returns the count of distinct edges of the topology.
+     *
+     * @return count of edges.
+     */
+    public int getEdgeCount() {
+        return edgeMarks.length;
+    }
+
+    /**
+     * Returns a specific corner of an edge.
+     *
+     * @param edge index of the edge.
+     * @param end 0 for the corner with the lower index, 1 for the other one.
+     * @return index of the corner.
+     */
+    public int getEdgeCorner(int edge, int end) {
+        return edgeCorners[2 * edge + end];
+    }
+
+    /**
+     * Returns a specific polygon of an edge.
+     *
+     * @param edge index of the edge.
+     * @param side 0 or 1.
+     * @return index of the polygon or -1 if the edge is a boundary edge.
+     */
+    public int getEdgePolygon(int edge, int side) {
+        return edgePolygons[2 * edge + side];
+    }
+
+    /**
+     * Checks all edges and polygons of a specific geometry.
+     *
+     * @param geometry geometry of the topology of this.
+     * @return result of the check.
+     */
+    public MeshValidation validate(MeshGeometry geometry) {
+        checkTopology(geometry);
+        double[] x = geometry.x;
+        double[] y = geometry.y;
+        buildGrid(x, y);
+        validated = geometry;
+        pairCount = 0;
+        invertedCount = 0;
+
+        for (int cell = 0; cell < cellEdges.length; cell++) {
+            int[] edges = cellEdges[cell];
+            int count = cellCounts[cell];
+            for (int i = 0; i < count; i++) {
+                for (int j = i + 1; j < count; j++) {
+                    testPair(edges[i], edges[j], cell, x, y);
+                }
+            }
+        }
+        for (int p = 0; p < initialSignedAreas.length; p++) {
+            testOrientation(p, x, y);
+        }
+        return new MeshValidation(Arrays.copyOf(pairs, 2 * pairCount), Arrays.copyOf(inverted, invertedCount));
+    }
+
+    /**
+     * Checks only the edges and polygons of specific moved corners of a
+     * geometry. If the geometry is not the geometry of the last full check, a
+     * full check is done.
+     *
+     * @param geometry geometry of the topology of this.
+     * @param movedCorners indices of the moved corners.
+     * @param count count of moved corners.
+     * @return result of the check.
+     */
+    public MeshValidation validate(MeshGeometry geometry, int[] movedCorners, int count) {
+        checkTopology(geometry);
+        if (geometry != validated) {
+            return validate(geometry);
+        }
+        double[] x = geometry.x;
+        double[] y = geometry.y;
+        pairCount = 0;
+        invertedCount = 0;
+
+        int moved = nextMark();
+        int[] movedEdges = new int[16];
+        int movedEdgeCount = 0;
+        for (int k = 0; k < count; k++) {
+            int corner = movedCorners[k];
+            for (int i = cornerEdgeOffsets[corner]; i < cornerEdgeOffsets[corner + 1]; i++) {
+                int edge = cornerEdges[i];
+                if (edgeMarks[edge] != moved) {
+                    edgeMarks[edge] = moved;
+                    if (movedEdgeCount == movedEdges.length) {
+                        movedEdges = Arrays.copyOf(movedEdges, 2 * movedEdgeCount);
+                    }
+                    movedEdges[movedEdgeCount++] = edge;
+                    removeFromGrid(edge);
+                    addToGrid(edge, x, y);
+                }
+            }
+        }
+
+        for (int k = 0; k < movedEdgeCount; k++) {
+            int edge = movedEdges[k];
+            int c = 4 * edge;
+            for (int row = edgeCells[c + 1]; row <= edgeCells[c + 3]; row++) {
+                for (int column = edgeCells[c]; column <= edgeCells[c + 2]; column++) {
+                    int cell = row * columns + column;
+                    int[] edges = cellEdges[cell];
+                    for (int i = 0; i < cellCounts[cell]; i++) {
+                        int other = edges[i];
+                        if (other != edge && (edgeMarks[other] != moved || other > edge)) {
+                            testPair(edge, other, cell, x, y);
+                        }
+                    }
+                }
+            }
+        }
+
+        int polygonMark = nextMark();
+        for (int k = 0; k < count; k++) {
+            int corner = movedCorners[k];
+            for (int i = topology.polygonOffsets[corner]; i < topology.polygonOffsets[corner + 1]; i++) {
+                int p = topology.cornerPolygons[i];
+                if (polygonMarks[p] != polygonMark) {
+                    polygonMarks[p] = polygonMark;
+                    testOrientation(p, x, y);
+                }
+            }
+        }
+        return new MeshValidation(Arrays.copyOf(pairs, 2 * pairCount), Arrays.copyOf(inverted, invertedCount));
+    }
+
+    /**
+     * Returns if two specific edges of a geometry intersect or touch. Edges
+     * with a common corner only intersect if they overlap.
+     *
+     * @param geometry geometry of the topology of this.
+     * @param edge first edge.
+     * @param other second edge.
+     * @return <tt>true</tt> if the edges intersect.
+     */
+    public boolean intersects(MeshGeometry geometry, int edge, int other) {
+        checkTopology(geometry);
+        return intersects(edge, other, geometry.x, geometry.y);
+    }
+
+    private void checkTopology(MeshGeometry geometry) {
+        if (geometry.getTopology() != topology) {
+            throw new IllegalArgumentException("geometry of another topology");
+        }
+    }
+
+    private int nextMark() {
+        mark++;
+        if (mark == 0) {
+            Arrays.fill(edgeMarks, 0);
+            Arrays.fill(polygonMarks, 0);
+            mark = 1;
+        }
+        return mark;
+    }
+
+    private int findEdge(int a, int b) {
+        for (int i = cornerEdgeOffsets[a]; i < cornerEdgeOffsets[a + 1]; i++) {
+            int edge = cornerEdges[i];
+            if (edgeCorners[2 * edge] == b || edgeCorners[2 * edge + 1] == b) {
+                return edge;
+            }
+        }
+        return -1;
+    }
+
+    private void buildGrid(double[] x, double[] y) {
+        int edgeCount = edgeMarks.length;
+        minX = Double.POSITIVE_INFINITY;
+        minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < x.length; i++) {
+            minX = Math.min(minX, x[i]);
+            minY = Math.min(minY, y[i]);
+            maxX = Math.max(maxX, x[i]);
+            maxY = Math.max(maxY, y[i]);
+        }
+        double width = Math.max(maxX - minX, 0);
+        double height = Math.max(maxY - minY, 0);
+        double size = Math.sqrt(width * height / Math.max(1, edgeCount));
+        if (!(size > 0)) {
+            size = Math.max(Math.max(width, height), 1);
+        }
+        cellSize = size;
+        columns = Math.max(1, Math.min(4096, (int) (width / size) + 1));
+        rows = Math.max(1, Math.min(4096, (int) (height / size) + 1));
+        cellSize = Math.max(size, Math.max(width / columns, height / rows));
+        if (cellEdges == null || cellEdges.length != columns * rows) {
+            cellEdges = new int[columns * rows][];
+            cellCounts = new int[columns * rows];
+        } else {
+            Arrays.fill(cellCounts, 0);
+        }
+        for (int edge = 0; edge < edgeCount; edge++) {
+            addToGrid(edge, x, y);
+        }
+    }
+
+    private void addToGrid(int edge, double[] x, double[] y) {
+        int a = edgeCorners[2 * edge];
+        int b = edgeCorners[2 * edge + 1];
+        int c = 4 * edge;
+        edgeCells[c] = column(Math.min(x[a], x[b]));
+        edgeCells[c + 1] = row(Math.min(y[a], y[b]));
+        edgeCells[c + 2] = column(Math.max(x[a], x[b]));
+        edgeCells[c + 3] = row(Math.max(y[a], y[b]));
+        for (int row = edgeCells[c + 1]; row <= edgeCells[c + 3]; row++) {
+            for (int column = edgeCells[c]; column <= edgeCells[c + 2]; column++) {
+                int cell = row * columns + column;
+                int[] edges = cellEdges[cell];
+                if (edges == null) {
+                    edges = new int[4];
+                } else if (cellCounts[cell] == edges.length) {
+                    edges = Arrays.copyOf(edges, 2 * edges.length);
+                }
+                edges[cellCounts[cell]++] = edge;
+                cellEdges[cell] = edges;
+            }
+        }
+    }
+
+    private void removeFromGrid(int edge) {
+        int c = 4 * edge;
+        for (int row = edgeCells[c + 1]; row <= edgeCells[c + 3]; row++) {
+            for (int column = edgeCells[c]; column <= edgeCells[c + 2]; column++) {
+                int cell = row * columns + column;
+                int[] edges = cellEdges[cell];
+                int count = cellCounts[cell];
+                for (int i = 0; i < count; i++) {
+                    if (edges[i] == edge) {
+                        edges[i] = edges[count - 1];
+                        cellCounts[cell] = count - 1;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    private int column(double x) {
+        int column = (int) Math.floor((x - minX) / cellSize);
+        return column < 0 ? 0 : (column >= columns ? columns - 1 : column);
+    }
+
+    private int row(double y) {
+        int row = (int) Math.floor((y - minY) / cellSize);
+        return row < 0 ? 0 : (row >= rows ? rows - 1 : row);
+    }
+
+    private void testPair(int edge, int other, int cell, double[] x, double[] y) {
+        int c = 4 * edge;
+        int d = 4 * other;
+        // a pair is tested only in the first cell of both edges
+        int column = Math.max(edgeCells[c], edgeCells[d]);
+        int row = Math.max(edgeCells[c + 1], edgeCells[d + 1]);
+        if (row * columns + column != cell) {
+            return;
+        }
+        if (intersects(edge, other, x, y)) {
+            if (2 * pairCount + 2 > pairs.length) {
+                pairs = Arrays.copyOf(pairs, 2 * pairs.length);
+            }
+            pairs[2 * pairCount] = Math.min(edge, other);
+            pairs[2 * pairCount + 1] = Math.max(edge, other);
+            pairCount++;
+        }
+    }
+
+    private void testOrientation(int polygon, double[] x, double[] y) {
+        double initial = initialSignedAreas[polygon];
+        double current = signedArea(polygon, x, y);
+        if (initial != 0 && (current == 0 || (current < 0) != (initial < 0))) {
+            if (invertedCount == inverted.length) {
+                inverted = Arrays.copyOf(inverted, 2 * invertedCount);
+            }
+            inverted[invertedCount++] = polygon;
+        }
+    }
+
+    private double signedArea(int polygon, double[] x, double[] y) {
+        int[] ringCorners = topology.ringCorners;
+        int start = topology.ringOffsets[polygon];
+        int end = topology.ringOffsets[polygon + 1];
+        if (end - start < 3) {
+            return 0;
+        }
+        int previous = ringCorners[end - 1];
+        double sum = 0;
+        for (int i = start; i < end; i++) {
+            int corner = ringCorners[i];
+            sum += (y[previous] + y[corner]) * (x[previous] - x[corner]);
+            previous = corner;
+        }
+        return sum * 0.5;
+    }
+
+    private boolean intersects(int edge, int other, double[] x, double[] y) {
+        int a = edgeCorners[2 * edge];
+        int b = edgeCorners[2 * edge + 1];
+        int c = edgeCorners[2 * other];
+        int d = edgeCorners[2 * other + 1];
+        if (a == c || a == d || b == c || b == d) {
+            int common = (a == c || a == d) ? a : b;
+            int p = common == a ? b : a;
+            int q = (c == common) ? d : c;
+            double ux = x[p] - x[common];
+            double uy = y[p] - y[common];
+            double vx = x[q] - x[common];
+            double vy = y[q] - y[common];
+            return ux * vy - uy * vx == 0 && ux * vx + uy * vy > 0;
+        }
+        int o1 = orientation(x[a], y[a], x[b], y[b], x[c], y[c]);
+        int o2 = orientation(x[a], y[a], x[b], y[b], x[d], y[d]);
+        int o3 = orientation(x[c], y[c], x[d], y[d], x[a], y[a]);
+        int o4 = orientation(x[c], y[c], x[d], y[d], x[b], y[b]);
+        if (o1 * o2 < 0 && o3 * o4 < 0) {
+            return true;
+        }
+        return (o1 == 0 && isWithin(x[a], y[a], x[b], y[b], x[c], y[c]))
+                || (o2 == 0 && isWithin(x[a], y[a], x[b], y[b], x[d], y[d]))
+                || (o3 == 0 && isWithin(x[c], y[c], x[d], y[d], x[a], y[a]))
+                || (o4 == 0 && isWithin(x[c], y[c], x[d], y[d], x[b], y[b]));
+    }
+
+    private static int orientation(double x1, double y1, double x2, double y2, double px, double py) {
+        double cross = (x2 - x1) * (py - y1) - (y2 - y1) * (px - x1);
+        return cross > 0 ? 1 : (cross < 0 ? -1 : 0);
+    }
+
+    private static boolean isWithin(double x1, double y1, double x2, double y2, double px, double py) {
+        return Math.min(x1, x2) <= px && px <= Math.max(x1, x2)
+                && Math.min(y1, y2) <= py && py <= Math.max(y1, y2);
+    }
+}
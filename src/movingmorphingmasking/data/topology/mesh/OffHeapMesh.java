@@ -0,0 +1,593 @@
+package movingmorphingmasking.data.topology.mesh;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Off-heap store of a <code>MeshTopology</code> and the corner locations and
+ * target areas of one session, for meshes with millions of corners whose
+ * on-heap representation would put pressure on the garbage collector.
+ * <p>
+ * The store is a single buffer, either allocated directly or memory-mapped to
+ * a file that other processes can map as well ({@link #open(Path)}). The
+ * layout is little-endian and every section starts at a multiple of 8 bytes:
+ * <pre>
+ * header    8 ints: magic, version, corners, polygons, segments,
+ *           ring length, incident length, polygon length
+ * x, y      double[corners]
+ * segments  double[4 * segments] (x1, y1, x2, y2)
+ * areas     double[polygons] target areas
+ * kinds     byte[corners] ({@link MeshTopology#IMMOVABLE}, ...)
+ * cornerSegments, ringOffsets, ringCorners, incidentOffsets,
+ * incidentCorners, polygonOffsets, cornerPolygons   int[]
+ * </pre>
+ * The lifetime of the store is explicit: after {@link #close()} every access
+ * fails with an <code>IllegalStateException</code>. A single buffer is limited
+ * to 2 GB, that is about 40 million corners of a typical tesselation.
+ *
+ * @author julia schueler
+ */
+public class OffHeapMesh implements AutoCloseable {
+
+    public static final int MAGIC = 0x4d4d4d31;
+    public static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private final ByteBuffer buffer;
+    private final FileChannel channel;
+    private final int cornerCount;
+    private final int polygonCount;
+    private final DoubleBuffer x;
+    private final DoubleBuffer y;
+    private final DoubleBuffer segments;
+    private final DoubleBuffer targetAreas;
+    private final ByteBuffer kinds;
+    private final IntBuffer cornerSegments;
+    private final IntBuffer ringOffsets;
+    private final IntBuffer ringCorners;
+    private final IntBuffer incidentOffsets;
+    private final IntBuffer incidentCorners;
+    private final IntBuffer polygonOffsets;
+    private final IntBuffer cornerPolygons;
+    private boolean closed;
+
+    private OffHeapMesh(ByteBuffer buffer, FileChannel channel) {
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        this.channel = channel;
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("no off-heap mesh of version " + VERSION);
+        }
+        cornerCount = buffer.getInt(8);
+        polygonCount = buffer.getInt(12);
+        int segmentCount = buffer.getInt(16);
+        int ringLength = buffer.getInt(20);
+        int incidentLength = buffer.getInt(24);
+        int polygonLength = buffer.getInt(28);
+
+        int offset = HEADER_BYTES;
+        x = slice(offset, 8 * cornerCount).asDoubleBuffer();
+        offset = align(offset + 8 * cornerCount);
+        y = slice(offset, 8 * cornerCount).asDoubleBuffer();
+        offset = align(offset + 8 * cornerCount);
+        segments = slice(offset, 32 * segmentCount).asDoubleBuffer();
+        offset = align(offset + 32 * segmentCount);
+        targetAreas = slice(offset, 8 * polygonCount).asDoubleBuffer();
+        offset = align(offset + 8 * polygonCount);
+        kinds = slice(offset, cornerCount);
+        offset = align(offset + cornerCount);
+        cornerSegments = slice(offset, 4 * cornerCount).asIntBuffer();
+        offset = align(offset + 4 * cornerCount);
+        ringOffsets = slice(offset, 4 * (polygonCount + 1)).asIntBuffer();
+        offset = align(offset + 4 * (polygonCount + 1));
+        ringCorners = slice(offset, 4 * ringLength).asIntBuffer();
+        offset = align(offset + 4 * ringLength);
+        incidentOffsets = slice(offset, 4 * (cornerCount + 1)).asIntBuffer();
+        offset = align(offset + 4 * (cornerCount + 1));
+        incidentCorners = slice(offset, 4 * incidentLength).asIntBuffer();
+        offset = align(offset + 4 * incidentLength);
+        polygonOffsets = slice(offset, 4 * (cornerCount + 1)).asIntBuffer();
+        offset = align(offset + 4 * (cornerCount + 1));
+        cornerPolygons = slice(offset, 4 * polygonLength).asIntBuffer();
+    }
+
+    /**
+     * Returns a new direct store of a specific topology with its initial
+     * corner locations.
+     *
+     * @param topology topology to store.
+     * @return store of the topology.
+     */
+    public static OffHeapMesh allocate(MeshTopology topology) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(checkedSize(topology)).order(ByteOrder.LITTLE_ENDIAN);
+        write(topology, buffer);
+        return new OffHeapMesh(buffer, null);
+    }
+
+    /**
+     * Returns a new store of a specific topology with its initial corner
+     * locations, memory-mapped to a specific file. An existing file is
+     * overwritten.
+     *
+     * @param topology topology to store.
+     * @param file file of the store.
+     * @return store of the topology.
+     * @throws IOException if the file cannot be mapped.
+     */
+    public static OffHeapMesh create(MeshTopology topology, Path file) throws IOException {
+        int size = checkedSize(topology);
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            write(topology, buffer);
+            return new OffHeapMesh(buffer, channel);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        } catch (RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the store of an existing file, e.g. of another process. Changes
+     * of the corner locations are shared with all other mappings of the file.
+     *
+     * @param file file of the store.
+     * @return store of the file.
+     * @throws IOException if the file cannot be mapped.
+     */
+    public static OffHeapMesh open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            return new OffHeapMesh(buffer, channel);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        } catch (RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the store of a specific buffer in the layout of this, e.g. read
+     * from a trace. The buffer is used, not copied.
+     *
+     * @param buffer buffer of the store.
+     * @return store of the buffer.
+     */
+    public static OffHeapMesh wrap(ByteBuffer buffer) {
+        return new OffHeapMesh(buffer.slice(), null);
+    }
+
+    /**
+     * Returns the size of the store of a specific topology.
+     *
+     * @param topology specific topology.
+     * @return size in bytes.
+     */
+    public static long getSize(MeshTopology topology) {
+        long n = topology.getCornerCount();
+        long p = topology.getPolygonCount();
+        long size = HEADER_BYTES;
+        size += 2 * alignLong(8 * n);
+        size += alignLong(8L * topology.segments.length);
+        size += alignLong(8 * p);
+        size += alignLong(n);
+        size += alignLong(4 * n);
+        size += alignLong(4 * (p + 1));
+        size += alignLong(4L * topology.ringCorners.length);
+        size += alignLong(4 * (n + 1));
+        size += alignLong(4L * topology.incidentCorners.length);
+        size += alignLong(4 * (n + 1));
+        size += alignLong(4L * topology.cornerPolygons.length);
+        return size;
+    }
+
+    /**
+     * Returns a new heap topology of the stored one. The current corner
+     * locations are the initial locations of the topology.
+     *
+     * @return topology.
+     */
+    public MeshTopology toTopology() {
+        ensureOpen();
+        byte[] kindArray = new byte[cornerCount];
+        ByteBuffer kindValues = kinds.duplicate();
+        kindValues.clear();
+        kindValues.get(kindArray);
+        return new MeshTopology(kindArray, toArray(cornerSegments), toArray(segments), toArray(ringOffsets),
+                toArray(ringCorners), toArray(incidentOffsets), toArray(incidentCorners), toArray(polygonOffsets),
+                toArray(cornerPolygons), toArray(targetAreas), toArray(x), toArray(y));
+    }
+
+    /**
+     * Returns a read-only view of the whole store, e.g. to write it into a
+     * channel.
+     *
+     * @return view of the store, positioned at 0.
+     */
+    ByteBuffer asReadOnlyBuffer() {
+        ensureOpen();
+        ByteBuffer view = buffer.asReadOnlyBuffer();
+        view.clear();
+        return view;
+    }
+
+    /**
+     * Returns the count of corners.
+     *
+     * @return count of corners.
+     */
+    public int getCornerCount() {
+        ensureOpen();
+        return cornerCount;
+    }
+
+    /**
+     * Returns the count of polygons.
+     *
+     * @return count of polygons.
+     */
+    public int getPolygonCount() {
+        ensureOpen();
+        return polygonCount;
+    }
+
+    /**
+     * Returns the X coordinate of a specific corner.
+     *
+     * @param corner index of the corner.
+     * @return X coordinate.
+     */
+    public double getX(int corner) {
+        ensureOpen();
+        return x.get(corner);
+    }
+
+    /**
+     * Returns the Y coordinate of a specific corner.
+     *
+     * @param corner index of the corner.
+     * @return Y coordinate.
+     */
+    public double getY(int corner) {
+        ensureOpen();
+        return y.get(corner);
+    }
+
+    /**
+     * Returns the kind of a specific corner.
+     *
+     * @param corner index of the corner.
+     * @return kind of the corner.
+     */
+    public byte getKind(int corner) {
+        ensureOpen();
+        return kinds.get(corner);
+    }
+
+    /**
+     * Sets the location of a specific corner to the closest possible location
+     * of the specified coordinates ({@link MeshGeometry#setLocation}).
+     *
+     * @param corner index of the corner.
+     * @param x the desired X coordinate of the corner.
+     * @param y the desired Y coordinate of the corner.
+     */
+    public void setLocation(int corner, double x, double y) {
+        ensureOpen();
+        switch (kinds.get(corner)) {
+            case MeshTopology.MOVABLE:
+                this.x.put(corner, x);
+                this.y.put(corner, y);
+                break;
+            case MeshTopology.LINESLIDER:
+                int s = 4 * cornerSegments.get(corner);
+                double x1 = segments.get(s);
+                double y1 = segments.get(s + 1);
+                double dx = segments.get(s + 2) - x1;
+                double dy = segments.get(s + 3) - y1;
+                double lengthSq = dx * dx + dy * dy;
+                if (lengthSq == 0) {
+                    return;
+                }
+                double t = ((x - x1) * dx + (y - y1) * dy) / lengthSq;
+                t = t < 0 ? 0 : (t > 1 ? 1 : t);
+                this.x.put(corner, x1 + t * dx);
+                this.y.put(corner, y1 + t * dy);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Returns the count of corners of a specific polygon.
+     *
+     * @param polygon index of the polygon.
+     * @return length of the ring.
+     */
+    public int getRingLength(int polygon) {
+        ensureOpen();
+        return ringOffsets.get(polygon + 1) - ringOffsets.get(polygon);
+    }
+
+    /**
+     * Returns a specific corner of a ring.
+     *
+     * @param polygon index of the polygon.
+     * @param i position in the ring.
+     * @return index of the corner.
+     */
+    public int getRingCorner(int polygon, int i) {
+        ensureOpen();
+        return ringCorners.get(ringOffsets.get(polygon) + i);
+    }
+
+    /**
+     * Returns the count of incident corners of a specific corner.
+     *
+     * @param corner index of the corner.
+     * @return count of incident corners.
+     */
+    public int getIncidentCornerCount(int corner) {
+        ensureOpen();
+        return incidentOffsets.get(corner + 1) - incidentOffsets.get(corner);
+    }
+
+    /**
+     * Returns a specific incident corner of a corner.
+     *
+     * @param corner index of the corner.
+     * @param i position in the incident corners.
+     * @return index of the incident corner.
+     */
+    public int getIncidentCorner(int corner, int i) {
+        ensureOpen();
+        return incidentCorners.get(incidentOffsets.get(corner) + i);
+    }
+
+    /**
+     * Returns the count of associated polygons of a specific corner.
+     *
+     * @param corner index of the corner.
+     * @return count of polygons.
+     */
+    public int getAssociatedPolygonCount(int corner) {
+        ensureOpen();
+        return polygonOffsets.get(corner + 1) - polygonOffsets.get(corner);
+    }
+
+    /**
+     * Returns a specific associated polygon of a corner.
+     *
+     * @param corner index of the corner.
+     * @param i position in the associated polygons.
+     * @return index of the polygon.
+     */
+    public int getAssociatedPolygon(int corner, int i) {
+        ensureOpen();
+        return cornerPolygons.get(polygonOffsets.get(corner) + i);
+    }
+
+    /**
+     * Returns the target area of a specific polygon.
+     *
+     * @param polygon index of the polygon.
+     * @return target area.
+     */
+    public double getTargetArea(int polygon) {
+        ensureOpen();
+        return targetAreas.get(polygon);
+    }
+
+    /**
+     * Returns the current area of a specific polygon with the Shoelace
+     * formula. It is assumed that the polygon is simple.
+     *
+     * @param polygon index of the polygon.
+     * @return area of the polygon.
+     */
+    public double getCurrentArea(int polygon) {
+        ensureOpen();
+        int start = ringOffsets.get(polygon);
+        int end = ringOffsets.get(polygon + 1);
+        if (end - start < 3) {
+            return 0;
+        }
+        int previous = ringCorners.get(end - 1);
+        double sum = 0;
+        for (int i = start; i < end; i++) {
+            int corner = ringCorners.get(i);
+            sum += (y.get(previous) + y.get(corner)) * (x.get(previous) - x.get(corner));
+            previous = corner;
+        }
+        return Math.abs(sum * 0.5);
+    }
+
+    /**
+     * Copies the corner locations and target areas of a geometry of the
+     * stored topology into this.
+     *
+     * @param geometry geometry to copy.
+     */
+    public void readFrom(MeshGeometry geometry) {
+        ensureOpen();
+        checkCornerCount(geometry);
+        DoubleBuffer xValues = x.duplicate();
+        xValues.clear();
+        xValues.put(geometry.x);
+        DoubleBuffer yValues = y.duplicate();
+        yValues.clear();
+        yValues.put(geometry.y);
+        DoubleBuffer areaValues = targetAreas.duplicate();
+        areaValues.clear();
+        areaValues.put(geometry.targetAreas);
+    }
+
+    /**
+     * Copies the corner locations and target areas of this into a geometry of
+     * the stored topology.
+     *
+     * @param geometry geometry to set.
+     */
+    public void writeTo(MeshGeometry geometry) {
+        ensureOpen();
+        checkCornerCount(geometry);
+        for (int i = 0; i < cornerCount; i++) {
+            geometry.set(i, x.get(i), y.get(i));
+        }
+        for (int p = 0; p < polygonCount; p++) {
+            geometry.putTargetArea(p, targetAreas.get(p));
+        }
+    }
+
+    /**
+     * Writes the changes of a memory-mapped store to its file.
+     */
+    public void force() {
+        ensureOpen();
+        if (buffer instanceof MappedByteBuffer) {
+            ((MappedByteBuffer) buffer).force();
+        }
+    }
+
+    /**
+     * Returns if this is closed.
+     *
+     * @return <tt>true</tt> if this is closed.
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Closes this. The file of a memory-mapped store is closed, the memory is
+     * released as soon as the buffer is unreachable.
+     *
+     * @throws IOException if the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("off-heap mesh is closed");
+        }
+    }
+
+    private void checkCornerCount(MeshGeometry geometry) {
+        if (geometry.x.length != cornerCount || geometry.targetAreas.length != polygonCount) {
+            throw new IllegalArgumentException("geometry of another topology");
+        }
+    }
+
+    private static int[] toArray(IntBuffer values) {
+        int[] array = new int[values.capacity()];
+        IntBuffer all = values.duplicate();
+        all.clear();
+        all.get(array);
+        return array;
+    }
+
+    private static double[] toArray(DoubleBuffer values) {
+        double[] array = new double[values.capacity()];
+        DoubleBuffer all = values.duplicate();
+        all.clear();
+        all.get(array);
+        return array;
+    }
+
+    private ByteBuffer slice(int offset, int length) {
+        return slice(buffer, offset, length);
+    }
+
+    /**
+     * Returns a little-endian view of a specific range of a buffer,
+     * independent of its position and limit.
+     *
+     * @param buffer specific buffer.
+     * @param offset start of the range.
+     * @param length length of the range.
+     * @return view of the range.
+     */
+    static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer view = buffer.duplicate();
+        view.limit(offset + length);
+        view.position(offset);
+        return view.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void write(MeshTopology topology, ByteBuffer buffer) {
+        int n = topology.getCornerCount();
+        int p = topology.getPolygonCount();
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, n);
+        buffer.putInt(12, p);
+        buffer.putInt(16, topology.segments.length / 4);
+        buffer.putInt(20, topology.ringCorners.length);
+        buffer.putInt(24, topology.incidentCorners.length);
+        buffer.putInt(28, topology.cornerPolygons.length);
+
+        int offset = HEADER_BYTES;
+        offset = putDoubles(buffer, offset, topology.initialX);
+        offset = putDoubles(buffer, offset, topology.initialY);
+        offset = putDoubles(buffer, offset, topology.segments);
+        offset = putDoubles(buffer, offset, topology.targetAreas);
+        slice(buffer, offset, n).put(topology.kinds);
+        offset = align(offset + n);
+        offset = putInts(buffer, offset, topology.cornerSegments);
+        offset = putInts(buffer, offset, topology.ringOffsets);
+        offset = putInts(buffer, offset, topology.ringCorners);
+        offset = putInts(buffer, offset, topology.incidentOffsets);
+        offset = putInts(buffer, offset, topology.incidentCorners);
+        offset = putInts(buffer, offset, topology.polygonOffsets);
+        putInts(buffer, offset, topology.cornerPolygons);
+    }
+
+    private static int putDoubles(ByteBuffer buffer, int offset, double[] values) {
+        slice(buffer, offset, 8 * values.length).asDoubleBuffer().put(values);
+        return align(offset + 8 * values.length);
+    }
+
+    private static int putInts(ByteBuffer buffer, int offset, int[] values) {
+        slice(buffer, offset, 4 * values.length).asIntBuffer().put(values);
+        return align(offset + 4 * values.length);
+    }
+
+    private static int checkedSize(MeshTopology topology) {
+        long size = getSize(topology);
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("topology exceeds 2 GB: " + size + " bytes");
+        }
+        return (int) size;
+    }
+
+    private static int align(int offset) {
+        return (offset + 7) & ~7;
+    }
+
+    private static long alignLong(long length) {
+        return (length + 7) & ~7L;
+    }
+}
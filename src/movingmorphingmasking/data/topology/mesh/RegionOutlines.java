@@ -0,0 +1,426 @@
+package movingmorphingmasking.data.topology.mesh;
+
+import java.awt.geom.Path2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import kn.uni.voronoitreemap.j2d.PolygonSimple;
+import movingmorphingmasking.data.topology.maskingpseudoregionfactory.PseudoRegionHolder;
+
+/**
+ * Cached outlines of the pseudo regions of a <code>MeshGeometry</code>, each
+ * the union of the deformed polygons of one region.
+ * <p>
+ * The outlines are extracted once on the topology: an edge is a boundary edge
+ * of a region if exactly one of its polygons belongs to the region. The
+ * boundary edges of a region, all directed counterclockwise, are walked into
+ * closed loops, one for the outer boundary and one for each hole or
+ * separate part. Only the corner indices of the loops are stored, so a frame
+ * has to gather the locations of the corners of the outlines whose corners
+ * moved, which is linear in the size of their boundaries.
+ *
+ * @author julia schueler
+ */
+public class RegionOutlines {
+
+    private final MeshGeometry geometry;
+    private final int[] polygonRegions;
+    private final int[][] loopOffsets;
+    private final int[][] loopCorners;
+    private final int[] cornerRegionOffsets;
+    private final int[] cornerRegions;
+    private final double[][] xs;
+    private final double[][] ys;
+    private final boolean[] dirty;
+
+    /**
+     * Constructor for the outlines of the regions of a specific geometry.
+     *
+     * @param geometry geometry of the polygons.
+     * @param polygonRegions region of every polygon of the topology, or -1 for
+     * a polygon of no region.
+     * @param regionCount count of regions.
+     */
+    public RegionOutlines(MeshGeometry geometry, int[] polygonRegions, int regionCount) {
+        MeshTopology topology = geometry.getTopology();
+        if (polygonRegions.length != topology.getPolygonCount()) {
+            throw new IllegalArgumentException("count of polygon regions " + polygonRegions.length
+                    + " does not match count of polygons " + topology.getPolygonCount());
+        }
+        this.geometry = geometry;
+        this.polygonRegions = polygonRegions.clone();
+        this.loopOffsets = new int[regionCount][];
+        this.loopCorners = new int[regionCount][];
+        this.xs = new double[regionCount][];
+        this.ys = new double[regionCount][];
+        this.dirty = new boolean[regionCount];
+
+        List<List<int[]>> boundaries = collectBoundaryEdges(topology, this.polygonRegions, regionCount);
+        int n = topology.getCornerCount();
+        int[] regionCounts = new int[n];
+        int[] lastRegions = new int[n];
+        Arrays.fill(lastRegions, -1);
+        for (int r = 0; r < regionCount; r++) {
+            walkLoops(r, boundaries.get(r));
+            for (int corner : loopCorners[r]) {
+                if (lastRegions[corner] != r) {
+                    lastRegions[corner] = r;
+                    regionCounts[corner]++;
+                }
+            }
+            xs[r] = new double[loopCorners[r].length];
+            ys[r] = new double[loopCorners[r].length];
+            dirty[r] = true;
+        }
+        cornerRegionOffsets = new int[n + 1];
+        for (int c = 0; c < n; c++) {
+            cornerRegionOffsets[c + 1] = cornerRegionOffsets[c] + regionCounts[c];
+        }
+        cornerRegions = new int[cornerRegionOffsets[n]];
+        int[] fill = Arrays.copyOf(cornerRegionOffsets, n);
+        Arrays.fill(lastRegions, -1);
+        for (int r = 0; r < regionCount; r++) {
+            for (int corner : loopCorners[r]) {
+                if (lastRegions[corner] != r) {
+                    lastRegions[corner] = r;
+                    cornerRegions[fill[corner]++] = r;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the region of every polygon of the tesselation of a specific
+     * holder, in the order of its tesselation, that is the order of the
+     * polygons of a <code>MeshTopology</code> of its
+     * <code>PolygonDeformable</code>s. A polygon belongs to the pseudo region
+     * polygon that contains the centroid of its initial ring.
+     *
+     * @param holder holder of the pseudo region tesselation.
+     * @return region of every polygon, or -1 for a polygon of no region.
+     */
+    public static int[] getPolygonRegions(PseudoRegionHolder holder) {
+        List<PolygonSimple> tesselation = holder.getTesselation();
+        List<PolygonSimple> pseudoRegions = holder.getPseudoRegionPolygones();
+        int[] regions = new int[tesselation.size()];
+        for (int p = 0; p < regions.length; p++) {
+            double[] centroid = centroid(tesselation.get(p));
+            regions[p] = -1;
+            for (int r = 0; r < pseudoRegions.size(); r++) {
+                if (contains(pseudoRegions.get(r), centroid[0], centroid[1])) {
+                    regions[p] = r;
+                    break;
+                }
+            }
+        }
+        return regions;
+    }
+
+    /**
+     * Returns the geometry of this.
+     *
+     * @return geometry.
+     */
+    public MeshGeometry getGeometry() {
+        return geometry;
+    }
+
+    /**
+     * Returns the count of regions.
+     *
+     * @return count of regions.
+     */
+    public int getRegionCount() {
+        return loopCorners.length;
+    }
+
+    /**
+     * Returns the region of a specific polygon.
+     *
+     * @param polygon index of the polygon.
+     * @return index of the region or -1.
+     */
+    public int getRegion(int polygon) {
+        return polygonRegions[polygon];
+    }
+
+    /**
+     * Marks the outlines of the regions of specific moved corners to be
+     * updated.
+     *
+     * @param movedCorners indices of the moved corners.
+     * @param count count of moved corners.
+     */
+    public void markMoved(int[] movedCorners, int count) {
+        for (int k = 0; k < count; k++) {
+            int corner = movedCorners[k];
+            for (int i = cornerRegionOffsets[corner]; i < cornerRegionOffsets[corner + 1]; i++) {
+                dirty[cornerRegions[i]] = true;
+            }
+        }
+    }
+
+    /**
+     * Marks all outlines to be updated.
+     */
+    public void markAllMoved() {
+        Arrays.fill(dirty, true);
+    }
+
+    /**
+     * Updates all marked outlines.
+     *
+     * @return count of updated outlines.
+     */
+    public int update() {
+        int updated = 0;
+        for (int r = 0; r < dirty.length; r++) {
+            if (dirty[r]) {
+                gather(r);
+                updated++;
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * Returns the count of loops of the outline of a specific region.
+     *
+     * @param region index of the region.
+     * @return count of loops.
+     */
+    public int getLoopCount(int region) {
+        return loopOffsets[region].length - 1;
+    }
+
+    /**
+     * Returns the offsets of the loops of the outline of a specific region.
+     * Loop i is stored in [offsets[i], offsets[i + 1]) of the coordinates and
+     * corners. The returned array must not be changed.
+     *
+     * @param region index of the region.
+     * @return loop offsets.
+     */
+    public int[] getLoopOffsets(int region) {
+        return loopOffsets[region];
+    }
+
+    /**
+     * Returns the corner indices of the outline of a specific region. The
+     * returned array must not be changed.
+     *
+     * @param region index of the region.
+     * @return corners of the outline.
+     */
+    public int[] getCorners(int region) {
+        return loopCorners[region];
+    }
+
+    /**
+     * Returns the current X coordinates of the outline of a specific region.
+     * The returned array must not be changed.
+     *
+     * @param region index of the region.
+     * @return X coordinates.
+     */
+    public double[] getX(int region) {
+        if (dirty[region]) {
+            gather(region);
+        }
+        return xs[region];
+    }
+
+    /**
+     * Returns the current Y coordinates of the outline of a specific region.
+     * The returned array must not be changed.
+     *
+     * @param region index of the region.
+     * @return Y coordinates.
+     */
+    public double[] getY(int region) {
+        if (dirty[region]) {
+            gather(region);
+        }
+        return ys[region];
+    }
+
+    /**
+     * Returns the current outline of a specific region as a path with the
+     * even-odd winding rule.
+     *
+     * @param region index of the region.
+     * @return outline path.
+     */
+    public Path2D.Double getPath(int region) {
+        double[] x = getX(region);
+        double[] y = getY(region);
+        int[] offsets = loopOffsets[region];
+        Path2D.Double path = new Path2D.Double(Path2D.WIND_EVEN_ODD, x.length);
+        for (int l = 0; l + 1 < offsets.length; l++) {
+            path.moveTo(x[offsets[l]], y[offsets[l]]);
+            for (int i = offsets[l] + 1; i < offsets[l + 1]; i++) {
+                path.lineTo(x[i], y[i]);
+            }
+            path.closePath();
+        }
+        return path;
+    }
+
+    private void gather(int region) {
+        int[] corners = loopCorners[region];
+        double[] x = xs[region];
+        double[] y = ys[region];
+        for (int i = 0; i < corners.length; i++) {
+            x[i] = geometry.x[corners[i]];
+            y[i] = geometry.y[corners[i]];
+        }
+        dirty[region] = false;
+    }
+
+    private static List<List<int[]>> collectBoundaryEdges(MeshTopology topology, int[] polygonRegions,
+            int regionCount) {
+        long n = topology.getCornerCount();
+        List<Map<Long, int[]>> regionEdges = new ArrayList<Map<Long, int[]>>(regionCount);
+        for (int r = 0; r < regionCount; r++) {
+            regionEdges.add(new HashMap<Long, int[]>());
+        }
+        for (int p = 0; p < polygonRegions.length; p++) {
+            int region = polygonRegions[p];
+            if (region < 0) {
+                continue;
+            } else if (region >= regionCount) {
+                throw new IllegalArgumentException("region " + region + " of polygon " + p
+                        + " exceeds count of regions " + regionCount);
+            }
+            Map<Long, int[]> edges = regionEdges.get(region);
+            int start = topology.ringOffsets[p];
+            int end = topology.ringOffsets[p + 1];
+            boolean counterclockwise = signedArea(topology, start, end) >= 0;
+            for (int i = start; i < end; i++) {
+                int a = topology.ringCorners[i];
+                int b = topology.ringCorners[i + 1 < end ? i + 1 : start];
+                if (a == b) {
+                    continue;
+                }
+                if (!counterclockwise) {
+                    int swap = a;
+                    a = b;
+                    b = swap;
+                }
+                Long key = Math.min(a, b) * n + Math.max(a, b);
+                int[] edge = edges.get(key);
+                if (edge == null) {
+                    edges.put(key, new int[]{a, b, 1});
+                } else {
+                    edge[2]++;
+                }
+            }
+        }
+        List<List<int[]>> boundaries = new ArrayList<List<int[]>>(regionCount);
+        for (int r = 0; r < regionCount; r++) {
+            List<int[]> boundary = new ArrayList<int[]>();
+            for (int[] edge : regionEdges.get(r).values()) {
+                if (edge[2] == 1) {
+                    boundary.add(edge);
+                }
+            }
+            boundaries.add(boundary);
+        }
+        return boundaries;
+    }
+
+    private void walkLoops(int region, List<int[]> boundary) {
+        Map<Integer, List<int[]>> outgoing = new HashMap<Integer, List<int[]>>();
+        for (int[] edge : boundary) {
+            List<int[]> list = outgoing.get(edge[0]);
+            if (list == null) {
+                list = new ArrayList<int[]>(2);
+                outgoing.put(edge[0], list);
+            }
+            list.add(edge);
+        }
+        int[] corners = new int[boundary.size()];
+        int[] offsets = new int[boundary.size() + 1];
+        int cornerCount = 0;
+        int loopCount = 0;
+        for (int[] first : boundary) {
+            if (first[2] == 0) {
+                continue;
+            }
+            int[] edge = first;
+            while (edge != null && edge[2] != 0) {
+                edge[2] = 0;
+                corners[cornerCount++] = edge[0];
+                edge = nextEdge(outgoing.get(edge[1]));
+            }
+            offsets[++loopCount] = cornerCount;
+        }
+        loopCorners[region] = Arrays.copyOf(corners, cornerCount);
+        loopOffsets[region] = Arrays.copyOf(offsets, loopCount + 1);
+    }
+
+    private static int[] nextEdge(List<int[]> candidates) {
+        if (candidates != null) {
+            for (int[] edge : candidates) {
+                if (edge[2] != 0) {
+                    return edge;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static double signedArea(MeshTopology topology, int start, int end) {
+        double sum = 0;
+        int previous = topology.ringCorners[end - 1];
+        for (int i = start; i < end; i++) {
+            int corner = topology.ringCorners[i];
+            sum += (topology.initialX[corner] - topology.initialX[previous])
+                    * (topology.initialY[corner] + topology.initialY[previous]);
+            previous = corner;
+        }
+        return -sum * 0.5;
+    }
+
+    private static double[] centroid(PolygonSimple polygon) {
+        double[] x = polygon.getXPoints();
+        double[] y = polygon.getYPoints();
+        int n = x.length;
+        double cross = 0;
+        double cx = 0;
+        double cy = 0;
+        for (int i = 0; i < n; i++) {
+            int j = (i + 1) % n;
+            double c = x[i] * y[j] - x[j] * y[i];
+            cross += c;
+            cx += (x[i] + x[j]) * c;
+            cy += (y[i] + y[j]) * c;
+        }
+        if (cross == 0) {
+            double sx = 0;
+            double sy = 0;
+            for (int i = 0; i < n; i++) {
+                sx += x[i];
+                sy += y[i];
+            }
+            return new double[]{sx / n, sy / n};
+        }
+        return new double[]{cx / (3 * cross), cy / (3 * cross)};
+    }
+
+    private static boolean contains(PolygonSimple polygon, double px, double py) {
+        double[] x = polygon.getXPoints();
+        double[] y = polygon.getYPoints();
+        int n = x.length;
+        boolean inside = false;
+        for (int i = 0, j = n - 1; i < n; j = i++) {
+            if ((y[i] > py) != (y[j] > py)
+                    && px < (x[j] - x[i]) * (py - y[i]) / (y[j] - y[i]) + x[i]) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+}
@@ -0,0 +1,291 @@
+package movingmorphingmasking.data.topology.mesh;
+
+import java.awt.Graphics2D;
+import java.awt.Paint;
+import java.awt.geom.Path2D;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Single precision coordinates of a <code>MeshTopology</code> for sessions
+ * that only render a morph.
+ * <p>
+ * The topology and the constraints of the corners stay in double precision,
+ * the solver works on a <code>MeshGeometry</code>. A render mesh keeps the
+ * coordinates as floats, which halves the memory of the coordinates and the
+ * size of the messages: after {@link #update(MeshGeometry)} it knows the
+ * corners whose float coordinates changed and writes them as a delta, or all
+ * corners as a snapshot. A viewer applies the messages with
+ * {@link #read(ByteBuffer)} to its own render mesh of the same topology.
+ * <p>
+ * Message layout (all values little-endian):
+ * <pre>
+ * snapshot : int SNAPSHOT_MAGIC, int frame, int cornerCount,
+ *            cornerCount * (float x, float y)
+ * delta    : int DELTA_MAGIC, int frame, int count,
+ *            count * (int corner, float x, float y)
+ * </pre>
+ *
+ * @author julia schueler
+ */
+public class RenderMesh {
+
+    public static final int SNAPSHOT_MAGIC = 0x4d4d5346;
+    public static final int DELTA_MAGIC = 0x4d4d4446;
+    public static final int HEADER_BYTES = 12;
+    private final MeshTopology topology;
+    final float[] x;
+    final float[] y;
+    private final boolean[] changed;
+    private int[] changedCorners;
+    private int changedCount;
+    private int frameNumber;
+    private final Path2D.Float path;
+
+    /**
+     * Constructor for the render mesh of a specific topology at its initial
+     * locations.
+     *
+     * @param topology topology of the mesh.
+     */
+    public RenderMesh(MeshTopology topology) {
+        int n = topology.getCornerCount();
+        this.topology = topology;
+        this.x = new float[n];
+        this.y = new float[n];
+        for (int c = 0; c < n; c++) {
+            x[c] = (float) topology.initialX[c];
+            y[c] = (float) topology.initialY[c];
+        }
+        this.changed = new boolean[n];
+        this.changedCorners = new int[16];
+        this.changedCount = 0;
+        this.frameNumber = 0;
+        this.path = new Path2D.Float(Path2D.WIND_EVEN_ODD);
+    }
+
+    /**
+     * Returns the topology of this.
+     *
+     * @return topology.
+     */
+    public MeshTopology getTopology() {
+        return topology;
+    }
+
+    /**
+     * Returns the X coordinate of a specific corner.
+     *
+     * @param corner index of the corner.
+     * @return X coordinate.
+     */
+    public float getX(int corner) {
+        return x[corner];
+    }
+
+    /**
+     * Returns the Y coordinate of a specific corner.
+     *
+     * @param corner index of the corner.
+     * @return Y coordinate.
+     */
+    public float getY(int corner) {
+        return y[corner];
+    }
+
+    /**
+     * Returns the number of the next written frame.
+     *
+     * @return frame number.
+     */
+    public int getFrameNumber() {
+        return frameNumber;
+    }
+
+    /**
+     * Takes the rounded locations of the movable corners and line sliders of
+     * a specific geometry.
+     *
+     * @param geometry geometry of the topology of this.
+     * @return count of corners changed since the last written message.
+     */
+    public int update(MeshGeometry geometry) {
+        if (geometry.getTopology() != topology) {
+            throw new IllegalArgumentException("geometry of another topology");
+        }
+        int end = topology.immovableStart;
+        for (int c = 0; c < end; c++) {
+            float fx = (float) geometry.x[c];
+            float fy = (float) geometry.y[c];
+            if (fx != x[c] || fy != y[c]) {
+                x[c] = fx;
+                y[c] = fy;
+                markChanged(c);
+            }
+        }
+        return changedCount;
+    }
+
+    /**
+     * Returns the count of corners changed since the last written message.
+     *
+     * @return count of changed corners.
+     */
+    public int getChangedCount() {
+        return changedCount;
+    }
+
+    /**
+     * Returns the size of a snapshot of this.
+     *
+     * @return size in bytes.
+     */
+    public int getSnapshotSize() {
+        return HEADER_BYTES + 8 * x.length;
+    }
+
+    /**
+     * Returns the size of the delta of the changed corners.
+     *
+     * @return size in bytes.
+     */
+    public int getDeltaSize() {
+        return HEADER_BYTES + 12 * changedCount;
+    }
+
+    /**
+     * Writes all corners as a snapshot into a buffer.
+     *
+     * @param buffer buffer with at least <code>getSnapshotSize()</code> bytes
+     * remaining.
+     */
+    public void writeSnapshot(ByteBuffer buffer) {
+        ByteOrder order = buffer.order();
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(SNAPSHOT_MAGIC);
+        buffer.putInt(frameNumber++);
+        buffer.putInt(x.length);
+        for (int c = 0; c < x.length; c++) {
+            buffer.putFloat(x[c]);
+            buffer.putFloat(y[c]);
+        }
+        buffer.order(order);
+        clearChanged();
+    }
+
+    /**
+     * Writes the changed corners as a delta into a buffer.
+     *
+     * @param buffer buffer with at least <code>getDeltaSize()</code> bytes
+     * remaining.
+     */
+    public void writeDelta(ByteBuffer buffer) {
+        ByteOrder order = buffer.order();
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(DELTA_MAGIC);
+        buffer.putInt(frameNumber++);
+        buffer.putInt(changedCount);
+        for (int i = 0; i < changedCount; i++) {
+            int c = changedCorners[i];
+            buffer.putInt(c);
+            buffer.putFloat(x[c]);
+            buffer.putFloat(y[c]);
+        }
+        buffer.order(order);
+        clearChanged();
+    }
+
+    /**
+     * Reads a snapshot or a delta from a buffer and sets the locations of its
+     * corners.
+     *
+     * @param buffer buffer positioned at the message.
+     * @return frame number of the message.
+     */
+    public int read(ByteBuffer buffer) {
+        ByteOrder order = buffer.order();
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            int magic = buffer.getInt();
+            int frame = buffer.getInt();
+            int count = buffer.getInt();
+            if (magic == SNAPSHOT_MAGIC) {
+                if (count != x.length) {
+                    throw new IllegalArgumentException("snapshot of " + count + " corners, expected " + x.length);
+                }
+                for (int c = 0; c < count; c++) {
+                    x[c] = buffer.getFloat();
+                    y[c] = buffer.getFloat();
+                }
+            } else if (magic == DELTA_MAGIC) {
+                for (int i = 0; i < count; i++) {
+                    int c = buffer.getInt();
+                    if (c < 0 || c >= x.length) {
+                        throw new IllegalArgumentException("corner out of range: " + c);
+                    }
+                    x[c] = buffer.getFloat();
+                    y[c] = buffer.getFloat();
+                }
+            } else {
+                throw new IllegalArgumentException("no render mesh message");
+            }
+            frameNumber = frame + 1;
+            return frame;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("truncated render mesh message", e);
+        } finally {
+            buffer.order(order);
+        }
+    }
+
+    /**
+     * Fills all polygons.
+     *
+     * @param graphics graphics to draw on.
+     * @param paints paint of every polygon, indexed by the polygon index, or
+     * <code>null</code> for the current paint of the graphics. A polygon with
+     * a <code>null</code> entry is filled with the current paint, too.
+     */
+    public void fill(Graphics2D graphics, Paint[] paints) {
+        Paint original = graphics.getPaint();
+        int polygonCount = topology.getPolygonCount();
+        for (int p = 0; p < polygonCount; p++) {
+            int start = topology.ringOffsets[p];
+            int end = topology.ringOffsets[p + 1];
+            if (end - start < 3) {
+                continue;
+            }
+            path.reset();
+            path.moveTo(x[topology.ringCorners[start]], y[topology.ringCorners[start]]);
+            for (int i = start + 1; i < end; i++) {
+                path.lineTo(x[topology.ringCorners[i]], y[topology.ringCorners[i]]);
+            }
+            path.closePath();
+            if (paints != null) {
+                graphics.setPaint(paints[p] != null ? paints[p] : original);
+            }
+            graphics.fill(path);
+        }
+        graphics.setPaint(original);
+    }
+
+    private void markChanged(int corner) {
+        if (!changed[corner]) {
+            changed[corner] = true;
+            if (changedCount == changedCorners.length) {
+                int[] grown = new int[2 * changedCount];
+                System.arraycopy(changedCorners, 0, grown, 0, changedCount);
+                changedCorners = grown;
+            }
+            changedCorners[changedCount++] = corner;
+        }
+    }
+
+    private void clearChanged() {
+        for (int i = 0; i < changedCount; i++) {
+            changed[changedCorners[i]] = false;
+        }
+        changedCount = 0;
+    }
+}
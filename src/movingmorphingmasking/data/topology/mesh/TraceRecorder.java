@@ -0,0 +1,196 @@
+package movingmorphingmasking.data.topology.mesh;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Records the interaction with a <code>MeshGeometry</code> as a binary trace
+ * that a <code>TraceReplayer</code> replays, e.g. to reproduce a performance
+ * problem of a production session in a benchmark.
+ * <p>
+ * The trace starts with a snapshot of the topology, the current corner
+ * locations and target areas in the layout of an <code>OffHeapMesh</code>.
+ * Afterwards every change of a corner location with the resulting (already
+ * projected) location, whether it is made by
+ * {@link MeshGeometry#setLocation(int, double, double)}, a rollback, a copy or
+ * any other writer of the geometry, every change of a target area and every
+ * frame boundary ({@link #recordFrame()}) is appended as a record with the
+ * time since the start of the recording. The records are collected in a reused direct
+ * buffer, so a record costs a clock read and a few buffer writes.
+ * <p>
+ * Trace layout (all values little-endian):
+ * <pre>
+ * header  : int MAGIC, int VERSION, long topologySize,
+ *           topologySize bytes of an OffHeapMesh
+ * records : byte tag, long nanos and
+ *             TAG_LOCATION    : int corner, double x, double y
+ *             TAG_TARGET_AREA : int polygon, double targetArea
+ *             TAG_FRAME       : -
+ * end     : byte TAG_END, long nanos
+ * </pre>
+ * Like the geometry, a recorder must not be used by several threads.
+ *
+ * @author julia schueler
+ */
+public class TraceRecorder {
+
+    public static final int MAGIC = 0x4d4d5452;
+    public static final int VERSION = 2;
+    public static final int HEADER_BYTES = 16;
+    public static final byte TAG_END = 0;
+    public static final byte TAG_LOCATION = 1;
+    public static final byte TAG_TARGET_AREA = 2;
+    public static final byte TAG_FRAME = 3;
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_RECORD_SIZE = 29;
+    private final MeshGeometry geometry;
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final long start;
+    private long recordCount;
+    private boolean finished;
+
+    private TraceRecorder(MeshGeometry geometry, WritableByteChannel channel, int bufferSize) throws IOException {
+        this.geometry = geometry;
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(Math.max(bufferSize, HEADER_BYTES + MAX_RECORD_SIZE));
+        this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        OffHeapMesh snapshot = OffHeapMesh.allocate(geometry.getTopology());
+        snapshot.readFrom(geometry);
+        ByteBuffer topology = snapshot.asReadOnlyBuffer();
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putLong(topology.remaining());
+        writeBuffer();
+        while (topology.hasRemaining()) {
+            channel.write(topology);
+        }
+        snapshot.close();
+
+        this.start = System.nanoTime();
+        this.recordCount = 0;
+    }
+
+    /**
+     * Starts a recording of a specific geometry into a specific channel. It
+     * writes the snapshot and attaches the recorder to the geometry.
+     *
+     * @param geometry geometry to record.
+     * @param channel channel to write to.
+     * @return recorder attached to the geometry.
+     * @throws IOException if the channel could not be written.
+     */
+    public static TraceRecorder start(MeshGeometry geometry, WritableByteChannel channel) throws IOException {
+        return start(geometry, channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Starts a recording of a specific geometry into a specific channel with
+     * a specific size of the reused direct buffer. It writes the snapshot and
+     * attaches the recorder to the geometry.
+     *
+     * @param geometry geometry to record.
+     * @param channel channel to write to.
+     * @param bufferSize size of the direct buffer in bytes.
+     * @return recorder attached to the geometry.
+     * @throws IOException if the channel could not be written.
+     */
+    public static TraceRecorder start(MeshGeometry geometry, WritableByteChannel channel, int bufferSize)
+            throws IOException {
+        if (geometry.getRecorder() != null) {
+            throw new IllegalStateException("geometry is already recorded");
+        }
+        TraceRecorder recorder = new TraceRecorder(geometry, channel, bufferSize);
+        geometry.setRecorder(recorder);
+        return recorder;
+    }
+
+    /**
+     * Records a frame boundary, e.g. the end of a solver step or of a drawn
+     * frame.
+     */
+    public void recordFrame() {
+        putHeader(TAG_FRAME);
+    }
+
+    /**
+     * Returns the count of records so far.
+     *
+     * @return count of records.
+     */
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Writes all buffered records into the channel.
+     *
+     * @throws IOException if the channel could not be written.
+     */
+    public void flush() throws IOException {
+        writeBuffer();
+    }
+
+    /**
+     * Detaches this from the geometry, writes the end tag and flushes all
+     * buffered records into the channel. The channel itself is not closed.
+     *
+     * @throws IOException if the channel could not be written.
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        geometry.setRecorder(null);
+        ensureRemaining();
+        buffer.put(TAG_END);
+        buffer.putLong(System.nanoTime() - start);
+        writeBuffer();
+    }
+
+    void recordLocation(int corner, double x, double y) {
+        putHeader(TAG_LOCATION);
+        buffer.putInt(corner);
+        buffer.putDouble(x);
+        buffer.putDouble(y);
+    }
+
+    void recordTargetArea(int polygon, double targetArea) {
+        putHeader(TAG_TARGET_AREA);
+        buffer.putInt(polygon);
+        buffer.putDouble(targetArea);
+    }
+
+    private void putHeader(byte tag) {
+        if (finished) {
+            throw new IllegalStateException("recording is finished");
+        }
+        ensureRemaining();
+        buffer.put(tag);
+        buffer.putLong(System.nanoTime() - start);
+        recordCount++;
+    }
+
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void ensureRemaining() {
+        if (buffer.remaining() < MAX_RECORD_SIZE) {
+            try {
+                writeBuffer();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
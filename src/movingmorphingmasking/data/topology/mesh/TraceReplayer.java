@@ -0,0 +1,224 @@
+package movingmorphingmasking.data.topology.mesh;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a trace of a <code>TraceRecorder</code> on a
+ * <code>MeshGeometry</code> of the recorded topology, at full speed or at the
+ * recorded wall-clock speed.
+ * <p>
+ * The topology is rebuilt from the snapshot of the trace, its corner
+ * locations and target areas are the ones at the start of the recording.
+ * Every replay resets the target areas of the geometry to the ones of the
+ * snapshot and calls a listener at every recorded frame boundary, where e.g. a
+ * benchmark runs the per-frame work. A trace without end tag, e.g. of a crashed session, is replayed up to
+ * its last complete record.
+ *
+ * @author julia schueler
+ */
+public class TraceReplayer {
+
+    /**
+     * Listener for the frame boundaries of a replay.
+     */
+    public static interface FrameListener {
+
+        /**
+         * Called at a recorded frame boundary.
+         *
+         * @param frame number of the ended frame, starting at 0.
+         * @param geometry replayed geometry.
+         */
+        public void frameEnded(int frame, MeshGeometry geometry);
+    }
+
+    private final ByteBuffer records;
+    private final MeshTopology topology;
+    private long recordCount;
+    private int frameCount;
+    private long durationNanos;
+
+    /**
+     * Constructor for a replayer of a trace in a specific buffer, from its
+     * position to its limit.
+     *
+     * @param trace buffer of the trace.
+     */
+    public TraceReplayer(ByteBuffer trace) {
+        ByteBuffer buffer = trace.slice().order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.remaining() < TraceRecorder.HEADER_BYTES || buffer.getInt(0) != TraceRecorder.MAGIC
+                || buffer.getInt(4) != TraceRecorder.VERSION) {
+            throw new IllegalArgumentException("no trace of version " + TraceRecorder.VERSION);
+        }
+        long topologySize = buffer.getLong(8);
+        if (topologySize < 0 || topologySize > buffer.remaining() - TraceRecorder.HEADER_BYTES) {
+            throw new IllegalArgumentException("truncated trace topology");
+        }
+        int recordStart = TraceRecorder.HEADER_BYTES + (int) topologySize;
+        OffHeapMesh snapshot = OffHeapMesh.wrap(
+                OffHeapMesh.slice(buffer, TraceRecorder.HEADER_BYTES, (int) topologySize));
+        this.topology = snapshot.toTopology();
+        this.records = OffHeapMesh.slice(buffer, recordStart, buffer.remaining() - recordStart);
+        scan();
+    }
+
+    /**
+     * Returns the replayer of a specific trace file. The file is mapped, not
+     * read.
+     *
+     * @param file trace file.
+     * @return replayer of the file.
+     * @throws IOException if the file cannot be mapped.
+     */
+    public static TraceReplayer open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new TraceReplayer(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Returns the topology of the trace.
+     *
+     * @return topology.
+     */
+    public MeshTopology getTopology() {
+        return topology;
+    }
+
+    /**
+     * Returns the count of records without the end tag.
+     *
+     * @return count of records.
+     */
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Returns the count of recorded frame boundaries.
+     *
+     * @return count of frames.
+     */
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Returns the recorded duration.
+     *
+     * @return duration in nanoseconds.
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * Replays the trace on a specific geometry.
+     *
+     * @param geometry geometry of the topology of this, usually at its
+     * initial locations.
+     * @param wallClock <tt>true</tt> to wait for the recorded time of every
+     * record, <tt>false</tt> to replay at full speed.
+     * @param listener listener of the frame boundaries or <code>null</code>.
+     * @return count of replayed records.
+     */
+    public long replay(MeshGeometry geometry, boolean wallClock, FrameListener listener) {
+        if (geometry.getTopology() != topology) {
+            throw new IllegalArgumentException("geometry of another topology");
+        }
+        for (int p = 0; p < topology.targetAreas.length; p++) {
+            geometry.putTargetArea(p, topology.targetAreas[p]);
+        }
+        ByteBuffer in = records.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        long start = System.nanoTime();
+        int frame = 0;
+        for (long r = 0; r < recordCount; r++) {
+            byte tag = in.get();
+            long nanos = in.getLong();
+            if (wallClock) {
+                long wait;
+                while ((wait = start + nanos - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            }
+            switch (tag) {
+                case TraceRecorder.TAG_LOCATION:
+                    geometry.set(in.getInt(), in.getDouble(), in.getDouble());
+                    break;
+                case TraceRecorder.TAG_TARGET_AREA:
+                    geometry.setTargetArea(in.getInt(), in.getDouble());
+                    break;
+                default:
+                    if (listener != null) {
+                        listener.frameEnded(frame, geometry);
+                    }
+                    frame++;
+                    break;
+            }
+        }
+        return recordCount;
+    }
+
+    /**
+     * Returns a new geometry of the topology of this at the locations of the
+     * start of the recording.
+     *
+     * @return new geometry.
+     */
+    public MeshGeometry createGeometry() {
+        return topology.createGeometry();
+    }
+
+    private void scan() {
+        int n = topology.getCornerCount();
+        int p = topology.getPolygonCount();
+        int position = 0;
+        int limit = records.limit();
+        while (limit - position >= 9) {
+            byte tag = records.get(position);
+            long nanos = records.getLong(position + 1);
+            int size;
+            int index;
+            switch (tag) {
+                case TraceRecorder.TAG_END:
+                    durationNanos = nanos;
+                    return;
+                case TraceRecorder.TAG_LOCATION:
+                    size = 29;
+                    index = limit - position >= size ? records.getInt(position + 9) : 0;
+                    if (index < 0 || index >= n) {
+                        throw new IllegalArgumentException("corner out of range: " + index);
+                    }
+                    break;
+                case TraceRecorder.TAG_TARGET_AREA:
+                    size = 21;
+                    index = limit - position >= size ? records.getInt(position + 9) : 0;
+                    if (index < 0 || index >= p) {
+                        throw new IllegalArgumentException("polygon out of range: " + index);
+                    }
+                    break;
+                case TraceRecorder.TAG_FRAME:
+                    size = 9;
+                    frameCount++;
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown record tag " + tag + " at " + position);
+            }
+            if (limit - position < size) {
+                break;
+            }
+            position += size;
+            recordCount++;
+            durationNanos = nanos;
+        }
+    }
+}
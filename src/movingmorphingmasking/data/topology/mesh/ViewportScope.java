@@ -0,0 +1,387 @@
+package movingmorphingmasking.data.topology.mesh;
+
+import java.awt.Graphics2D;
+import java.awt.Paint;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import kn.uni.voronoitreemap.j2d.PolygonSimple;
+
+/**
+ * Restricts the per-frame work on a <code>MeshGeometry</code> to a viewport.
+ * <p>
+ * The visible polygons are the polygons whose bounds intersect the viewport.
+ * Together with the polygons that share a corner with a visible polygon (the
+ * one-ring margin) they form the active polygons, and their corners the
+ * active corners. Location updates of active corners are applied to the
+ * geometry at once, updates of all other corners are only recorded and
+ * applied as soon as their corners become active by
+ * {@link #setViewport(Rectangle2D)} or by {@link #flush()}. Area checks cover
+ * the active polygons, export and rasterisation the visible polygons, so the
+ * cost of a frame scales with the visible part of the mesh.
+ * <p>
+ * The bounds of the polygons are kept conservatively: a moved corner only
+ * extends the bounds of its polygons, and the bounds are recomputed when a
+ * polygon is tested against a new viewport. All location updates of the
+ * geometry must pass the scope.
+ *
+ * @author julia schueler
+ */
+public class ViewportScope {
+
+    private final MeshGeometry geometry;
+    private final MeshGeometry desired;
+    private final MeshTopology topology;
+    private final double[] bounds;
+    private final int[] polygonMarks;
+    private final int[] cornerMarks;
+    private final boolean[] pending;
+    private int[] pendingCorners;
+    private int pendingCount;
+    private int[] visiblePolygons;
+    private int visibleCount;
+    private int[] activePolygons;
+    private int activeCount;
+    private int[] activeCorners;
+    private int activeCornerCount;
+    private int mark;
+    private Rectangle2D viewport;
+    private final Path2D.Double path;
+
+    /**
+     * Constructor for a scope of a specific geometry. Initially no polygon is
+     * visible.
+     *
+     * @param geometry geometry of the morph session.
+     */
+    public ViewportScope(MeshGeometry geometry) {
+        this.geometry = geometry;
+        this.desired = new MeshGeometry(geometry);
+        this.topology = geometry.getTopology();
+        int polygonCount = topology.getPolygonCount();
+        int cornerCount = topology.getCornerCount();
+        this.bounds = new double[4 * polygonCount];
+        for (int p = 0; p < polygonCount; p++) {
+            computeBounds(p);
+        }
+        this.polygonMarks = new int[polygonCount];
+        this.cornerMarks = new int[cornerCount];
+        this.pending = new boolean[cornerCount];
+        this.pendingCorners = new int[16];
+        this.visiblePolygons = new int[16];
+        this.activePolygons = new int[16];
+        this.activeCorners = new int[16];
+        this.path = new Path2D.Double(Path2D.WIND_EVEN_ODD);
+    }
+
+    /**
+     * Returns the geometry of this.
+     *
+     * @return geometry.
+     */
+    public MeshGeometry getGeometry() {
+        return geometry;
+    }
+
+    /**
+     * Returns the current viewport.
+     *
+     * @return viewport or <code>null</code> if no viewport is set.
+     */
+    public Rectangle2D getViewport() {
+        return viewport;
+    }
+
+    /**
+     * Sets the viewport, determines the visible and active polygons and
+     * applies the recorded updates of the corners that become active.
+     *
+     * @param viewport visible rectangle.
+     */
+    public void setViewport(Rectangle2D viewport) {
+        this.viewport = (Rectangle2D) viewport.clone();
+        double minX = viewport.getMinX();
+        double minY = viewport.getMinY();
+        double maxX = viewport.getMaxX();
+        double maxY = viewport.getMaxY();
+        int polygonMark = nextMark();
+        visibleCount = 0;
+        activeCount = 0;
+        for (int p = 0; p < topology.getPolygonCount(); p++) {
+            if (intersects(p, minX, minY, maxX, maxY)) {
+                computeBounds(p);
+                if (intersects(p, minX, minY, maxX, maxY)) {
+                    polygonMarks[p] = polygonMark;
+                    visiblePolygons = add(visiblePolygons, visibleCount++, p);
+                    activePolygons = add(activePolygons, activeCount++, p);
+                }
+            }
+        }
+        activeCornerCount = 0;
+        for (int v = 0; v < visibleCount; v++) {
+            int p = visiblePolygons[v];
+            for (int i = topology.ringOffsets[p]; i < topology.ringOffsets[p + 1]; i++) {
+                int corner = topology.ringCorners[i];
+                for (int j = topology.polygonOffsets[corner]; j < topology.polygonOffsets[corner + 1]; j++) {
+                    int neighbor = topology.cornerPolygons[j];
+                    if (polygonMarks[neighbor] != polygonMark) {
+                        polygonMarks[neighbor] = polygonMark;
+                        activePolygons = add(activePolygons, activeCount++, neighbor);
+                    }
+                }
+            }
+        }
+        for (int a = 0; a < activeCount; a++) {
+            int p = activePolygons[a];
+            for (int i = topology.ringOffsets[p]; i < topology.ringOffsets[p + 1]; i++) {
+                int corner = topology.ringCorners[i];
+                if (cornerMarks[corner] != polygonMark) {
+                    cornerMarks[corner] = polygonMark;
+                    activeCorners = add(activeCorners, activeCornerCount++, corner);
+                }
+            }
+        }
+
+        int kept = 0;
+        for (int k = 0; k < pendingCount; k++) {
+            int corner = pendingCorners[k];
+            if (cornerMarks[corner] == mark) {
+                apply(corner);
+            } else {
+                pendingCorners[kept++] = corner;
+            }
+        }
+        pendingCount = kept;
+    }
+
+    /**
+     * Sets the location of a specific corner to the closest possible location
+     * of the specified coordinates ({@link MeshGeometry#setLocation}). The
+     * update is applied to the geometry at once if the corner is active,
+     * otherwise when it becomes active.
+     *
+     * @param corner index of the corner.
+     * @param x the desired X coordinate of the corner.
+     * @param y the desired Y coordinate of the corner.
+     */
+    public void setLocation(int corner, double x, double y) {
+        desired.setLocation(corner, x, y);
+        double cx = desired.x[corner];
+        double cy = desired.y[corner];
+        for (int j = topology.polygonOffsets[corner]; j < topology.polygonOffsets[corner + 1]; j++) {
+            int b = 4 * topology.cornerPolygons[j];
+            bounds[b] = Math.min(bounds[b], cx);
+            bounds[b + 1] = Math.min(bounds[b + 1], cy);
+            bounds[b + 2] = Math.max(bounds[b + 2], cx);
+            bounds[b + 3] = Math.max(bounds[b + 3], cy);
+        }
+        if (viewport != null && cornerMarks[corner] == mark) {
+            apply(corner);
+        } else if (!pending[corner]) {
+            pending[corner] = true;
+            pendingCorners = add(pendingCorners, pendingCount++, corner);
+        }
+    }
+
+    /**
+     * Applies all recorded updates of the corners that are not active.
+     */
+    public void flush() {
+        for (int k = 0; k < pendingCount; k++) {
+            apply(pendingCorners[k]);
+        }
+        pendingCount = 0;
+    }
+
+    /**
+     * Returns the count of corners with recorded updates.
+     *
+     * @return count of pending corners.
+     */
+    public int getPendingCount() {
+        return pendingCount;
+    }
+
+    /**
+     * Returns if a specific corner is active.
+     *
+     * @param corner index of the corner.
+     * @return <tt>true</tt> if updates of the corner are applied at once.
+     */
+    public boolean isActive(int corner) {
+        return viewport != null && cornerMarks[corner] == mark;
+    }
+
+    /**
+     * Returns the count of visible polygons.
+     *
+     * @return count of visible polygons.
+     */
+    public int getVisibleCount() {
+        return visibleCount;
+    }
+
+    /**
+     * Returns a specific visible polygon.
+     *
+     * @param i position in the visible polygons.
+     * @return index of the polygon.
+     */
+    public int getVisiblePolygon(int i) {
+        return visiblePolygons[i];
+    }
+
+    /**
+     * Returns the count of active polygons, the visible polygons and the
+     * margin.
+     *
+     * @return count of active polygons.
+     */
+    public int getActiveCount() {
+        return activeCount;
+    }
+
+    /**
+     * Returns a specific active polygon. The first
+     * <code>getVisibleCount()</code> active polygons are the visible ones.
+     *
+     * @param i position in the active polygons.
+     * @return index of the polygon.
+     */
+    public int getActivePolygon(int i) {
+        return activePolygons[i];
+    }
+
+    /**
+     * Returns the count of active corners.
+     *
+     * @return count of active corners.
+     */
+    public int getActiveCornerCount() {
+        return activeCornerCount;
+    }
+
+    /**
+     * Returns a specific active corner.
+     *
+     * @param i position in the active corners.
+     * @return index of the corner.
+     */
+    public int getActiveCorner(int i) {
+        return activeCorners[i];
+    }
+
+    /**
+     * Computes the current areas and the signed area errors (current area
+     * minus target area) of the active polygons. The arrays are indexed by
+     * the polygon index, the entries of inactive polygons are not changed.
+     *
+     * @param areas array for the areas or <code>null</code>.
+     * @param errors array for the signed errors or <code>null</code>.
+     * @return areas of the polygons.
+     */
+    public double[] computeAreas(double[] areas, double[] errors) {
+        areas = areas == null ? new double[topology.getPolygonCount()] : areas;
+        for (int a = 0; a < activeCount; a++) {
+            int p = activePolygons[a];
+            areas[p] = geometry.getCurrentArea(p);
+            if (errors != null) {
+                errors[p] = areas[p] - geometry.targetAreas[p];
+            }
+        }
+        return areas;
+    }
+
+    /**
+     * Transformates the visible polygons into <code>PolygonSimple</code>s.
+     *
+     * @return visible polygons in the order of {@link #getVisiblePolygon}.
+     */
+    public List<PolygonSimple> toPolygonSimples() {
+        List<PolygonSimple> polygons = new ArrayList<PolygonSimple>(visibleCount);
+        for (int v = 0; v < visibleCount; v++) {
+            polygons.add(geometry.toPolygonSimple(visiblePolygons[v]));
+        }
+        return polygons;
+    }
+
+    /**
+     * Fills the visible polygons.
+     *
+     * @param graphics graphics to draw on.
+     * @param paints paint of every polygon, indexed by the polygon index, or
+     * <code>null</code> for the current paint of the graphics. A polygon with
+     * a <code>null</code> entry is filled with the current paint, too.
+     */
+    public void fill(Graphics2D graphics, Paint[] paints) {
+        Paint original = graphics.getPaint();
+        for (int v = 0; v < visibleCount; v++) {
+            int p = visiblePolygons[v];
+            int start = topology.ringOffsets[p];
+            int end = topology.ringOffsets[p + 1];
+            if (end - start < 3) {
+                continue;
+            }
+            path.reset();
+            path.moveTo(geometry.x[topology.ringCorners[start]], geometry.y[topology.ringCorners[start]]);
+            for (int i = start + 1; i < end; i++) {
+                path.lineTo(geometry.x[topology.ringCorners[i]], geometry.y[topology.ringCorners[i]]);
+            }
+            path.closePath();
+            if (paints != null) {
+                graphics.setPaint(paints[p] != null ? paints[p] : original);
+            }
+            graphics.fill(path);
+        }
+        graphics.setPaint(original);
+    }
+
+    private void apply(int corner) {
+        geometry.set(corner, desired.x[corner], desired.y[corner]);
+        pending[corner] = false;
+    }
+
+    private boolean intersects(int polygon, double minX, double minY, double maxX, double maxY) {
+        int b = 4 * polygon;
+        return bounds[b] <= maxX && bounds[b + 2] >= minX && bounds[b + 1] <= maxY && bounds[b + 3] >= minY;
+    }
+
+    private void computeBounds(int polygon) {
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i = topology.ringOffsets[polygon]; i < topology.ringOffsets[polygon + 1]; i++) {
+            int corner = topology.ringCorners[i];
+            minX = Math.min(minX, desired.x[corner]);
+            minY = Math.min(minY, desired.y[corner]);
+            maxX = Math.max(maxX, desired.x[corner]);
+            maxY = Math.max(maxY, desired.y[corner]);
+        }
+        int b = 4 * polygon;
+        bounds[b] = minX;
+        bounds[b + 1] = minY;
+        bounds[b + 2] = maxX;
+        bounds[b + 3] = maxY;
+    }
+
+    private int nextMark() {
+        mark++;
+        if (mark == 0) {
+            Arrays.fill(polygonMarks, 0);
+            Arrays.fill(cornerMarks, 0);
+            mark = 1;
+        }
+        return mark;
+    }
+
+    private static int[] add(int[] array, int index, int value) {
+        if (index == array.length) {
+            array = Arrays.copyOf(array, 2 * array.length);
+        }
+        array[index] = value;
+        return array;
+    }
+}
@@ -0,0 +1,91 @@
+package movingmorphingmasking.data.util.comparator;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import kn.uni.voronoitreemap.j2d.PolygonSimple;
+
+/**
+ * Comparator for
+ * <code>PolygonSimple</code> with the distance of their bounds to a viewport.
+ * Polygons whose bounds intersect the viewport come first, ordered by the
+ * distance of their bounds center to the viewport center.
+ * <p>
+ * The distances of a polygon are computed once, at its first comparison, and
+ * kept as its key, so a sort computes them once per polygon and not once per
+ * comparison. A comparator is meant for the polygons of one sort and is not
+ * thread-safe.
+ *
+ * @author julia schueler
+ */
+public class DistanceToViewportComparator implements Comparator<PolygonSimple> {
+
+    private Rectangle2D viewport;
+    private final IdentityHashMap<PolygonSimple, double[]> keys;
+
+    /**
+     * Construtor for a comparator of <code>PolygonSimple</code> with their
+     * distances to the viewport.
+     *
+     * @param viewport visible rectangle.
+     */
+    public DistanceToViewportComparator(Rectangle2D viewport) {
+        this.viewport = viewport;
+        this.keys = new IdentityHashMap<PolygonSimple, double[]>();
+    }
+
+    @Override
+    public int compare(PolygonSimple p, PolygonSimple q) {
+        double[] key1 = getKey(p);
+        double[] key2 = getKey(q);
+        if (key1[0] < key2[0]) {
+            return -1;
+        } else if (key1[0] > key2[0]) {
+            return +1;
+        } else {
+            return Double.compare(key1[1], key2[1]);
+        }
+    }
+
+    private double[] getKey(PolygonSimple polygon) {
+        double[] key = keys.get(polygon);
+        if (key == null) {
+            key = new double[]{distanceSq(polygon), centerDistanceSq(polygon)};
+            keys.put(polygon, key);
+        }
+        return key;
+    }
+
+    private double distanceSq(PolygonSimple polygon) {
+        double[] xPoints = polygon.getXPoints();
+        double[] yPoints = polygon.getYPoints();
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < xPoints.length; i++) {
+            minX = Math.min(minX, xPoints[i]);
+            minY = Math.min(minY, yPoints[i]);
+            maxX = Math.max(maxX, xPoints[i]);
+            maxY = Math.max(maxY, yPoints[i]);
+        }
+        double dx = Math.max(0, Math.max(viewport.getMinX() - maxX, minX - viewport.getMaxX()));
+        double dy = Math.max(0, Math.max(viewport.getMinY() - maxY, minY - viewport.getMaxY()));
+        return dx * dx + dy * dy;
+    }
+
+    private double centerDistanceSq(PolygonSimple polygon) {
+        double[] xPoints = polygon.getXPoints();
+        double[] yPoints = polygon.getYPoints();
+        double sx = 0;
+        double sy = 0;
+        for (int i = 0; i < xPoints.length; i++) {
+            sx += xPoints[i];
+            sy += yPoints[i];
+        }
+        int n = Math.max(1, xPoints.length);
+        double dx = sx / n - viewport.getCenterX();
+        double dy = sy / n - viewport.getCenterY();
+        return dx * dx + dy * dy;
+    }
+}
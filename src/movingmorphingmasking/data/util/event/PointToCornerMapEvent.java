@@ -0,0 +1,16 @@
+package movingmorphingmasking.data.util.event;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Event for the creation of the map of all polygon corners to <code>CornerPoint2D</code>s.
+ *
+ * @author julia schueler
+ */
+@Name("movingmorphingmasking.PointToCornerMap")
+@Label("Point To Corner Map")
+@Description("Creation of the map of all polygon corners to corner points")
+public class PointToCornerMapEvent extends PseudoRegionPhaseEvent {
+}
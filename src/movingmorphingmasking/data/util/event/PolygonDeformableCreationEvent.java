@@ -0,0 +1,16 @@
+package movingmorphingmasking.data.util.event;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Event for the creation of the <code>PolygonDeformable</code>s of a tesselation.
+ *
+ * @author julia schueler
+ */
+@Name("movingmorphingmasking.PolygonDeformableCreation")
+@Label("Polygon Deformable Creation")
+@Description("Creation of the deformable polygons of a tesselation")
+public class PolygonDeformableCreationEvent extends PseudoRegionPhaseEvent {
+}
@@ -0,0 +1,55 @@
+package movingmorphingmasking.data.util.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * Abstract JDK Flight Recorder event for a phase of the pseudo region
+ * pipeline. The duration of the phase is recorded by the event itself, the
+ * counts are set by the phase before the commit.
+ * <p>
+ * An event costs nothing more than its allocation, which is usually removed by
+ * escape analysis, if the event is not enabled in a recording.
+ *
+ * @author julia schueler
+ */
+@Category({"Moving Morphing Masking", "Pseudo Region"})
+@StackTrace(false)
+public abstract class PseudoRegionPhaseEvent extends jdk.jfr.Event {
+
+    @Label("Vertices")
+    protected int vertices;
+    @Label("Sides")
+    protected int sides;
+    @Label("Predicate Calls")
+    protected long predicateCalls;
+
+    /**
+     * Sets the count of vertices handled in the phase.
+     *
+     * @param vertices count of vertices.
+     */
+    public void setVertices(int vertices) {
+        this.vertices = vertices;
+    }
+
+    /**
+     * Sets the count of pseudo region sides handled in the phase.
+     *
+     * @param sides count of sides.
+     */
+    public void setSides(int sides) {
+        this.sides = sides;
+    }
+
+    /**
+     * Sets the count of geometric predicate calls (point on side tests, side
+     * comparisons) of the phase.
+     *
+     * @param predicateCalls count of predicate calls.
+     */
+    public void setPredicateCalls(long predicateCalls) {
+        this.predicateCalls = predicateCalls;
+    }
+}
@@ -0,0 +1,16 @@
+package movingmorphingmasking.data.util.event;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Event for the assembly of the <code>CornerPoint2D</code> rings of the tesselation polygons.
+ *
+ * @author julia schueler
+ */
+@Name("movingmorphingmasking.RingAssembly")
+@Label("Ring Assembly")
+@Description("Assembly of the corner point rings of the tesselation polygons")
+public class RingAssemblyEvent extends PseudoRegionPhaseEvent {
+}
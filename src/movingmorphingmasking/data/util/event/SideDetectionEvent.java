@@ -0,0 +1,16 @@
+package movingmorphingmasking.data.util.event;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Event for the detection of all possible <code>PseudoRegionSide</code>s.
+ *
+ * @author julia schueler
+ */
+@Name("movingmorphingmasking.SideDetection")
+@Label("Side Detection")
+@Description("Detection of all possible pseudo region sides")
+public class SideDetectionEvent extends PseudoRegionPhaseEvent {
+}
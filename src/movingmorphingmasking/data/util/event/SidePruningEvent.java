@@ -0,0 +1,16 @@
+package movingmorphingmasking.data.util.event;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Event for the removal of the <code>PseudoRegionSide</code>s without two associated polygons.
+ *
+ * @author julia schueler
+ */
+@Name("movingmorphingmasking.SidePruning")
+@Label("Side Pruning")
+@Description("Removal of the pseudo region sides without two associated polygons")
+public class SidePruningEvent extends PseudoRegionPhaseEvent {
+}
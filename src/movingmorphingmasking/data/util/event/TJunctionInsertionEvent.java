@@ -0,0 +1,16 @@
+package movingmorphingmasking.data.util.event;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Event for the insertion and sorting of the tesselation points on the <code>PseudoRegionSide</code>s.
+ *
+ * @author julia schueler
+ */
+@Name("movingmorphingmasking.TJunctionInsertion")
+@Label("T-Junction Insertion")
+@Description("Insertion and sorting of the tesselation points on the pseudo region sides")
+public class TJunctionInsertionEvent extends PseudoRegionPhaseEvent {
+}
@@ -0,0 +1,98 @@
+package movingmorphingmasking.data.util.generator;
+
+import java.util.List;
+import kn.uni.voronoitreemap.j2d.PolygonSimple;
+
+/**
+ * A synthetic layout of a base polygon, its pseudo region tesselation and the
+ * nested tesselation, as created by the <code>TesselationGenerator</code>.
+ *
+ * @author julia schueler
+ */
+public class SyntheticLayout {
+
+    private final String name;
+    private final PolygonSimple basePolygon;
+    private final List<PolygonSimple> pseudoRegionTesselation;
+    private final List<PolygonSimple> tesselation;
+
+    /**
+     * Constructor for a synthetic layout.
+     *
+     * @param name description of the layout.
+     * @param basePolygon base polygon.
+     * @param pseudoRegionTesselation tesselation of the base polygon in pseudo
+     * regions.
+     * @param tesselation tesselation of the pseudo regions.
+     */
+    public SyntheticLayout(String name, PolygonSimple basePolygon,
+            List<PolygonSimple> pseudoRegionTesselation, List<PolygonSimple> tesselation) {
+        this.name = name;
+        this.basePolygon = basePolygon;
+        this.pseudoRegionTesselation = pseudoRegionTesselation;
+        this.tesselation = tesselation;
+    }
+
+    /**
+     * Returns the description of the layout.
+     *
+     * @return name of the layout.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the base polygon.
+     *
+     * @return base polygon.
+     */
+    public PolygonSimple getBasePolygon() {
+        return basePolygon;
+    }
+
+    /**
+     * Returns the tesselation of the base polygon in pseudo regions.
+     *
+     * @return pseudo region tesselation.
+     */
+    public List<PolygonSimple> getPseudoRegionTesselation() {
+        return pseudoRegionTesselation;
+    }
+
+    /**
+     * Returns the tesselation of the pseudo regions.
+     *
+     * @return tesselation.
+     */
+    public List<PolygonSimple> getTesselation() {
+        return tesselation;
+    }
+
+    /**
+     * Returns the count of polygons in the tesselation.
+     *
+     * @return count of cells.
+     */
+    public int getCellCount() {
+        return tesselation.size();
+    }
+
+    /**
+     * Returns the count of corners of all polygons in the tesselation.
+     *
+     * @return count of vertices.
+     */
+    public long getVertexCount() {
+        long vertices = 0;
+        for (PolygonSimple polygonSimple : tesselation) {
+            vertices += polygonSimple.getXPoints().length;
+        }
+        return vertices;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + pseudoRegionTesselation.size() + " pseudo regions, " + tesselation.size() + " cells)";
+    }
+}
@@ -0,0 +1,396 @@
+package movingmorphingmasking.data.util.generator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import kn.uni.voronoitreemap.j2d.PolygonSimple;
+
+/**
+ * Deterministic generator of synthetic layouts for tests and benchmarks. The
+ * same seed always creates the same layouts.
+ * <p>
+ * The pipeline detects points on sides by exact comparisons, so all corners
+ * that have to lie on a pseudo region side are placed on integer coordinates:
+ * the corners of the pseudo regions are multiples of the subdivision count,
+ * and the subdivision points of a side are computed with integer arithmetic.
+ *
+ * @author julia schueler
+ */
+public class TesselationGenerator {
+
+    /**
+     * Kinds of layouts the generator can create.
+     */
+    public static enum LayoutKind {
+
+        jitteredGrid, relaxedVoronoi, collinearTJunctions
+    };
+    private static final int UNIT = 64;
+    private final Random random;
+
+    /**
+     * Constructor for a generator with a specific seed.
+     *
+     * @param seed seed of the random numbers.
+     */
+    public TesselationGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Returns a layout of a specific kind with approximately a specific count
+     * of cells.
+     *
+     * @param kind kind of the layout.
+     * @param cellCount desired count of cells.
+     * @return synthetic layout.
+     */
+    public SyntheticLayout createLayout(LayoutKind kind, int cellCount) {
+        switch (kind) {
+            case relaxedVoronoi:
+                int regions = Math.max(1, (int) Math.round(cellCount / 24.0));
+                return createRelaxedVoronoi(regions, 4, 2);
+            case collinearTJunctions:
+                int regionsPerSide = Math.max(1, (int) Math.round(Math.sqrt(cellCount / 8.5)));
+                return createCollinearTJunctions(regionsPerSide, 8);
+            default:
+                return createJitteredGrid(Math.max(1, (int) Math.round(Math.sqrt(cellCount / 16.0))), 4);
+        }
+    }
+
+    /**
+     * Returns a layout with a jittered grid of quadrilateral pseudo regions,
+     * each subdivided into a grid of cells.
+     *
+     * @param regionsPerSide count of pseudo regions per side of the base
+     * polygon.
+     * @param cellsPerRegionSide count of cells per side of a pseudo region.
+     * @return synthetic layout.
+     */
+    public SyntheticLayout createJitteredGrid(int regionsPerSide, int cellsPerRegionSide) {
+        int r = regionsPerSide;
+        int k = cellsPerRegionSide;
+        long spacing = (long) UNIT * k;
+        long size = spacing * r;
+        long maxJitter = UNIT / 4;
+
+        long[][] gx = new long[r + 1][r + 1];
+        long[][] gy = new long[r + 1][r + 1];
+        for (int i = 0; i <= r; i++) {
+            for (int j = 0; j <= r; j++) {
+                gx[i][j] = i * spacing;
+                gy[i][j] = j * spacing;
+                boolean corner = (i == 0 || i == r) && (j == 0 || j == r);
+                if (!corner && i > 0 && i < r) {
+                    gx[i][j] += k * jitter(maxJitter);
+                }
+                if (!corner && j > 0 && j < r) {
+                    gy[i][j] += k * jitter(maxJitter);
+                }
+            }
+        }
+
+        List<PolygonSimple> pseudoRegions = new ArrayList<PolygonSimple>(r * r);
+        List<PolygonSimple> cells = new ArrayList<PolygonSimple>(r * r * k * k);
+        for (int i = 0; i < r; i++) {
+            for (int j = 0; j < r; j++) {
+                long[] qx = {gx[i][j], gx[i + 1][j], gx[i + 1][j + 1], gx[i][j + 1]};
+                long[] qy = {gy[i][j], gy[i + 1][j], gy[i + 1][j + 1], gy[i][j + 1]};
+                pseudoRegions.add(createPolygon(qx, qy));
+                subdivideQuadrilateral(qx, qy, k, cells);
+            }
+        }
+        return new SyntheticLayout("jittered grid", createSquare(size), pseudoRegions, cells);
+    }
+
+    /**
+     * Returns a layout of Lloyd-relaxed Voronoi-like pseudo regions. The cells
+     * of the Voronoi diagram are snapped to the integer lattice, and each
+     * pseudo region is subdivided into a fan of triangles around its center.
+     *
+     * @param regionCount count of pseudo regions.
+     * @param subdivisions count of triangles per side of a pseudo region.
+     * @param lloydIterations count of Lloyd relaxation steps.
+     * @return synthetic layout.
+     */
+    public SyntheticLayout createRelaxedVoronoi(int regionCount, int subdivisions, int lloydIterations) {
+        int k = subdivisions;
+        int sitesPerSide = Math.max(1, (int) Math.ceil(Math.sqrt(regionCount)));
+        double spacing = 4.0 * UNIT * k;
+        long size = (long) (spacing * sitesPerSide);
+
+        double[] sx = new double[regionCount];
+        double[] sy = new double[regionCount];
+        for (int s = 0; s < regionCount; s++) {
+            sx[s] = ((s % sitesPerSide) + 0.5 + 0.6 * (random.nextDouble() - 0.5)) * spacing;
+            sy[s] = ((s / sitesPerSide) + 0.5 + 0.6 * (random.nextDouble() - 0.5)) * spacing;
+        }
+
+        double[][] cellsX = new double[regionCount][];
+        double[][] cellsY = new double[regionCount][];
+        for (int iteration = 0; iteration <= lloydIterations; iteration++) {
+            VoronoiClipper clipper = new VoronoiClipper(sx, sy, size, spacing, sitesPerSide);
+            for (int s = 0; s < regionCount; s++) {
+                clipper.clipCell(s);
+                cellsX[s] = clipper.getX();
+                cellsY[s] = clipper.getY();
+                if (iteration < lloydIterations) {
+                    double[] centroid = centroid(cellsX[s], cellsY[s]);
+                    sx[s] = centroid[0];
+                    sy[s] = centroid[1];
+                }
+            }
+        }
+
+        List<PolygonSimple> pseudoRegions = new ArrayList<PolygonSimple>(regionCount);
+        List<PolygonSimple> cells = new ArrayList<PolygonSimple>();
+        for (int s = 0; s < regionCount; s++) {
+            long[][] snapped = snapToLattice(cellsX[s], cellsY[s], k);
+            if (snapped[0].length < 3) {
+                continue;
+            }
+            pseudoRegions.add(createPolygon(snapped[0], snapped[1]));
+            subdivideIntoFan(snapped[0], snapped[1], k, cells);
+        }
+        return new SyntheticLayout("relaxed voronoi", createSquare(size), pseudoRegions, cells);
+    }
+
+    /**
+     * Returns an adversarial layout of square pseudo regions, each cut into
+     * horizontal slices. Neighboring regions have a different count of slices,
+     * so every shared vertical side holds many collinear T-junctions that do
+     * not match each other.
+     *
+     * @param regionsPerSide count of pseudo regions per side of the base
+     * polygon.
+     * @param slicesPerRegion count of slices of every second pseudo region,
+     * the others have one slice more.
+     * @return synthetic layout.
+     */
+    public SyntheticLayout createCollinearTJunctions(int regionsPerSide, int slicesPerRegion) {
+        int r = regionsPerSide;
+        int k = slicesPerRegion;
+        long regionSize = (long) UNIT * k * (k + 1);
+        long size = regionSize * r;
+
+        List<PolygonSimple> pseudoRegions = new ArrayList<PolygonSimple>(r * r);
+        List<PolygonSimple> cells = new ArrayList<PolygonSimple>();
+        for (int i = 0; i < r; i++) {
+            for (int j = 0; j < r; j++) {
+                long x0 = i * regionSize;
+                long y0 = j * regionSize;
+                long x1 = x0 + regionSize;
+                long y1 = y0 + regionSize;
+                pseudoRegions.add(createPolygon(new long[]{x0, x1, x1, x0}, new long[]{y0, y0, y1, y1}));
+                int slices = k + ((i + j + random.nextInt(2)) % 2);
+                long sliceHeight = regionSize / slices;
+                for (int s = 0; s < slices; s++) {
+                    long sy0 = y0 + s * sliceHeight;
+                    long sy1 = y0 + (s + 1) * sliceHeight;
+                    cells.add(createPolygon(new long[]{x0, x1, x1, x0}, new long[]{sy0, sy0, sy1, sy1}));
+                }
+            }
+        }
+        return new SyntheticLayout("collinear t-junctions", createSquare(size), pseudoRegions, cells);
+    }
+
+    private long jitter(long maxJitter) {
+        return (long) random.nextInt((int) (2 * maxJitter + 1)) - maxJitter;
+    }
+
+    private static void subdivideQuadrilateral(long[] qx, long[] qy, int k, List<PolygonSimple> cells) {
+        double[][] px = new double[k + 1][k + 1];
+        double[][] py = new double[k + 1][k + 1];
+        long kk = (long) k * k;
+        for (int a = 0; a <= k; a++) {
+            for (int b = 0; b <= k; b++) {
+                long w0 = (long) (k - a) * (k - b);
+                long w1 = (long) a * (k - b);
+                long w2 = (long) a * b;
+                long w3 = (long) (k - a) * b;
+                long nx = w0 * qx[0] + w1 * qx[1] + w2 * qx[2] + w3 * qx[3];
+                long ny = w0 * qy[0] + w1 * qy[1] + w2 * qy[2] + w3 * qy[3];
+                px[a][b] = (double) nx / kk;
+                py[a][b] = (double) ny / kk;
+            }
+        }
+        for (int a = 0; a < k; a++) {
+            for (int b = 0; b < k; b++) {
+                cells.add(new PolygonSimple(
+                        new double[]{px[a][b], px[a + 1][b], px[a + 1][b + 1], px[a][b + 1]},
+                        new double[]{py[a][b], py[a + 1][b], py[a + 1][b + 1], py[a][b + 1]}));
+            }
+        }
+    }
+
+    private static void subdivideIntoFan(long[] x, long[] y, int k, List<PolygonSimple> cells) {
+        int n = x.length;
+        double[] centroid = centroid(toDouble(x), toDouble(y));
+        double cx = Math.round(centroid[0]);
+        double cy = Math.round(centroid[1]);
+        for (int i = 0; i < n; i++) {
+            long x1 = x[i];
+            long y1 = y[i];
+            long dx = (x[(i + 1) % n] - x1) / k;
+            long dy = (y[(i + 1) % n] - y1) / k;
+            for (int s = 0; s < k; s++) {
+                cells.add(new PolygonSimple(
+                        new double[]{cx, x1 + s * dx, x1 + (s + 1) * dx},
+                        new double[]{cy, y1 + s * dy, y1 + (s + 1) * dy}));
+            }
+        }
+    }
+
+    private static long[][] snapToLattice(double[] x, double[] y, int k) {
+        int n = x.length;
+        long[] lx = new long[n];
+        long[] ly = new long[n];
+        int m = 0;
+        for (int i = 0; i < n; i++) {
+            long sx = k * Math.round(x[i] / k);
+            long sy = k * Math.round(y[i] / k);
+            if (m == 0 || sx != lx[m - 1] || sy != ly[m - 1]) {
+                lx[m] = sx;
+                ly[m] = sy;
+                m++;
+            }
+        }
+        while (m > 1 && lx[0] == lx[m - 1] && ly[0] == ly[m - 1]) {
+            m--;
+        }
+        long[] rx = new long[m];
+        long[] ry = new long[m];
+        System.arraycopy(lx, 0, rx, 0, m);
+        System.arraycopy(ly, 0, ry, 0, m);
+        return new long[][]{rx, ry};
+    }
+
+    private static double[] centroid(double[] x, double[] y) {
+        int n = x.length;
+        double area = 0;
+        double cx = 0;
+        double cy = 0;
+        for (int i = 0; i < n; i++) {
+            int j = (i + 1) % n;
+            double cross = x[i] * y[j] - x[j] * y[i];
+            area += cross;
+            cx += (x[i] + x[j]) * cross;
+            cy += (y[i] + y[j]) * cross;
+        }
+        if (area == 0) {
+            return new double[]{x[0], y[0]};
+        }
+        return new double[]{cx / (3 * area), cy / (3 * area)};
+    }
+
+    private static double[] toDouble(long[] values) {
+        double[] doubles = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            doubles[i] = values[i];
+        }
+        return doubles;
+    }
+
+    private static PolygonSimple createPolygon(long[] x, long[] y) {
+        return new PolygonSimple(toDouble(x), toDouble(y));
+    }
+
+    private static PolygonSimple createSquare(long size) {
+        return createPolygon(new long[]{0, size, size, 0}, new long[]{0, 0, size, size});
+    }
+
+    /**
+     * Clips the Voronoi cells of sites on a jittered grid to a square. Only
+     * the sites of the neighboring grid buckets are used for the clipping.
+     */
+    private static class VoronoiClipper {
+
+        private static final int NEIGHBORHOOD = 2;
+        private final double[] sx;
+        private final double[] sy;
+        private final double size;
+        private final double bucketSize;
+        private final int bucketsPerSide;
+        private final List<List<Integer>> buckets;
+        private double[] x;
+        private double[] y;
+        private int n;
+
+        private VoronoiClipper(double[] sx, double[] sy, double size, double bucketSize, int bucketsPerSide) {
+            this.sx = sx;
+            this.sy = sy;
+            this.size = size;
+            this.bucketSize = bucketSize;
+            this.bucketsPerSide = bucketsPerSide;
+            this.buckets = new ArrayList<List<Integer>>(bucketsPerSide * bucketsPerSide);
+            for (int i = 0; i < bucketsPerSide * bucketsPerSide; i++) {
+                buckets.add(new ArrayList<Integer>(2));
+            }
+            for (int s = 0; s < sx.length; s++) {
+                buckets.get(bucketOf(sy[s]) * bucketsPerSide + bucketOf(sx[s])).add(s);
+            }
+        }
+
+        private int bucketOf(double value) {
+            return Math.max(0, Math.min(bucketsPerSide - 1, (int) (value / bucketSize)));
+        }
+
+        private void clipCell(int s) {
+            x = new double[]{0, size, size, 0};
+            y = new double[]{0, 0, size, size};
+            n = 4;
+            int bx = bucketOf(sx[s]);
+            int by = bucketOf(sy[s]);
+            for (int j = Math.max(0, by - NEIGHBORHOOD); j <= Math.min(bucketsPerSide - 1, by + NEIGHBORHOOD); j++) {
+                for (int i = Math.max(0, bx - NEIGHBORHOOD); i <= Math.min(bucketsPerSide - 1, bx + NEIGHBORHOOD); i++) {
+                    for (int t : buckets.get(j * bucketsPerSide + i)) {
+                        if (t != s) {
+                            clip(sx[t] - sx[s], sy[t] - sy[s],
+                                    ((sx[t] * sx[t] + sy[t] * sy[t]) - (sx[s] * sx[s] + sy[s] * sy[s])) / 2);
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Keeps the part of the cell with a * x + b * y <= c.
+         */
+        private void clip(double a, double b, double c) {
+            double[] nx = new double[n + 1];
+            double[] ny = new double[n + 1];
+            int m = 0;
+            for (int i = 0; i < n; i++) {
+                int j = (i + 1) % n;
+                double di = a * x[i] + b * y[i] - c;
+                double dj = a * x[j] + b * y[j] - c;
+                if (di <= 0) {
+                    nx[m] = x[i];
+                    ny[m] = y[i];
+                    m++;
+                }
+                if ((di < 0 && dj > 0) || (di > 0 && dj < 0)) {
+                    double t = di / (di - dj);
+                    nx[m] = x[i] + t * (x[j] - x[i]);
+                    ny[m] = y[i] + t * (y[j] - y[i]);
+                    m++;
+                }
+            }
+            x = nx;
+            y = ny;
+            n = m;
+        }
+
+        private double[] getX() {
+            double[] result = new double[n];
+            System.arraycopy(x, 0, result, 0, n);
+            return result;
+        }
+
+        private double[] getY() {
+            double[] result = new double[n];
+            System.arraycopy(y, 0, result, 0, n);
+            return result;
+        }
+    }
+}
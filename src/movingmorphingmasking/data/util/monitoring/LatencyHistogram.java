@@ -0,0 +1,111 @@
+package movingmorphingmasking.data.util.monitoring;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of latencies in nanoseconds with power of two buckets.
+ * Bucket i counts the latencies in [2^(i-1), 2^i), so percentiles are exact up
+ * to a factor of two, which is enough to spot regressions.
+ *
+ * @author julia schueler
+ */
+public class LatencyHistogram {
+
+    private static final int BUCKETS = 64;
+    private final AtomicLongArray buckets;
+    private final AtomicLong count;
+    private final AtomicLong sum;
+    private final AtomicLong max;
+
+    /**
+     * Constructor for an empty histogram.
+     */
+    public LatencyHistogram() {
+        this.buckets = new AtomicLongArray(BUCKETS);
+        this.count = new AtomicLong();
+        this.sum = new AtomicLong();
+        this.max = new AtomicLong();
+    }
+
+    /**
+     * Records a specific latency.
+     *
+     * @param nanos latency in nanoseconds.
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(nanos));
+        count.incrementAndGet();
+        sum.addAndGet(nanos);
+        long currentMax = max.get();
+        while (nanos > currentMax && !max.compareAndSet(currentMax, nanos)) {
+            currentMax = max.get();
+        }
+    }
+
+    /**
+     * Returns the count of recorded latencies.
+     *
+     * @return count of latencies.
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Returns the mean of all recorded latencies in nanoseconds.
+     *
+     * @return mean latency.
+     */
+    public double getMean() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    /**
+     * Returns the maximum of all recorded latencies in nanoseconds.
+     *
+     * @return maximum latency.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the upper bound of the bucket that contains a specific quantile
+     * of all recorded latencies in nanoseconds.
+     *
+     * @param quantile quantile in [0, 1].
+     * @return upper bound of the quantile.
+     */
+    public long getQuantile(double quantile) {
+        long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * n);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min(i == 63 ? Long.MAX_VALUE : (1L << i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Removes all recorded latencies.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+}
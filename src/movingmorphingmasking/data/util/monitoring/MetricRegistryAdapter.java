@@ -0,0 +1,35 @@
+package movingmorphingmasking.data.util.monitoring;
+
+/**
+ * Adapter to a metric registry like the Micrometer <code>MeterRegistry</code>.
+ * An implementation registers every gauge under its name and tags in the
+ * registry and reads its value whenever the registry is scraped.
+ *
+ * @author julia schueler
+ */
+public interface MetricRegistryAdapter {
+
+    /**
+     * The
+     * <code>Gauge</code> interface defines a value that is read on demand.
+     */
+    public interface Gauge {
+
+        /**
+         * Returns the current value of the gauge.
+         *
+         * @return current value.
+         */
+        double value();
+    }
+
+    /**
+     * Registers a gauge.
+     *
+     * @param name name of the gauge.
+     * @param tags alternating tag keys and values.
+     * @param description description of the gauge.
+     * @param gauge gauge to read.
+     */
+    void gauge(String name, String[] tags, String description, Gauge gauge);
+}
@@ -0,0 +1,474 @@
+package movingmorphingmasking.data.util.monitoring;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import kn.uni.voronoitreemap.j2d.PolygonSimple;
+import movingmorphingmasking.data.topology.CornerPoint2D;
+import movingmorphingmasking.data.topology.PolygonDeformable;
+import movingmorphingmasking.data.topology.maskingpseudoregionfactory.PseudoRegionHolder;
+
+/**
+ * Live metrics of morph sessions, published as a JMX MBean and optionally
+ * bound to a metric registry by a <code>MetricRegistryAdapter</code>.
+ * <p>
+ * The mesh statistics are computed from the registered sessions on demand and
+ * kept for a refresh interval, so scraping all attributes walks the meshes
+ * only once. The latencies are recorded by the caller of the updates and the
+ * solver.
+ * <p>
+ * The retained heap is an estimate for a 64 bit JVM with compressed object
+ * pointers, it counts the corners, rings, polygons, the point to corner map
+ * and the tesselation of each session.
+ *
+ * @author julia schueler
+ */
+public class MorphMetrics implements MorphMetricsMBean {
+
+    public static final String DEFAULT_OBJECT_NAME = "movingmorphingmasking:type=MorphMetrics";
+    private static final long CORNER_BYTES = 40;
+    private static final long LINESLIDER_EXTRA_BYTES = 72;
+    private static final long LIST_BYTES = 40;
+    private static final long POLYGON_BYTES = 40;
+    private static final long MAP_ENTRY_BYTES = 72;
+    private static final long POLYGON_SIMPLE_BYTES = 64;
+    private final Map<String, Session> sessions;
+    private final LatencyHistogram updateLatencies;
+    private final LatencyHistogram solveLatencies;
+    private final long refreshIntervalNanos;
+    private volatile Snapshot snapshot;
+
+    private static class Session {
+
+        private final PseudoRegionHolder pseudoRegionHolder;
+        private final List<PolygonDeformable> polygons;
+
+        private Session(PseudoRegionHolder pseudoRegionHolder, List<PolygonDeformable> polygons) {
+            this.pseudoRegionHolder = pseudoRegionHolder;
+            this.polygons = polygons;
+        }
+    }
+
+    private static class Snapshot {
+
+        private final long time;
+        private int movables;
+        private int lineSliders;
+        private int immovables;
+        private int polygons;
+        private long ringLengthSum;
+        private int maxRingLength;
+        private double maxAreaError;
+        private double p99AreaError;
+        private long retainedHeap;
+
+        private Snapshot(long time) {
+            this.time = time;
+        }
+    }
+
+    /**
+     * Constructor for metrics with a refresh interval of one second.
+     */
+    public MorphMetrics() {
+        this(1000);
+    }
+
+    /**
+     * Constructor for metrics with a specific refresh interval of the mesh
+     * statistics.
+     *
+     * @param refreshIntervalMillis refresh interval in milliseconds.
+     */
+    public MorphMetrics(long refreshIntervalMillis) {
+        this.sessions = new ConcurrentHashMap<String, Session>();
+        this.updateLatencies = new LatencyHistogram();
+        this.solveLatencies = new LatencyHistogram();
+        this.refreshIntervalNanos = refreshIntervalMillis * 1000000L;
+        this.snapshot = null;
+    }
+
+    /**
+     * Registers this as MBean with the default object name in the platform
+     * MBean server.
+     *
+     * @return object name of the MBean.
+     * @throws JMException if the MBean could not be registered.
+     */
+    public ObjectName registerMBean() throws JMException {
+        return registerMBean(new ObjectName(DEFAULT_OBJECT_NAME));
+    }
+
+    /**
+     * Registers this as MBean with a specific object name in the platform
+     * MBean server.
+     *
+     * @param objectName object name of the MBean.
+     * @return object name of the MBean.
+     * @throws JMException if the MBean could not be registered.
+     */
+    public ObjectName registerMBean(ObjectName objectName) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        return server.registerMBean(this, objectName).getObjectName();
+    }
+
+    /**
+     * Binds all attributes as gauges to a metric registry.
+     *
+     * @param adapter adapter to a metric registry.
+     * @param tags common alternating tag keys and values.
+     */
+    public void bindTo(MetricRegistryAdapter adapter, String... tags) {
+        final MorphMetrics metrics = this;
+        adapter.gauge("morph.corners", tag(tags, "kind", "movable"), "Count of corner points", new MetricRegistryAdapter.Gauge() {
+            @Override
+            public double value() {
+                return metrics.getMovableCornerCount();
+            }
+        });
+        adapter.gauge("morph.corners", tag(tags, "kind", "line slider"), "Count of corner points", new MetricRegistryAdapter.Gauge() {
+            @Override
+            public double value() {
+                return metrics.getLineSliderCornerCount();
+            }
+        });
+        adapter.gauge("morph.corners", tag(tags, "kind", "immovable"), "Count of corner points", new MetricRegistryAdapter.Gauge() {
+            @Override
+            public double value() {
+                return metrics.getImmovableCornerCount();
+            }
+        });
+        adapter.gauge("morph.polygons", tags, "Count of deformable polygons", new MetricRegistryAdapter.Gauge() {
+            @Override
+            public double value() {
+                return metrics.getPolygonCount();
+            }
+        });
+        adapter.gauge("morph.ring.length", tag(tags, "statistic", "mean"), "Ring length of the polygons", new MetricRegistryAdapter.Gauge() {
+            @Override
+            public double value() {
+                return metrics.getMeanRingLength();
+            }
+        });
+        adapter.gauge("morph.ring.length", tag(tags, "statistic", "max"), "Ring length of the polygons", new MetricRegistryAdapter.Gauge() {
+            @Override
+            public double value() {
+                return metrics.getMaxRingLength();
+            }
+        });
+        adapter.gauge("morph.area.error", tag(tags, "statistic", "max"), "Relative area error", new MetricRegistryAdapter.Gauge() {
+            @Override
+            public double value() {
+                return metrics.getMaxAreaError();
+            }
+        });
+        adapter.gauge("morph.area.error", tag(tags, "statistic", "p99"), "Relative area error", new MetricRegistryAdapter.Gauge() {
+            @Override
+            public double value() {
+                return metrics.getP99AreaError();
+            }
+        });
+        bindHistogram(adapter, "morph.update.latency", tags, updateLatencies);
+        bindHistogram(adapter, "morph.solve.latency", tags, solveLatencies);
+        adapter.gauge("morph.heap.retained", tags, "Estimated retained heap in bytes", new MetricRegistryAdapter.Gauge() {
+            @Override
+            public double value() {
+                return metrics.getEstimatedRetainedHeap();
+            }
+        });
+    }
+
+    /**
+     * Adds a morph session. A session with the same name is replaced.
+     *
+     * @param sessionName name of the session.
+     * @param pseudoRegionHolder holder of the session, might be
+     * <code>null</code>.
+     * @param polygons tesselation of <code>PolygonDeformable</code> of the
+     * session.
+     */
+    public void addSession(String sessionName, PseudoRegionHolder pseudoRegionHolder, List<PolygonDeformable> polygons) {
+        sessions.put(sessionName, new Session(pseudoRegionHolder, polygons));
+        snapshot = null;
+    }
+
+    /**
+     * Removes a morph session.
+     *
+     * @param sessionName name of the session.
+     */
+    public void removeSession(String sessionName) {
+        sessions.remove(sessionName);
+        snapshot = null;
+    }
+
+    /**
+     * Records the latency of an update of corner locations.
+     *
+     * @param nanos latency in nanoseconds.
+     */
+    public void recordUpdate(long nanos) {
+        updateLatencies.record(nanos);
+    }
+
+    /**
+     * Records the latency of a solver run.
+     *
+     * @param nanos latency in nanoseconds.
+     */
+    public void recordSolve(long nanos) {
+        solveLatencies.record(nanos);
+    }
+
+    @Override
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    @Override
+    public String[] getSessionNames() {
+        String[] names = sessions.keySet().toArray(new String[0]);
+        Arrays.sort(names);
+        return names;
+    }
+
+    @Override
+    public int getMovableCornerCount() {
+        return getSnapshot().movables;
+    }
+
+    @Override
+    public int getLineSliderCornerCount() {
+        return getSnapshot().lineSliders;
+    }
+
+    @Override
+    public int getImmovableCornerCount() {
+        return getSnapshot().immovables;
+    }
+
+    @Override
+    public int getPolygonCount() {
+        return getSnapshot().polygons;
+    }
+
+    @Override
+    public double getMeanRingLength() {
+        Snapshot current = getSnapshot();
+        return current.polygons == 0 ? 0 : (double) current.ringLengthSum / current.polygons;
+    }
+
+    @Override
+    public int getMaxRingLength() {
+        return getSnapshot().maxRingLength;
+    }
+
+    @Override
+    public double getMaxAreaError() {
+        return getSnapshot().maxAreaError;
+    }
+
+    @Override
+    public double getP99AreaError() {
+        return getSnapshot().p99AreaError;
+    }
+
+    @Override
+    public long getUpdateCount() {
+        return updateLatencies.getCount();
+    }
+
+    @Override
+    public double getUpdateLatencyMean() {
+        return updateLatencies.getMean();
+    }
+
+    @Override
+    public long getUpdateLatencyP50() {
+        return updateLatencies.getQuantile(0.5);
+    }
+
+    @Override
+    public long getUpdateLatencyP99() {
+        return updateLatencies.getQuantile(0.99);
+    }
+
+    @Override
+    public long getUpdateLatencyMax() {
+        return updateLatencies.getMax();
+    }
+
+    @Override
+    public long getSolveCount() {
+        return solveLatencies.getCount();
+    }
+
+    @Override
+    public double getSolveLatencyMean() {
+        return solveLatencies.getMean();
+    }
+
+    @Override
+    public long getSolveLatencyP50() {
+        return solveLatencies.getQuantile(0.5);
+    }
+
+    @Override
+    public long getSolveLatencyP99() {
+        return solveLatencies.getQuantile(0.99);
+    }
+
+    @Override
+    public long getSolveLatencyMax() {
+        return solveLatencies.getMax();
+    }
+
+    @Override
+    public long getEstimatedRetainedHeap() {
+        return getSnapshot().retainedHeap;
+    }
+
+    @Override
+    public long estimateRetainedHeap(String sessionName) {
+        Session session = sessions.get(sessionName);
+        return session == null ? 0 : estimateRetainedHeap(session);
+    }
+
+    @Override
+    public void resetLatencies() {
+        updateLatencies.reset();
+        solveLatencies.reset();
+    }
+
+    private Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+        long now = System.nanoTime();
+        if (current == null || now - current.time > refreshIntervalNanos) {
+            current = createSnapshot(now);
+            snapshot = current;
+        }
+        return current;
+    }
+
+    private Snapshot createSnapshot(long now) {
+        Snapshot current = new Snapshot(now);
+        List<Session> currentSessions = new ArrayList<Session>(sessions.values());
+        int polygonCount = 0;
+        for (Session session : currentSessions) {
+            polygonCount += session.polygons.size();
+        }
+        double[] areaErrors = new double[polygonCount];
+        int k = 0;
+        for (Session session : currentSessions) {
+            IdentityHashMap<CornerPoint2D, Boolean> corners = new IdentityHashMap<CornerPoint2D, Boolean>();
+            for (PolygonDeformable polygon : session.polygons) {
+                CornerPoint2D[] ring = polygon.getCorners();
+                current.ringLengthSum += ring.length;
+                current.maxRingLength = Math.max(current.maxRingLength, ring.length);
+                for (CornerPoint2D corner : ring) {
+                    if (corners.put(corner, Boolean.TRUE) == null) {
+                        countCorner(current, corner);
+                    }
+                }
+                double targetArea = polygon.getTagetArea();
+                double error = Math.abs(polygon.getCurrentArea() - targetArea);
+                areaErrors[k++] = targetArea == 0 ? error : error / targetArea;
+            }
+            current.retainedHeap += estimateRetainedHeap(session);
+        }
+        current.polygons = polygonCount;
+        if (polygonCount > 0) {
+            Arrays.sort(areaErrors);
+            current.maxAreaError = areaErrors[polygonCount - 1];
+            current.p99AreaError = areaErrors[Math.max(0, (int) Math.ceil(0.99 * polygonCount) - 1)];
+        }
+        return current;
+    }
+
+    private static void countCorner(Snapshot current, CornerPoint2D corner) {
+        switch (corner.getKind()) {
+            case movable:
+                current.movables++;
+                break;
+            case lineSlider:
+                current.lineSliders++;
+                break;
+            default:
+                current.immovables++;
+                break;
+        }
+    }
+
+    private static long estimateRetainedHeap(Session session) {
+        long bytes = 0;
+        IdentityHashMap<CornerPoint2D, Boolean> corners = new IdentityHashMap<CornerPoint2D, Boolean>();
+        for (PolygonDeformable polygon : session.polygons) {
+            CornerPoint2D[] ring = polygon.getCorners();
+            bytes += POLYGON_BYTES + align(16 + 4L * ring.length);
+            for (CornerPoint2D corner : ring) {
+                if (corners.put(corner, Boolean.TRUE) == null) {
+                    bytes += CORNER_BYTES;
+                    bytes += LIST_BYTES + align(16 + 4L * Math.max(10, corner.getIncidentCorners().size()));
+                    bytes += LIST_BYTES + align(16 + 4L * Math.max(10, corner.getAssociatedPolygons().size()));
+                    if (corner instanceof CornerPoint2D.LineSlider) {
+                        bytes += LINESLIDER_EXTRA_BYTES;
+                    }
+                }
+            }
+        }
+        PseudoRegionHolder holder = session.pseudoRegionHolder;
+        if (holder != null) {
+            bytes += MAP_ENTRY_BYTES * holder.getMapPointToCorner().size();
+            for (PolygonSimple polygonSimple : holder.getTesselation()) {
+                bytes += POLYGON_SIMPLE_BYTES + 2 * align(16 + 8L * polygonSimple.getXPoints().length);
+            }
+        }
+        return bytes;
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    private static String[] tag(String[] tags, String key, String value) {
+        String[] extendedTags = Arrays.copyOf(tags, tags.length + 2);
+        extendedTags[tags.length] = key;
+        extendedTags[tags.length + 1] = value;
+        return extendedTags;
+    }
+
+    private static void bindHistogram(MetricRegistryAdapter adapter, String name, String[] tags,
+            final LatencyHistogram histogram) {
+        adapter.gauge(name, tag(tags, "statistic", "mean"), "Latency in nanoseconds", new MetricRegistryAdapter.Gauge() {
+            @Override
+            public double value() {
+                return histogram.getMean();
+            }
+        });
+        adapter.gauge(name, tag(tags, "statistic", "p50"), "Latency in nanoseconds", new MetricRegistryAdapter.Gauge() {
+            @Override
+            public double value() {
+                return histogram.getQuantile(0.5);
+            }
+        });
+        adapter.gauge(name, tag(tags, "statistic", "p99"), "Latency in nanoseconds", new MetricRegistryAdapter.Gauge() {
+            @Override
+            public double value() {
+                return histogram.getQuantile(0.99);
+            }
+        });
+        adapter.gauge(name, tag(tags, "statistic", "max"), "Latency in nanoseconds", new MetricRegistryAdapter.Gauge() {
+            @Override
+            public double value() {
+                return histogram.getMax();
+            }
+        });
+    }
+}
@@ -0,0 +1,56 @@
+package movingmorphingmasking.data.util.monitoring;
+
+/**
+ * JMX management interface of the <code>MorphMetrics</code>. All latencies
+ * are in nanoseconds, all area errors relative to the target area.
+ *
+ * @author julia schueler
+ */
+public interface MorphMetricsMBean {
+
+    int getSessionCount();
+
+    int getMovableCornerCount();
+
+    int getLineSliderCornerCount();
+
+    int getImmovableCornerCount();
+
+    int getPolygonCount();
+
+    double getMeanRingLength();
+
+    int getMaxRingLength();
+
+    double getMaxAreaError();
+
+    double getP99AreaError();
+
+    long getUpdateCount();
+
+    double getUpdateLatencyMean();
+
+    long getUpdateLatencyP50();
+
+    long getUpdateLatencyP99();
+
+    long getUpdateLatencyMax();
+
+    long getSolveCount();
+
+    double getSolveLatencyMean();
+
+    long getSolveLatencyP50();
+
+    long getSolveLatencyP99();
+
+    long getSolveLatencyMax();
+
+    long getEstimatedRetainedHeap();
+
+    String[] getSessionNames();
+
+    long estimateRetainedHeap(String sessionName);
+
+    void resetLatencies();
+}
@@ -0,0 +1,76 @@
+package movingmorphingmasking.data.topology;
+
+import static org.junit.Assert.assertEquals;
+import java.awt.geom.Line2D;
+import org.junit.Test;
+
+/**
+ * Tests of the checkpoints of <code>CornerJournal</code>.
+ *
+ * @author julia schueler
+ */
+public class CornerJournalTest {
+
+    @Test
+    public void rollbackRestoresLocations() {
+        CornerPoint2D movable = new CornerPoint2D.Movable(1, 2);
+        CornerPoint2D slider = new CornerPoint2D.LineSlider(10, 2, new Line2D.Double(10, 0, 10, 10));
+        CornerJournal journal = new CornerJournal();
+        int checkpoint = journal.checkpoint();
+        journal.setLocation(movable, 3, 4);
+        journal.setLocation(slider, 20, 6);
+        assertEquals(10, slider.getX(), 0);
+        assertEquals(6, slider.getY(), 0);
+        assertEquals(2, journal.rollback(checkpoint));
+        assertEquals(1, movable.getX(), 0);
+        assertEquals(2, movable.getY(), 0);
+        assertEquals(10, slider.getX(), 0);
+        assertEquals(2, slider.getY(), 0);
+        assertEquals(0, journal.size());
+        journal.release(checkpoint);
+    }
+
+    @Test
+    public void releaseKeepsLocations() {
+        CornerPoint2D movable = new CornerPoint2D.Movable(1, 2);
+        CornerPoint2D immovable = new CornerPoint2D.Immovable(0, 0);
+        CornerJournal journal = new CornerJournal();
+        int checkpoint = journal.checkpoint();
+        journal.setLocation(movable, 3, 4);
+        journal.setLocation(immovable, 5, 5);
+        assertEquals(1, journal.size());
+        journal.release(checkpoint);
+        assertEquals(0, journal.size());
+        assertEquals(3, movable.getX(), 0);
+        assertEquals(4, movable.getY(), 0);
+        journal.setLocation(movable, 7, 8);
+        assertEquals(0, journal.size());
+    }
+
+    @Test
+    public void rollbackClosesNestedCheckpoints() {
+        CornerPoint2D corner = new CornerPoint2D.Movable(1, 2);
+        CornerJournal journal = new CornerJournal();
+        int outer = journal.checkpoint();
+        journal.checkpoint();
+        journal.setLocation(corner, 3, 4);
+        assertEquals(1, journal.rollback(outer));
+        assertEquals(1, corner.getX(), 0);
+        assertEquals(2, corner.getY(), 0);
+        journal.release(outer);
+        assertEquals(0, journal.size());
+        for (int i = 0; i < 1000; i++) {
+            journal.setLocation(corner, i, i);
+        }
+        assertEquals(0, journal.size());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rolledBackCheckpointIsClosed() {
+        CornerJournal journal = new CornerJournal();
+        int outer = journal.checkpoint();
+        int inner = journal.checkpoint();
+        journal.rollback(outer);
+        journal.release(inner);
+    }
+}
@@ -0,0 +1,83 @@
+package movingmorphingmasking.data.topology.mesh;
+
+import static org.junit.Assert.assertEquals;
+import java.awt.geom.Line2D;
+import java.util.Arrays;
+import movingmorphingmasking.data.topology.CornerPoint2D;
+import movingmorphingmasking.data.topology.PolygonDeformable;
+import org.junit.Test;
+
+/**
+ * Tests of the checkpoints of <code>MeshGeometry</code>.
+ *
+ * @author julia schueler
+ */
+public class MeshGeometryTest {
+
+    private static MeshGeometry createGeometry() {
+        CornerPoint2D[] corners = new CornerPoint2D[]{new CornerPoint2D.Immovable(0, 0),
+            new CornerPoint2D.LineSlider(10, 2, new Line2D.Double(10, 0, 10, 10)), new CornerPoint2D.Movable(5, 5),
+            new CornerPoint2D.Immovable(0, 10)};
+        return MeshTopology.create(Arrays.asList(new PolygonDeformable(corners, 50))).createGeometry();
+    }
+
+    @Test
+    public void rollbackRestoresLocations() {
+        MeshGeometry geometry = createGeometry();
+        int slider = geometry.getTopology().getLineSliderStart();
+        int checkpoint = geometry.checkpoint();
+        geometry.setLocation(0, 6, 6);
+        geometry.setLocation(slider, 20, 6);
+        assertEquals(10, geometry.getX(slider), 0);
+        assertEquals(6, geometry.getY(slider), 0);
+        assertEquals(2, geometry.rollback(checkpoint));
+        assertEquals(5, geometry.getX(0), 0);
+        assertEquals(5, geometry.getY(0), 0);
+        assertEquals(10, geometry.getX(slider), 0);
+        assertEquals(2, geometry.getY(slider), 0);
+        assertEquals(0, geometry.getJournalSize());
+        geometry.release(checkpoint);
+    }
+
+    @Test
+    public void releaseKeepsLocations() {
+        MeshGeometry geometry = createGeometry();
+        int immovable = geometry.getTopology().getImmovableStart();
+        int checkpoint = geometry.checkpoint();
+        geometry.setLocation(0, 6, 6);
+        geometry.setLocation(immovable, 5, 5);
+        assertEquals(1, geometry.getJournalSize());
+        geometry.release(checkpoint);
+        assertEquals(0, geometry.getJournalSize());
+        assertEquals(6, geometry.getX(0), 0);
+        assertEquals(6, geometry.getY(0), 0);
+        geometry.setLocation(0, 7, 7);
+        assertEquals(0, geometry.getJournalSize());
+    }
+
+    @Test
+    public void rollbackClosesNestedCheckpoints() {
+        MeshGeometry geometry = createGeometry();
+        int outer = geometry.checkpoint();
+        geometry.checkpoint();
+        geometry.setLocation(0, 6, 6);
+        assertEquals(1, geometry.rollback(outer));
+        assertEquals(5, geometry.getX(0), 0);
+        assertEquals(5, geometry.getY(0), 0);
+        geometry.release(outer);
+        assertEquals(0, geometry.getJournalSize());
+        for (int i = 0; i < 1000; i++) {
+            geometry.setLocation(0, i, i);
+        }
+        assertEquals(0, geometry.getJournalSize());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rolledBackCheckpointIsClosed() {
+        MeshGeometry geometry = createGeometry();
+        int outer = geometry.checkpoint();
+        int inner = geometry.checkpoint();
+        geometry.rollback(outer);
+        geometry.release(inner);
+    }
+}